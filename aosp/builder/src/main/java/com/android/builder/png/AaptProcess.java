@@ -83,6 +83,12 @@ public class AaptProcess {
                 new NotifierProcessOutput(job, mProcessOutputFacade, mLogger);
 
         mProcessOutputFacade.setNotifier(notifier);
+        if (!mReady.get()) {
+            // the process exited before the notifier was set, nobody else will fail the job.
+            mProcessOutputFacade.reset();
+            job.error();
+            return;
+        }
         mWriter.write("s\n");
         mWriter.write(in.getAbsolutePath());
         mWriter.write("\n");
@@ -95,6 +101,13 @@ public class AaptProcess {
                 "job: " + job.toString());
     }
 
+    /**
+     * @return false once the process exited, it can not receive commands anymore.
+     */
+    public boolean isReady() {
+        return mReady.get();
+    }
+
     public void waitForReady() throws InterruptedException {
         if (!mReadyLatch.await(TimeUnit.NANOSECONDS.convert(
                 SLAVE_AAPT_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS))) {
@@ -102,6 +115,9 @@ public class AaptProcess {
                     + "try setting environment variable SLAVE_AAPT_TIMEOUT to a value bigger than "
                     + SLAVE_AAPT_TIMEOUT_IN_SECONDS + " seconds");
         }
+        if (!mReady.get()) {
+            throw new RuntimeException("Slave aapt process exited before being ready");
+        }
 
         mLogger.info("Slave %1$s is ready", hashCode());
     }
@@ -225,8 +241,22 @@ public class AaptProcess {
         @Override
         public synchronized void out(@Nullable String line) {
 
+            if (line == null) {
+                // end of the output, the process exited or crashed: fail the pending job so
+                // its caller does not wait forever.
+                AaptProcess.this.mReady.set(false);
+                AaptProcess.this.mReadyLatch.signal();
+                NotifierProcessOutput delegate = getNotifier();
+                if (delegate != null) {
+                    mLogger.warning("AAPT(%1$s) exited while processing %2$s",
+                            mProcess.hashCode(), delegate.mJob);
+                    reset();
+                    delegate.mJob.error();
+                }
+                return;
+            }
             // an empty message or aapt startup message are ignored.
-            if (Strings.isNullOrEmpty(line)) {
+            if (line.isEmpty()) {
                 return;
             }
             if (line.equals("Ready")) {
@@ -259,7 +289,9 @@ public class AaptProcess {
             } else {
                 if (!mReady.get()) {
                     if (line.equals("ERROR: Unknown command 'm'")) {
-                        throw new RuntimeException("Invalid aapt version, version 21 or above is required");
+                        // aapt exits, waitForReady() fails
+                        mLogger.error(null, "Invalid aapt version, version 21 or above is required");
+                        return;
                     }
                     mLogger.error(null, "AAPT err(%1$s): %2$s", mProcess.hashCode(), line);
                 } else {
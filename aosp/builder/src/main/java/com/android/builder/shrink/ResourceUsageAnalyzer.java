@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-package com.android.build.gradle.tasks;
+package com.android.builder.shrink;
 
 import static com.android.SdkConstants.ANDROID_STYLE_RESOURCE_PREFIX;
 import static com.android.SdkConstants.ANDROID_URI;
@@ -26,6 +26,7 @@ import static com.android.SdkConstants.DOT_GIF;
 import static com.android.SdkConstants.DOT_JPEG;
 import static com.android.SdkConstants.DOT_JPG;
 import static com.android.SdkConstants.DOT_PNG;
+import static com.android.SdkConstants.DOT_WEBP;
 import static com.android.SdkConstants.DOT_XML;
 import static com.android.SdkConstants.FD_RES_VALUES;
 import static com.android.SdkConstants.PREFIX_ANDROID;
@@ -52,9 +53,7 @@ import com.android.ide.common.xml.XmlPrettyPrinter;
 import com.android.resources.FolderTypeRelationship;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
-import com.android.tools.lint.checks.StringFormatDetector;
-import com.android.tools.lint.client.api.DefaultConfiguration;
-import com.android.tools.lint.detector.api.LintUtils;
+import com.android.utils.ILogger;
 import com.android.utils.XmlUtils;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
@@ -144,6 +143,9 @@ import javax.xml.parsers.ParserConfigurationException;
  * <p>
  * For now, for reasons detailed in the code, this only applies to file-based resources
  * like layouts, menus and drawables, not value-based resources like strings and dimensions.
+ * <p>
+ * Copy of the analyzer of the gradle plugin, without its dependencies on lint: the few lint
+ * helpers it used are copied below.
  */
 public class ResourceUsageAnalyzer {
     private static final String ANDROID_RES = "android_res/";
@@ -196,6 +198,40 @@ public class ResourceUsageAnalyzer {
     public static final boolean TWO_PASS_AAPT = false;
     public static final int TYPICAL_RESOURCE_COUNT = 200;
 
+    /** A 1x1 transparent png, the stub of unused bitmaps */
+    @VisibleForTesting
+    static final byte[] TINY_PNG = new byte[] {
+            (byte) 0x89, 0x50, 0x4e, 0x47, 0x0d, 0x0a, 0x1a, 0x0a, 0x00, 0x00, 0x00, 0x0d,
+            0x49, 0x48, 0x44, 0x52, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01,
+            0x08, 0x06, 0x00, 0x00, 0x00, 0x1f, 0x15, (byte) 0xc4, (byte) 0x89, 0x00, 0x00, 0x00,
+            0x0b, 0x49, 0x44, 0x41, 0x54, 0x78, (byte) 0xda, 0x63, 0x60, 0x00, 0x02, 0x00,
+            0x00, 0x05, 0x00, 0x01, (byte) 0xe9, (byte) 0xfa, (byte) 0xdc, (byte) 0xd8, 0x00, 0x00,
+            0x00, 0x00, 0x49, 0x45, 0x4e, 0x44, (byte) 0xae, 0x42, 0x60, (byte) 0x82
+    };
+    private static final long TINY_PNG_CRC = 0x710db51cL;
+
+    /** The compiled form of {@code <x/>}, the stub of unused XML files */
+    @VisibleForTesting
+    static final byte[] TINY_BINARY_XML = new byte[] {
+            // chunk header: RES_XML_TYPE
+            0x03, 0x00, 0x08, 0x00, 0x6c, 0x00, 0x00, 0x00,
+            // string pool holding "x"
+            0x01, 0x00, 0x1c, 0x00, 0x28, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x78, 0x00,
+            0x00, 0x00, 0x00, 0x00,
+            // start element x, no attribute
+            0x02, 0x01, 0x10, 0x00, 0x24, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x00, 0x00, 0x00, 0x00,
+            0x14, 0x00, 0x14, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            // end element x
+            0x03, 0x01, 0x10, 0x00, 0x18, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x00, 0x00, 0x00, 0x00
+    };
+    private static final long TINY_BINARY_XML_CRC = 0xeaeabd16L;
+
     /** Name of keep attribute in XML */
     private static final String ATTR_KEEP = "keep";
     /** Name of discard attribute in XML (to mark resources as not referenced, despite guesses) */
@@ -215,6 +251,7 @@ public class ResourceUsageAnalyzer {
     private final File mClassesJar;
     private final File mMergedManifest;
     private final File mMergedResourceDir;
+    private final ILogger mLogger;
 
     private boolean mVerbose;
     private boolean mDebug;
@@ -248,12 +285,14 @@ public class ResourceUsageAnalyzer {
             @NonNull File classesJar,
             @NonNull File manifest,
             @Nullable File mapping,
-            @NonNull File resources) {
+            @NonNull File resources,
+            @NonNull ILogger logger) {
         mResourceClassDir = rDir;
         mProguardMapping = mapping;
         mClassesJar = classesJar;
         mMergedManifest = manifest;
         mMergedResourceDir = resources;
+        mLogger = logger;
     }
 
     public void analyze() throws IOException, ParserConfigurationException, SAXException {
@@ -293,13 +332,13 @@ public class ResourceUsageAnalyzer {
     }
 
     /**
-     * "Removes" resources from an .ap_ file by writing it out while filtering out
-     * unused resources. This won't touch the values XML data (resources.arsc) but
-     * will remove the individual file-based resources, which is where most of
+     * "Removes" resources from an .ap_ file by writing it out while replacing unused
+     * resources with tiny stubs. This won't touch the values XML data (resources.arsc) but
+     * will shrink the individual file-based resources, which is where most of
      * the data is anyway (usually in drawable bitmaps)
      *
      * @param source the .ap_ file created by aapt
-     * @param dest a new .ap_ file with unused file-based resources removed
+     * @param dest a new .ap_ file with unused file-based resources replaced by stubs
      */
     public void rewriteResourceZip(@NonNull File source, @NonNull File dest)
             throws IOException {
@@ -355,9 +394,15 @@ public class ResourceUsageAnalyzer {
                             }
 
                             zos.closeEntry();
-                        } else if (isVerbose()) {
-                            System.out.println("Skipped unused resource " + name + ": "
-                                    + entry.getSize() + " bytes");
+                        } else {
+                            // resources.arsc still points to the file, keep a tiny stub
+                            // with the same name so that a lookup of the resource (e.g.
+                            // through Resources#getIdentifier) finds a valid file.
+                            replaceWithStub(zos, entry, name);
+                            if (isVerbose()) {
+                                mLogger.info("Replaced unused resource %1$s: %2$d bytes", name,
+                                        entry.getSize());
+                            }
                         }
                         entry = zis.getNextEntry();
                     }
@@ -373,6 +418,40 @@ public class ResourceUsageAnalyzer {
         }
     }
 
+    /**
+     * Writes the smallest valid file of the type of the given entry: an image of one
+     * transparent pixel for bitmaps, an empty element for compiled XML files, and no
+     * bytes for the others.
+     */
+    private static void replaceWithStub(@NonNull JarOutputStream zos, @NonNull ZipEntry entry,
+            @NonNull String name) throws IOException {
+        byte[] bytes;
+        long crc;
+        if (endsWith(name, DOT_PNG)) { // also true for 9-patch files
+            bytes = TINY_PNG;
+            crc = TINY_PNG_CRC;
+        } else if (endsWith(name, DOT_XML)) {
+            bytes = TINY_BINARY_XML;
+            crc = TINY_BINARY_XML_CRC;
+        } else {
+            bytes = new byte[0];
+            crc = 0L;
+        }
+        JarEntry outEntry = new JarEntry(name);
+        if (entry.getTime() != -1L) {
+            outEntry.setTime(entry.getTime());
+        }
+        if (entry.getMethod() == JarEntry.STORED) {
+            outEntry.setMethod(JarEntry.STORED);
+            outEntry.setSize(bytes.length);
+            outEntry.setCompressedSize(bytes.length);
+            outEntry.setCrc(crc);
+        }
+        zos.putNextEntry(outEntry);
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
     /**
      * Remove resources (already identified by {@link #analyze()}).
      *
@@ -412,13 +491,13 @@ public class ResourceUsageAnalyzer {
                         ResourceFolderType folderType = ResourceFolderType.getFolderType(folder);
                         if (folderType != null && folderType != ResourceFolderType.VALUES) {
                             if (isVerbose()) {
-                                System.out.println("Deleted unused resource " + file);
+                                mLogger.info("Deleted unused resource %1$s", file);
                             }
                             if (inPlace) {
                                 if (!isDryRun()) {
                                     boolean delete = file.delete();
                                     if (!delete) {
-                                        System.err.println("Could not delete " + file);
+                                        mLogger.warning("Could not delete %1$s", file);
                                     }
                                 }
                             } else {
@@ -453,9 +532,8 @@ public class ResourceUsageAnalyzer {
                     List<String> removed = Lists.newArrayList();
                     stripUnused(root, removed);
                     if (isVerbose()) {
-                        System.out.println("Removed " + removed.size() +
-                                " unused resources from " + file + ":\n  " +
-                                Joiner.on(", ").join(removed));
+                        mLogger.info("Removed %1$d unused resources from %2$s:\n  %3$s",
+                                removed.size(), file, Joiner.on(", ").join(removed));
                     }
 
                     String formatted = XmlPrettyPrinter.prettyPrint(document, xml.endsWith("\n"));
@@ -700,7 +778,7 @@ public class ResourceUsageAnalyzer {
         }
 
         if (mDebug) {
-            System.out.println("The root reachable resources are:\n" +
+            mLogger.verbose("The root reachable resources are:\n%1$s",
                     Joiner.on(",\n   ").join(roots));
         }
 
@@ -719,7 +797,7 @@ public class ResourceUsageAnalyzer {
         mUnused = unused;
 
         if (mDebug) {
-            System.out.println(dumpResourceModel());
+            mLogger.verbose("%1$s", dumpResourceModel());
         }
     }
 
@@ -738,10 +816,10 @@ public class ResourceUsageAnalyzer {
 
     private void dumpReferences() {
         if (mDebug) {
-            System.out.println("Resource Reference Graph:");
+            mLogger.verbose("Resource Reference Graph:");
             for (Resource resource : mResources) {
                 if (resource.references != null) {
-                    System.out.println(resource + " => " + resource.references);
+                    mLogger.verbose("%1$s => %2$s", resource, resource.references);
                 }
             }
         }
@@ -763,10 +841,10 @@ public class ResourceUsageAnalyzer {
         if (mDebug) {
             List<String> strings = new ArrayList<String>(mStrings);
             Collections.sort(strings);
-            System.out.println("android.content.res.Resources#getIdentifier present: "
-                    + mFoundGetIdentifier);
-            System.out.println("Web content present: " + mFoundWebContent);
-            System.out.println("Referenced Strings:");
+            mLogger.verbose("android.content.res.Resources#getIdentifier present: %1$b",
+                    mFoundGetIdentifier);
+            mLogger.verbose("Web content present: %1$b", mFoundWebContent);
+            mLogger.verbose("Referenced Strings:");
             for (String s : strings) {
                 s = s.trim().replace("\n", "\\n");
                 if (s.length() > 40) {
@@ -774,7 +852,7 @@ public class ResourceUsageAnalyzer {
                 } else if (s.isEmpty()) {
                     continue;
                 }
-                System.out.println("  " + s);
+                mLogger.verbose("  %1$s", s);
             }
         }
 
@@ -824,8 +902,8 @@ public class ResourceUsageAnalyzer {
                         for (Map<String, Resource> map : mTypeToName.values()) {
                             resource = map.get(name);
                             if (mDebug && resource != null) {
-                                System.out.println("Marking " + resource + " used because it "
-                                        + "matches string pool constant " + string);
+                                mLogger.verbose("Marking %1$s used because it matches string "
+                                        + "pool constant %2$s", resource, string);
                             }
                             markReachable(resource);
                         }
@@ -867,8 +945,8 @@ public class ResourceUsageAnalyzer {
                     for (Resource resource : map.values()) {
                         if (resource.name.startsWith(name)) {
                             if (mDebug) {
-                                System.out.println("Marking " + resource + " used because its "
-                                        + "prefix matches string pool constant " + string);
+                                mLogger.verbose("Marking %1$s used because its prefix matches "
+                                        + "string pool constant %2$s", resource, string);
                             }
                             markReachable(resource);
                         }
@@ -886,9 +964,9 @@ public class ResourceUsageAnalyzer {
                             for (Resource resource : map.values()) {
                                 if (pattern.matcher(resource.name).matches()) {
                                     if (mDebug) {
-                                        System.out.println("Marking " + resource + " used because "
-                                                + "it format-string matches string pool constant "
-                                                + string);
+                                        mLogger.verbose("Marking %1$s used because it "
+                                                + "format-string matches string pool constant "
+                                                + "%2$s", resource, string);
                                     }
                                     markReachable(resource);
                                 }
@@ -921,8 +999,8 @@ public class ResourceUsageAnalyzer {
                     }
                     Resource resource = getResource(type, name);
                     if (mDebug && resource != null) {
-                        System.out.println("Marking " + resource + " used because it "
-                                + "matches string pool constant " + string);
+                        mLogger.verbose("Marking %1$s used because it matches string pool "
+                                + "constant %2$s", resource, string);
                     }
                     markReachable(resource);
                     continue;
@@ -935,8 +1013,8 @@ public class ResourceUsageAnalyzer {
                 for (Map<String, Resource> map : mTypeToName.values()) {
                     Resource resource = map.get(name);
                     if (mDebug && resource != null) {
-                        System.out.println("Marking " + resource + " used because it "
-                                + "matches string pool constant " + string);
+                        mLogger.verbose("Marking %1$s used because it matches string pool "
+                                + "constant %2$s", resource, string);
                     }
                     markReachable(resource);
                 }
@@ -957,12 +1035,30 @@ public class ResourceUsageAnalyzer {
         }
     }
 
+    /** Format specifier of {@link String#format}, from the StringFormatDetector of lint */
+    private static final Pattern FORMAT = Pattern.compile(
+            // Generic format:
+            //   %[argument_index$][flags][width][.precision]conversion
+            "%" +
+            // Argument Index
+            "(\\d+\\$)?" +
+            // Flags
+            "([-+#, 0(\\<]*)?" +
+            // Width
+            "(\\d+)?" +
+            // Precision
+            "(\\.\\d+)?" +
+            // Conversion. These are all a single character, except date/time conversions
+            // which take a prefix of t/T:
+            "([tT])?" +
+            "([a-zA-Z%])");
+
     @VisibleForTesting
     static String convertFormatStringToRegexp(String formatString) {
         StringBuilder regexp = new StringBuilder();
         int from = 0;
         boolean hasEscapedLetters = false;
-        Matcher matcher = StringFormatDetector.FORMAT.matcher(formatString);
+        Matcher matcher = FORMAT.matcher(formatString);
         int length = formatString.length();
         while (matcher.find(from)) {
             int start = matcher.start();
@@ -1097,7 +1193,7 @@ public class ResourceUsageAnalyzer {
                         tokenizeCss(from, Files.toString(file, UTF_8));
                     } else if (endsWithIgnoreCase(path, ".js")) {
                         tokenizeJs(from, Files.toString(file, UTF_8));
-                    } else if (file.isFile() && !LintUtils.isBitmapFile(file)) {
+                    } else if (file.isFile() && !isBitmapFile(file)) {
                         tokenizeUnknownBinary(file);
                     }
                 }
@@ -1933,10 +2029,10 @@ public class ResourceUsageAnalyzer {
             } else if (VALUE_SAFE.equals(value)) {
                 mGuessKeep = true;
             } else if (mDebug) {
-                System.out.println("Ignoring unknown " + ATTR_SHRINK_MODE + " " + value);
+                mLogger.verbose("Ignoring unknown %1$s %2$s", ATTR_SHRINK_MODE, value);
             }
             if (mDebug) {
-                System.out.println("Setting shrink mode to " + value);
+                mLogger.verbose("Setting shrink mode to %1$s", value);
             }
         }
     }
@@ -1988,13 +2084,13 @@ public class ResourceUsageAnalyzer {
         Resource resource = getResource(url.type, url.name);
         if (resource != null) {
             if (mDebug) {
-                System.out.println("Marking " + resource + " used because it "
-                        + "matches keep attribute " + value);
+                mLogger.verbose("Marking %1$s used because it matches keep attribute %2$s",
+                        resource, value);
             }
             markReachable(resource);
         } else if (url.name.contains("*") || url.name.contains("?")) {
             // Look for globbing patterns
-            String regexp = DefaultConfiguration.globToRegexp(getFieldName(url.name));
+            String regexp = globToRegexp(getFieldName(url.name));
             try {
                 Pattern pattern = Pattern.compile(regexp);
                 Map<String, Resource> nameMap = mTypeToName.get(url.type);
@@ -2002,8 +2098,8 @@ public class ResourceUsageAnalyzer {
                     for (Resource r : nameMap.values()) {
                         if (pattern.matcher(r.name).matches()) {
                             if (mDebug) {
-                                System.out.println("Marking " + r + " used because it "
-                                        + "matches keep globbing pattern " + url.name);
+                                mLogger.verbose("Marking %1$s used because it matches keep "
+                                        + "globbing pattern %2$s", r, url.name);
                             }
 
                             markReachable(r);
@@ -2012,8 +2108,8 @@ public class ResourceUsageAnalyzer {
                 }
             } catch (PatternSyntaxException ignored) {
                 if (mDebug) {
-                    System.out.println("Could not compute keep globbing pattern for " +
-                            url.name + ": tried regexp " + regexp + "(" + ignored + ")");
+                    mLogger.verbose("Could not compute keep globbing pattern for %1$s: "
+                            + "tried regexp %2$s(%3$s)", url.name, regexp, ignored);
                 }
             }
         }
@@ -2036,13 +2132,13 @@ public class ResourceUsageAnalyzer {
         Resource resource = getResource(url.type, url.name);
         if (resource != null) {
             if (mDebug) {
-                System.out.println("Marking " + resource + " used because it "
-                        + "matches remove attribute " + value);
+                mLogger.verbose("Marking %1$s used because it matches remove attribute %2$s",
+                        resource, value);
             }
             markUnreachable(resource);
         } else if (url.name.contains("*") || url.name.contains("?")) {
             // Look for globbing patterns
-            String regexp = DefaultConfiguration.globToRegexp(getFieldName(url.name));
+            String regexp = globToRegexp(getFieldName(url.name));
             try {
                 Pattern pattern = Pattern.compile(regexp);
                 Map<String, Resource> nameMap = mTypeToName.get(url.type);
@@ -2050,8 +2146,8 @@ public class ResourceUsageAnalyzer {
                     for (Resource r : nameMap.values()) {
                         if (pattern.matcher(r.name).matches()) {
                             if (mDebug) {
-                                System.out.println("Marking " + r + " used because it "
-                                        + "matches remove globbing pattern " + url.name);
+                                mLogger.verbose("Marking %1$s used because it matches remove "
+                                        + "globbing pattern %2$s", r, url.name);
                             }
 
                             markUnreachable(r);
@@ -2060,8 +2156,8 @@ public class ResourceUsageAnalyzer {
                 }
             } catch (PatternSyntaxException ignored) {
                 if (mDebug) {
-                    System.out.println("Could not compute remove globbing pattern for " +
-                            url.name + ": tried regexp " + regexp + "(" + ignored + ")");
+                    mLogger.verbose("Could not compute remove globbing pattern for %1$s: "
+                            + "tried regexp %2$s(%3$s)", url.name, regexp, ignored);
                 }
             }
         }
@@ -2517,16 +2613,16 @@ public class ResourceUsageAnalyzer {
                 Integer value = (Integer) cst;
                 Resource resource = mValueToResource.get(value);
                 if (markReachable(resource) && mDebug) {
-                    System.out.println("Marking " + resource + " reachable: referenced from " +
-                            context + " in " + mJarFile + ":" + mCurrentClass);
+                    mLogger.verbose("Marking %1$s reachable: referenced from %2$s in %3$s:%4$s",
+                            resource, context, mJarFile, mCurrentClass);
                 }
             } else if (cst instanceof int[]) {
                 int[] values = (int[]) cst;
                 for (int value : values) {
                     Resource resource = mValueToResource.get(value);
                     if (markReachable(resource) && mDebug) {
-                        System.out.println("Marking " + resource + " reachable: referenced from " +
-                                context + " in " + mJarFile + ":" + mCurrentClass);
+                        mLogger.verbose("Marking %1$s reachable: referenced from %2$s in %3$s:%4$s",
+                                resource, context, mJarFile, mCurrentClass);
                     }
                 }
             } else if (cst instanceof String) {
@@ -2565,4 +2661,60 @@ public class ResourceUsageAnalyzer {
 
         return sb.toString();
     }
+
+    /** From LintUtils */
+    private static boolean isBitmapFile(@NonNull File file) {
+        String path = file.getPath();
+        // endsWith(name, DOT_PNG) is also true for endsWith(name, DOT_9PNG)
+        return endsWith(path, DOT_PNG)
+                || endsWith(path, DOT_JPG)
+                || endsWith(path, DOT_GIF)
+                || endsWith(path, DOT_JPEG)
+                || endsWith(path, DOT_WEBP);
+    }
+
+    /** From the DefaultConfiguration of lint */
+    private static String globToRegexp(@NonNull String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() * 2);
+        int begin = 0;
+        sb.append('^');
+        for (int i = 0, n = glob.length(); i < n; i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                begin = appendQuoted(sb, glob, begin, i) + 1;
+                if (i < n - 1 && glob.charAt(i + 1) == '*') {
+                    i++;
+                    begin++;
+                }
+                sb.append(".*?");
+            } else if (c == '?') {
+                begin = appendQuoted(sb, glob, begin, i) + 1;
+                sb.append(".?");
+            }
+        }
+        appendQuoted(sb, glob, begin, glob.length());
+        sb.append('$');
+        return sb.toString();
+    }
+
+    private static int appendQuoted(StringBuilder sb, String s, int from, int to) {
+        if (to > from) {
+            boolean isSimple = true;
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '/' && c != ' ') {
+                    isSimple = false;
+                    break;
+                }
+            }
+            if (isSimple) {
+                for (int i = from; i < to; i++) {
+                    sb.append(s.charAt(i));
+                }
+                return to;
+            }
+            sb.append(Pattern.quote(s.substring(from, to)));
+        }
+        return to;
+    }
 }
@@ -20,15 +20,14 @@ import com.android.annotations.NonNull;
 import com.android.annotations.Nullable;
 import com.android.annotations.VisibleForTesting;
 import com.android.utils.XmlUtils;
-import com.google.common.base.Charsets;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
@@ -302,6 +301,9 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
     /**
      * Writes a single blob file to store all that the DataMerger knows about.
      *
+     * The blob is written in the binary format of {@link MergerBlob}, which is much faster to
+     * load than the XML blob of previous versions.
+     *
      * @param blobRootFolder the root folder where blobs are store.
      * @param consumer the merge consumer that was used by the merge.
      *
@@ -318,7 +320,7 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
             builder = mFactory.newDocumentBuilder();
             Document document = builder.newDocument();
 
-            Node rootNode = document.createElement(NODE_MERGER);
+            Element rootNode = document.createElement(NODE_MERGER);
             // add the version code.
             NodeUtils.addAttribute(document, rootNode, null, ATTR_VERSION, MERGE_BLOB_VERSION);
 
@@ -334,19 +336,22 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
             // write merged items
             writeAdditionalData(document, rootNode);
 
-            String content = XmlUtils.toXml(document);
-
             try {
                 createDir(blobRootFolder);
             } catch (IOException ioe) {
                 throw MergingException.wrapException(ioe).withFile(blobRootFolder).build();
             }
-            File file = new File(blobRootFolder, FN_MERGER_XML);
+            File file = new File(blobRootFolder, MergerBlob.FN_MERGER_BIN);
             try {
-                Files.write(content, file, Charsets.UTF_8);
+                MergerBlob.write(rootNode, file);
             } catch (IOException ioe) {
                 throw MergingException.wrapException(ioe).withFile(file).build();
             }
+            // the XML blob of a previous version is now out of date.
+            File xmlFile = new File(blobRootFolder, FN_MERGER_XML);
+            if (xmlFile.isFile()) {
+                xmlFile.delete();
+            }
         } catch (ParserConfigurationException e) {
             throw MergingException.wrapException(e).build();
         }
@@ -365,6 +370,9 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
      * If <code>false</code>, the items are marked as touched, and this can be used to feed a new
      * {@link ResourceRepository} object.
      *
+     * The binary blob is read if it exists and has the current format version, otherwise the XML
+     * blob written by previous versions is read.
+     *
      * @param blobRootFolder the folder containing the blob.
      * @param incrementalState whether to load into an incremental state or a new state.
      * @return true if the blob was loaded.
@@ -374,6 +382,18 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
      */
     public boolean loadFromBlob(@NonNull File blobRootFolder, boolean incrementalState)
             throws MergingException {
+        File binaryFile = new File(blobRootFolder, MergerBlob.FN_MERGER_BIN);
+        try {
+            Document document = MergerBlob.read(binaryFile, mFactory.newDocumentBuilder());
+            if (document != null) {
+                return loadFromDocument(document, incrementalState);
+            }
+        } catch (IOException e) {
+            // unreadable binary blob, try the XML blob.
+        } catch (ParserConfigurationException e) {
+            throw MergingException.wrapException(e).withFile(binaryFile).build();
+        }
+
         File file = new File(blobRootFolder, FN_MERGER_XML);
         if (!file.isFile()) {
             return false;
@@ -381,59 +401,66 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
 
         try {
             Document document = XmlUtils.parseUtfXmlFile(file, true /*namespaceAware*/);
+            return loadFromDocument(document, incrementalState);
+        } catch (SAXParseException e) {
+            throw MergingException.wrapException(e).withFile(file).build();
+        } catch (IOException e) {
+            throw MergingException.wrapException(e).withFile(file).build();
+        } catch (ParserConfigurationException e) {
+            throw MergingException.wrapException(e).withFile(file).build();
+        } catch (SAXException e) {
+            throw MergingException.wrapException(e).withFile(file).build();
+        }
+    }
 
-            // get the root node
-            Node rootNode = document.getDocumentElement();
-            if (rootNode == null || !NODE_MERGER.equals(rootNode.getLocalName())) {
-                return false;
-            }
-
-            // get the version code.
-            String version = null;
-            Attr versionAttr = (Attr) rootNode.getAttributes().getNamedItem(ATTR_VERSION);
-            if (versionAttr != null) {
-                version = versionAttr.getValue();
-            }
-            if (!MERGE_BLOB_VERSION.equals(version)) {
-                return false;
-            }
+    /**
+     * Loads the merger state from the tree of a blob, binary or XML.
+     */
+    private boolean loadFromDocument(@NonNull Document document, boolean incrementalState)
+            throws MergingException {
+        // get the root node
+        Node rootNode = document.getDocumentElement();
+        if (rootNode == null || !NODE_MERGER.equals(rootNode.getLocalName())) {
+            return false;
+        }
 
-            NodeList nodes = rootNode.getChildNodes();
+        // get the version code.
+        String version = null;
+        Attr versionAttr = (Attr) rootNode.getAttributes().getNamedItem(ATTR_VERSION);
+        if (versionAttr != null) {
+            version = versionAttr.getValue();
+        }
+        if (!MERGE_BLOB_VERSION.equals(version)) {
+            return false;
+        }
 
-            for (int i = 0, n = nodes.getLength(); i < n; i++) {
-                Node node = nodes.item(i);
+        NodeList nodes = rootNode.getChildNodes();
 
-                if (node.getNodeType() != Node.ELEMENT_NODE) {
-                    continue;
-                }
+        for (int i = 0, n = nodes.getLength(); i < n; i++) {
+            Node node = nodes.item(i);
 
-                if (NODE_DATA_SET.equals(node.getLocalName())) {
-                    S dataSet = createFromXml(node);
-                    if (dataSet != null) {
-                        addDataSet(dataSet);
-                    }
-                } else if (incrementalState
-                        && getAdditionalDataTagName().equals(node.getLocalName())) {
-                    loadAdditionalData(node, incrementalState);
-                }
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
             }
 
-            if (incrementalState) {
-                setPostBlobLoadStateToWritten();
-            } else {
-                setPostBlobLoadStateToTouched();
+            if (NODE_DATA_SET.equals(node.getLocalName())) {
+                S dataSet = createFromXml(node);
+                if (dataSet != null) {
+                    addDataSet(dataSet);
+                }
+            } else if (incrementalState
+                    && getAdditionalDataTagName().equals(node.getLocalName())) {
+                loadAdditionalData(node, incrementalState);
             }
+        }
 
-            return true;
-        } catch (SAXParseException e) {
-            throw MergingException.wrapException(e).withFile(file).build();
-        } catch (IOException e) {
-            throw MergingException.wrapException(e).withFile(file).build();
-        } catch (ParserConfigurationException e) {
-            throw MergingException.wrapException(e).withFile(file).build();
-        } catch (SAXException e) {
-            throw MergingException.wrapException(e).withFile(file).build();
+        if (incrementalState) {
+            setPostBlobLoadStateToWritten();
+        } else {
+            setPostBlobLoadStateToTouched();
         }
+
+        return true;
     }
 
     @NonNull
@@ -453,7 +480,11 @@ abstract class DataMerger<I extends DataItem<F>, F extends DataFile<I>, S extend
     }
 
     public void cleanBlob(@NonNull File blobRootFolder) {
-        File file = new File(blobRootFolder, FN_MERGER_XML);
+        File file = new File(blobRootFolder, MergerBlob.FN_MERGER_BIN);
+        if (file.isFile()) {
+            file.delete();
+        }
+        file = new File(blobRootFolder, FN_MERGER_XML);
         if (file.isFile()) {
             file.delete();
         }
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.ide.common.res2;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.Nullable;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+
+/**
+ * Binary form of the merger blob written by {@link DataMerger#writeBlobTo(File, MergeConsumer)}.
+ *
+ * The blob holds the same tree of nodes as {@code merger.xml}, so it is read back into a
+ * {@link Document} and loaded by the same code, but reading it does not involve any XML parsing:
+ * every name and value is stored once in a string table, and the nodes are records made of
+ * indices into that table.
+ *
+ * <pre>
+ * int      magic
+ * int      format version
+ * int      length of the string table, in bytes
+ * varint   string count, then for each string: varint length, UTF-8 bytes
+ * int      length of the node records, in bytes
+ * record   root element
+ *
+ * element: byte ELEMENT, varint namespace, varint name, varint attribute count,
+ *          for each attribute: varint namespace, varint name, varint value,
+ *          varint child count, child records
+ * text:    byte TEXT or CDATA, varint value
+ * </pre>
+ * String indices start at 1, 0 is the null string (no namespace).
+ *
+ * Comments are not stored, the XML blob is also loaded without them.
+ */
+final class MergerBlob {
+
+    static final String FN_MERGER_BIN = "merger.bin";
+
+    private static final int MAGIC = 0x4D424C42; // MBLB
+    /**
+     * Version of the layout above. A blob with another version is ignored and the merger falls
+     * back to the XML blob, or a full merge.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String XMLNS = "xmlns";
+    private static final String XMLNS_PREFIX = "xmlns:";
+
+    private static final byte ELEMENT = 1;
+    private static final byte TEXT = 2;
+    private static final byte CDATA = 3;
+
+    private MergerBlob() {
+        // This class is uninstantiable.
+    }
+
+    /**
+     * Writes the tree of the given element to a file.
+     */
+    static void write(@NonNull Element root, @NonNull File file) throws IOException {
+        // collect the strings first, the table is written before the nodes.
+        Map<String, Integer> strings = Maps.newLinkedHashMap();
+        collectStrings(root, strings);
+
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream(tableBytes);
+        writeVarInt(table, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(Charsets.UTF_8);
+            writeVarInt(table, bytes.length);
+            table.write(bytes);
+        }
+
+        ByteArrayOutputStream nodeBytes = new ByteArrayOutputStream();
+        writeNode(new DataOutputStream(nodeBytes), root, strings);
+
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(tableBytes.size());
+            tableBytes.writeTo(out);
+            out.writeInt(nodeBytes.size());
+            nodeBytes.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a blob written by {@link #write(Element, File)}.
+     *
+     * @return the document holding the tree of the blob, or null if the file does not exist, is
+     * not a binary blob, was written with another format version or is corrupted.
+     * @throws IOException if the file can not be read, or is truncated
+     */
+    @Nullable
+    static Document read(@NonNull File file, @NonNull DocumentBuilder builder)
+            throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            // each section is read at once, then decoded from memory.
+            long fileLength = file.length();
+            Section table = Section.read(in, fileLength);
+            int stringCount = table.readVarInt();
+            // each string takes at least one byte
+            if (stringCount < 0 || stringCount > table.remaining()) {
+                throw new IOException("Corrupted string count " + stringCount);
+            }
+            String[] strings = new String[stringCount + 1];
+            for (int i = 1; i < strings.length; i++) {
+                strings[i] = table.readString(table.readVarInt());
+            }
+
+            Section nodes = Section.read(in, fileLength);
+            Document document = builder.newDocument();
+            if (nodes.readByte() != ELEMENT) {
+                return null;
+            }
+            document.appendChild(readElement(nodes, document, strings));
+            return document;
+        } catch (RuntimeException e) {
+            // corrupted blob: an index or a length out of bounds, a null or invalid name. The
+            // merger then falls back to the XML blob, or a full merge.
+            return null;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void collectStrings(@NonNull Node node, @NonNull Map<String, Integer> strings) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                addString(node.getNamespaceURI(), strings);
+                addString(node.getNodeName(), strings);
+                NamedNodeMap attributes = node.getAttributes();
+                for (int i = 0, n = attributes.getLength(); i < n; i++) {
+                    Node attribute = attributes.item(i);
+                    addString(attribute.getNamespaceURI(), strings);
+                    addString(attribute.getNodeName(), strings);
+                    addString(attribute.getNodeValue(), strings);
+                }
+                for (Node child = node.getFirstChild(); child != null;
+                        child = child.getNextSibling()) {
+                    collectStrings(child, strings);
+                }
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                addString(node.getNodeValue(), strings);
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                addString(node.getTextContent(), strings);
+                break;
+            default:
+                // comments and processing instructions are not stored.
+                break;
+        }
+    }
+
+    private static void addString(@Nullable String string, @NonNull Map<String, Integer> strings) {
+        if (string != null && !strings.containsKey(string)) {
+            strings.put(string, strings.size() + 1);
+        }
+    }
+
+    private static int indexOf(@Nullable String string, @NonNull Map<String, Integer> strings) {
+        return string == null ? 0 : strings.get(string);
+    }
+
+    private static void writeNode(@NonNull DataOutputStream out, @NonNull Node node,
+            @NonNull Map<String, Integer> strings) throws IOException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                out.writeByte(ELEMENT);
+                writeVarInt(out, indexOf(node.getNamespaceURI(), strings));
+                writeVarInt(out, indexOf(node.getNodeName(), strings));
+                NamedNodeMap attributes = node.getAttributes();
+                writeVarInt(out, attributes.getLength());
+                for (int i = 0, n = attributes.getLength(); i < n; i++) {
+                    Node attribute = attributes.item(i);
+                    writeVarInt(out, indexOf(attribute.getNamespaceURI(), strings));
+                    writeVarInt(out, indexOf(attribute.getNodeName(), strings));
+                    writeVarInt(out, indexOf(attribute.getNodeValue(), strings));
+                }
+                List<Node> children = Lists.newArrayList();
+                for (Node child = node.getFirstChild(); child != null;
+                        child = child.getNextSibling()) {
+                    if (isStored(child)) {
+                        children.add(child);
+                    }
+                }
+                writeVarInt(out, children.size());
+                for (Node child : children) {
+                    writeNode(out, child, strings);
+                }
+                break;
+            case Node.TEXT_NODE:
+                out.writeByte(TEXT);
+                writeVarInt(out, indexOf(node.getNodeValue(), strings));
+                break;
+            case Node.CDATA_SECTION_NODE:
+                out.writeByte(CDATA);
+                writeVarInt(out, indexOf(node.getNodeValue(), strings));
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                // stored expanded, like the parser of the XML blob does.
+                out.writeByte(TEXT);
+                writeVarInt(out, indexOf(node.getTextContent(), strings));
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private static boolean isStored(@NonNull Node node) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+            case Node.ENTITY_REFERENCE_NODE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @NonNull
+    private static Element readElement(@NonNull Section in, @NonNull Document document,
+            @NonNull String[] strings) throws IOException {
+        // create namespace aware nodes, like the parser of the XML blob. Nodes copied into the
+        // blob with DOM level 1 methods can have a prefix but no namespace, they are created
+        // the same way.
+        String elementNamespace = strings[in.readVarInt()];
+        String elementName = strings[in.readVarInt()];
+        Element element;
+        if (elementNamespace == null && elementName.indexOf(':') != -1) {
+            element = document.createElement(elementName);
+        } else {
+            element = document.createElementNS(elementNamespace, elementName);
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            String namespace = strings[in.readVarInt()];
+            String name = strings[in.readVarInt()];
+            String value = strings[in.readVarInt()];
+            if (namespace == null && (name.equals(XMLNS) || name.startsWith(XMLNS_PREFIX))) {
+                namespace = XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+            }
+            if (namespace == null && name.indexOf(':') != -1) {
+                element.setAttribute(name, value);
+            } else {
+                Attr attr = document.createAttributeNS(namespace, name);
+                attr.setValue(value);
+                element.setAttributeNodeNS(attr);
+            }
+        }
+        for (int i = in.readVarInt(); i > 0; i--) {
+            byte type = in.readByte();
+            switch (type) {
+                case ELEMENT:
+                    element.appendChild(readElement(in, document, strings));
+                    break;
+                case TEXT:
+                    element.appendChild(document.createTextNode(strings[in.readVarInt()]));
+                    break;
+                case CDATA:
+                    element.appendChild(document.createCDATASection(strings[in.readVarInt()]));
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type);
+            }
+        }
+        return element;
+    }
+
+    private static void writeVarInt(@NonNull DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * A length-prefixed section of the blob, held in memory.
+     */
+    private static final class Section {
+        private final byte[] mData;
+        private int mPosition;
+
+        private Section(@NonNull byte[] data) {
+            mData = data;
+        }
+
+        /**
+         * @param fileLength length of the blob, a longer section is corrupted
+         */
+        @NonNull
+        static Section read(@NonNull DataInputStream in, long fileLength) throws IOException {
+            int length = in.readInt();
+            if (length < 0 || length > fileLength) {
+                throw new IOException("Corrupted section length " + length);
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            return new Section(data);
+        }
+
+        int remaining() {
+            return mData.length - mPosition;
+        }
+
+        byte readByte() {
+            return mData[mPosition++];
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = mData[mPosition++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        @NonNull
+        String readString(int length) {
+            String string = new String(mData, mPosition, length, Charsets.UTF_8);
+            mPosition += length;
+            return string;
+        }
+    }
+}
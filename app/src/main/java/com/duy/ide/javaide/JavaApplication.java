@@ -23,7 +23,9 @@ import android.support.v7.app.AppCompatDelegate;
 import android.util.Log;
 
 import com.duy.ide.javaide.setting.IdePreferenceManager;
+import com.sun.tools.javac.file.ZipFileIndexCache;
 
+import java.io.File;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -33,6 +35,8 @@ import java.util.ArrayList;
  */
 
 public class JavaApplication extends MultiDexApplication {
+    private static final String INDEX_DIR = "javac-index";
+
     private ArrayList<PrintStream> out = new ArrayList<>();
     private ArrayList<PrintStream> err = new ArrayList<>();
 
@@ -51,6 +55,10 @@ public class JavaApplication extends MultiDexApplication {
         AppCompatDelegate.setCompatVectorFromResourcesEnabled(true);
 
         IdePreferenceManager.setDefaultValues(this);
+
+        // the indexes of android.jar and of the libraries are read from this folder by the
+        // parser, the formatter and the compiler, instead of scanning the jars again
+        ZipFileIndexCache.getSharedInstance().setIndexDir(new File(getFilesDir(), INDEX_DIR));
     }
 
     public void addStdOut(PrintStream out) {
@@ -53,6 +53,8 @@ import com.duy.ide.editor.IEditorDelegate;
 import com.duy.ide.javaide.diagnostic.parser.aapt.AaptOutputParser;
 import com.duy.ide.javaide.diagnostic.parser.java.JavaOutputParser;
 import com.duy.ide.javaide.editor.autocomplete.JavaAutoCompleteProvider;
+import com.duy.ide.javaide.editor.decompile.OpenLibraryClassAction;
+import com.duy.ide.javaide.editor.format.FormatProjectAction;
 import com.duy.ide.javaide.editor.format.JavaIdeCodeFormatProvider;
 import com.duy.ide.javaide.menu.JavaMenuManager;
 import com.duy.ide.javaide.run.action.BuildJarAction;
@@ -85,6 +87,7 @@ public class JavaIdeActivity extends ProjectManagerActivity implements DialogRun
     private static final int RC_REVIEW_LAYOUT = 741;
     private static final int RC_CHANGE_THEME = 350;
     private static final int RC_BUILD_JAR = 799;
+    private static final int RC_FORMAT_PROJECT = 512;
     private InAppPurchaseHelper mInAppPurchaseHelper;
     private ProgressBar mCompileProgress;
     private SuggestionProvider mAutoCompleteProvider;
@@ -243,6 +246,12 @@ public class JavaIdeActivity extends ProjectManagerActivity implements DialogRun
             case R.id.action_run_jar:
                 runJar();
                 break;
+            case R.id.action_format_project:
+                saveAll(RC_FORMAT_PROJECT);
+                break;
+            case R.id.action_open_library_class:
+                new OpenLibraryClassAction(mProject).execute(this);
+                break;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -281,6 +290,11 @@ public class JavaIdeActivity extends ProjectManagerActivity implements DialogRun
                     new BuildJarAction(mProject).execute(this);
                 }
                 break;
+            case RC_FORMAT_PROJECT:
+                if (mProject != null) {
+                    new FormatProjectAction(mProject).execute(this);
+                }
+                break;
         }
     }
 
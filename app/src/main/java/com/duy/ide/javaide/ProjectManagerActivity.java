@@ -53,6 +53,7 @@ import com.duy.ide.javaide.utils.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Created by Duy on 09-Mar-17.
@@ -136,6 +137,26 @@ public abstract class ProjectManagerActivity extends IdeActivity
         }
     }
 
+    /**
+     * Opens again the tabs of files changed on disk, they must not have unsaved changes
+     */
+    public void reloadFiles(List<File> files) {
+        for (File file : files) {
+            Pair<Integer, IEditorDelegate> position = mTabManager.getEditorDelegate(file);
+            if (position != null) {
+                mTabManager.closeTab(position.first);
+                openFile(file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Opens a file which is not in the project, like the decompiled source of a library class
+     */
+    public void openExternalFile(File file) {
+        openFile(file.getPath());
+    }
+
     /**
      * @return current file selected
      */
@@ -83,8 +83,12 @@ public class JavaParser {
     }
 
 
+    /**
+     * @param src the content of the file, read by the scanner without a copy. It must not be
+     *            modified during the parse
+     */
     @Nullable
-    public JCCompilationUnit parse(final String src) {
+    public JCCompilationUnit parse(final CharSequence src) {
         if (!canParse) return null;
         long time = System.currentTimeMillis();
 
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.ide.javaide.editor.decompile;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import org.jetbrains.java.decompiler.main.decompiler.BaseDecompiler;
+import org.jetbrains.java.decompiler.main.decompiler.PrintStreamLogger;
+import org.jetbrains.java.decompiler.main.extern.IBytecodeProvider;
+import org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
+import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
+import org.jetbrains.java.decompiler.main.extern.IResultSaver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Decompiles single classes of the libraries, to show their source.
+ * <p>
+ * Only the requested class and its inner classes are read from the jar and decompiled. The source
+ * is cached in a folder named by the hash of the jar, the next requests of the same class are
+ * served from the disk until the jar changes. The decompilation of each method is limited in time,
+ * a method taking longer is written as a listing of its bytecode instead of blocking the whole
+ * class.
+ */
+public class LibraryClassDecompiler {
+    private static final String CLASS_EXTENSION = ".class";
+    private static final String JAVA_EXTENSION = ".java";
+    /**
+     * Version of the decompiled sources, the sources cached by an older version are decompiled
+     * again
+     */
+    private static final int CACHE_VERSION = 2;
+    private static final int DEFAULT_MAX_METHOD_SECONDS = 10;
+
+    @NonNull
+    private final File mCacheDir;
+    @Nullable
+    private final PrintStream mLog;
+    private int mMaxMethodSeconds = DEFAULT_MAX_METHOD_SECONDS;
+
+    /**
+     * Path, size and date of the jars mapped to their hash, a jar is hashed again only when it
+     * changed
+     */
+    private final Map<String, String> mJarHashes = new HashMap<>();
+
+    /**
+     * @param cacheDir folder of the decompiled sources
+     * @param log      stream of the decompiler warnings, may be null
+     */
+    public LibraryClassDecompiler(@NonNull File cacheDir, @Nullable PrintStream log) {
+        mCacheDir = cacheDir;
+        mLog = log;
+    }
+
+    /**
+     * @param seconds time limit of the decompilation of one method, 0 for no limit
+     */
+    public void setMaxMethodSeconds(int seconds) {
+        mMaxMethodSeconds = seconds;
+    }
+
+    /**
+     * Finds a class in the jars and decompiles it, or reads it from the cache.
+     *
+     * @param className name of the class, like {@code java.util.Map} or
+     *                  {@code java.util.Map$Entry}. The top level class is decompiled for a
+     *                  nested class.
+     * @param jars      jars searched in their order
+     * @return the source file of the top level class, null if no jar contains the class
+     */
+    @Nullable
+    public File decompile(@NonNull String className, @NonNull List<File> jars) throws IOException {
+        for (File jar : jars) {
+            if (!jar.isFile()) {
+                continue;
+            }
+            String rootClass = findRootClass(jar, className);
+            if (rootClass != null) {
+                return decompile(jar, rootClass);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param rootClass internal name of a top level class of the jar, like {@code java/util/Map}
+     */
+    @NonNull
+    public File decompile(@NonNull File jar, @NonNull String rootClass) throws IOException {
+        File sourceFile = new File(getCacheDir(jar), rootClass + JAVA_EXTENSION);
+        if (sourceFile.isFile()) {
+            return sourceFile;
+        }
+
+        String content = decompileClass(jar, rootClass);
+        File tmpFile = new File(sourceFile.getPath() + ".tmp");
+        Files.createParentDirs(tmpFile);
+        Files.write(content, tmpFile, Charsets.UTF_8);
+        if (!tmpFile.renameTo(sourceFile)) {
+            tmpFile.delete();
+            throw new IOException("Cannot write " + sourceFile);
+        }
+        return sourceFile;
+    }
+
+    /**
+     * @return the internal name of the top level class declaring the class, null if it is not in
+     * the jar
+     */
+    @Nullable
+    private static String findRootClass(File jar, String className) throws IOException {
+        String name = className.replace('.', '/');
+        int nested = name.indexOf('$');
+        if (nested > 0) {
+            name = name.substring(0, nested);
+        }
+
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            // a.b.C.D is the nested class D of a.b.C, or the class D of the package a.b.C
+            while (true) {
+                if (zipFile.getEntry(name + CLASS_EXTENSION) != null) {
+                    return name;
+                }
+                int lastSlash = name.lastIndexOf('/');
+                if (lastSlash < 0) {
+                    return null;
+                }
+                name = name.substring(0, lastSlash);
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private File getCacheDir(File jar) throws IOException {
+        String stamp = jar.getAbsolutePath() + " " + jar.length() + " " + jar.lastModified();
+        String hash;
+        synchronized (mJarHashes) {
+            hash = mJarHashes.get(stamp);
+        }
+        if (hash == null) {
+            hash = Files.hash(jar, Hashing.sha1()).toString();
+            synchronized (mJarHashes) {
+                mJarHashes.put(stamp, hash);
+            }
+        }
+        return new File(mCacheDir, CACHE_VERSION + "-" + hash);
+    }
+
+    /**
+     * The class files are given to the decompiler as files inside the jar path, their content is
+     * read from the jar in memory.
+     */
+    private String decompileClass(File jar, String rootClass) throws IOException {
+        final Map<String, byte[]> classes = new HashMap<>();
+        File root = jar.getAbsoluteFile();
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (name.equals(rootClass + CLASS_EXTENSION)
+                        || name.startsWith(rootClass + "$") && name.endsWith(CLASS_EXTENSION)) {
+                    InputStream input = zipFile.getInputStream(entry);
+                    try {
+                        classes.put(new File(root, name).getAbsolutePath(),
+                                ByteStreams.toByteArray(input));
+                    } finally {
+                        input.close();
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+
+        IBytecodeProvider provider = new IBytecodeProvider() {
+            @Override
+            public byte[] getBytecode(String externalPath, String internalPath)
+                    throws IOException {
+                byte[] bytes = classes.get(externalPath);
+                if (bytes == null) {
+                    throw new IOException("Not a decompiled class " + externalPath);
+                }
+                return bytes;
+            }
+        };
+        ClassSaver saver = new ClassSaver(rootClass);
+        BaseDecompiler decompiler =
+                new BaseDecompiler(provider, saver, getOptions(jar), getLogger());
+        for (String path : classes.keySet()) {
+            decompiler.addSource(new File(path));
+        }
+        decompiler.decompileContext();
+
+        if (saver.mContent == null) {
+            throw new IOException("Cannot decompile " + rootClass.replace('/', '.'));
+        }
+        return saver.mContent;
+    }
+
+    private Map<String, Object> getOptions(File jar) {
+        Map<String, Object> options = new HashMap<>();
+        options.put(IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1");
+        options.put(IFernflowerPreferences.REMOVE_SYNTHETIC, "1");
+        options.put(IFernflowerPreferences.NEW_LINE_SEPARATOR, "1");
+        options.put(IFernflowerPreferences.INDENT_STRING, "    ");
+        options.put(IFernflowerPreferences.LOG_LEVEL, IFernflowerLogger.Severity.WARN.name());
+        options.put(IFernflowerPreferences.MAX_PROCESSING_METHOD,
+                String.valueOf(mMaxMethodSeconds));
+        options.put(IFernflowerPreferences.BANNER,
+                "// Decompiled from " + jar.getName() + "\n\n");
+        return options;
+    }
+
+    private IFernflowerLogger getLogger() {
+        if (mLog != null) {
+            return new PrintStreamLogger(mLog);
+        }
+        return new IFernflowerLogger() {
+            @Override
+            public void writeMessage(String message, Severity severity) {
+            }
+
+            @Override
+            public void writeMessage(String message, Severity severity, Throwable t) {
+            }
+        };
+    }
+
+    /**
+     * Keeps the source of the top level class, the inner classes are written inside of it
+     */
+    private static class ClassSaver implements IResultSaver {
+        private final String mRootClass;
+        private String mContent;
+
+        ClassSaver(String rootClass) {
+            mRootClass = rootClass;
+        }
+
+        @Override
+        public void saveClassFile(String path, String qualifiedName, String entryName,
+                                  String content, int[] mapping) {
+            if (mRootClass.equals(qualifiedName)) {
+                mContent = content;
+            }
+        }
+
+        @Override
+        public void saveFolder(String path) {
+        }
+
+        @Override
+        public void copyFile(String source, String path, String entryName) {
+        }
+
+        @Override
+        public void createArchive(String path, String archiveName, Manifest manifest) {
+        }
+
+        @Override
+        public void saveDirEntry(String path, String archiveName, String entryName) {
+        }
+
+        @Override
+        public void copyEntry(String source, String path, String archiveName, String entry) {
+        }
+
+        @Override
+        public void saveClassEntry(String path, String archiveName, String qualifiedName,
+                                   String entryName, String content) {
+        }
+
+        @Override
+        public void closeArchive(String path, String archiveName) {
+        }
+    }
+}
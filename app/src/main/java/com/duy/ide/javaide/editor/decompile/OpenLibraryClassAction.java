@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.ide.javaide.editor.decompile;
+
+import android.app.ProgressDialog;
+import android.content.DialogInterface;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.app.AlertDialog;
+import android.text.InputType;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import com.duy.android.compiler.env.Environment;
+import com.duy.android.compiler.project.JavaProject;
+import com.duy.common.interfaces.Action;
+import com.duy.ide.R;
+import com.duy.ide.javaide.JavaIdeActivity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asks the name of a class of android.jar or of the project libraries, and opens its decompiled
+ * source in the editor.
+ */
+public class OpenLibraryClassAction implements Action<JavaIdeActivity> {
+    private static final String DIR_DECOMPILED = "decompiled";
+
+    /**
+     * Shared by the activities, it keeps the hashes of the jars
+     */
+    private static LibraryClassDecompiler sDecompiler;
+
+    @Nullable
+    private final JavaProject mProject;
+
+    /**
+     * @param project project whose libraries are searched after android.jar, may be null
+     */
+    public OpenLibraryClassAction(@Nullable JavaProject project) {
+        mProject = project;
+    }
+
+    private static synchronized LibraryClassDecompiler getDecompiler(JavaIdeActivity activity) {
+        if (sDecompiler == null) {
+            File cacheDir = activity.getApplicationContext().getCacheDir();
+            sDecompiler = new LibraryClassDecompiler(new File(cacheDir, DIR_DECOMPILED), null);
+        }
+        return sDecompiler;
+    }
+
+    @Override
+    public void execute(@NonNull final JavaIdeActivity activity) {
+        final EditText editClassName = new EditText(activity);
+        editClassName.setHint(R.string.hint_library_class);
+        editClassName.setInputType(
+                InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
+        editClassName.setSingleLine();
+
+        new AlertDialog.Builder(activity)
+                .setTitle(R.string.open_library_class)
+                .setView(editClassName)
+                .setNegativeButton(android.R.string.cancel, null)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String className = editClassName.getText().toString().trim();
+                        if (!className.isEmpty()) {
+                            open(activity, className);
+                        }
+                    }
+                })
+                .show();
+    }
+
+    private void open(JavaIdeActivity activity, String className) {
+        // the classes of android.jar first, like the compiler
+        List<File> jars = new ArrayList<>();
+        jars.add(Environment.getClasspathFile(activity));
+        if (mProject != null) {
+            jars.addAll(mProject.getJavaLibraries());
+        }
+        new DecompileTask(activity, getDecompiler(activity), className, jars).execute();
+    }
+
+    private static class DecompileTask extends AsyncTask<Void, Void, File> {
+        private final JavaIdeActivity mActivity;
+        private final LibraryClassDecompiler mDecompiler;
+        private final String mClassName;
+        private final List<File> mJars;
+        private ProgressDialog mProgressDialog;
+        private IOException mError;
+
+        DecompileTask(JavaIdeActivity activity, LibraryClassDecompiler decompiler,
+                      String className, List<File> jars) {
+            mActivity = activity;
+            mDecompiler = decompiler;
+            mClassName = className;
+            mJars = jars;
+        }
+
+        @Override
+        protected void onPreExecute() {
+            mProgressDialog = new ProgressDialog(mActivity);
+            mProgressDialog.setMessage(mActivity.getString(R.string.decompiling_class, mClassName));
+            mProgressDialog.setCancelable(false);
+            mProgressDialog.show();
+        }
+
+        @Override
+        protected File doInBackground(Void... params) {
+            try {
+                return mDecompiler.decompile(mClassName, mJars);
+            } catch (IOException e) {
+                mError = e;
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(File sourceFile) {
+            mProgressDialog.dismiss();
+            if (sourceFile != null) {
+                mActivity.openExternalFile(sourceFile);
+            } else if (mError != null) {
+                PrintStream errorOutput = new PrintStream(
+                        mActivity.getDiagnosticPresenter().getErrorOutput());
+                mError.printStackTrace(errorOutput);
+                errorOutput.flush();
+                Toast.makeText(mActivity, mError.getMessage(), Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(mActivity, mActivity.getString(R.string.library_class_not_found,
+                        mClassName), Toast.LENGTH_LONG).show();
+            }
+        }
+    }
+}
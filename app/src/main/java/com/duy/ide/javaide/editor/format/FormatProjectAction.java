@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.ide.javaide.editor.format;
+
+import android.app.ProgressDialog;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+import android.widget.Toast;
+
+import com.duy.android.compiler.project.JavaProject;
+import com.duy.common.interfaces.Action;
+import com.duy.ide.R;
+import com.duy.ide.diagnostic.DiagnosticPresenter;
+import com.duy.ide.javaide.JavaIdeActivity;
+
+import java.io.File;
+import java.io.PrintStream;
+
+/**
+ * Formats all the java files of the project, with the style selected in the settings. The open
+ * files must be saved before, the changed ones are opened again.
+ */
+public class FormatProjectAction implements Action<JavaIdeActivity> {
+    private static final String FN_HASHES = "format/formatted-files.txt";
+
+    private final JavaProject mProject;
+
+    public FormatProjectAction(JavaProject project) {
+        mProject = project;
+    }
+
+    @Override
+    public void execute(@NonNull JavaIdeActivity activity) {
+        ProjectFormatter formatter = new ProjectFormatter(JavaFormatter.getOptions(activity),
+                new File(mProject.getDirBuild(), FN_HASHES));
+        new FormatTask(activity, formatter, mProject).execute();
+    }
+
+    private static class FormatTask extends AsyncTask<Void, Integer, ProjectFormatter.Result> {
+        private final JavaIdeActivity mActivity;
+        private final ProjectFormatter mFormatter;
+        private final JavaProject mProject;
+        private ProgressDialog mProgressDialog;
+
+        FormatTask(JavaIdeActivity activity, ProjectFormatter formatter, JavaProject project) {
+            mActivity = activity;
+            mFormatter = formatter;
+            mProject = project;
+        }
+
+        @Override
+        protected void onPreExecute() {
+            mProgressDialog = new ProgressDialog(mActivity);
+            mProgressDialog.setTitle(R.string.format_project);
+            mProgressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+            mProgressDialog.setCancelable(false);
+            mProgressDialog.show();
+        }
+
+        @Override
+        protected ProjectFormatter.Result doInBackground(Void... params) {
+            try {
+                return mFormatter.format(mProject.getJavaSrcDirs(),
+                        new ProjectFormatter.ProgressListener() {
+                            @Override
+                            public void onProgress(int done, int total, File file) {
+                                publishProgress(done, total);
+                            }
+                        });
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            mProgressDialog.setMax(values[1]);
+            mProgressDialog.setProgress(values[0]);
+        }
+
+        @Override
+        protected void onPostExecute(ProjectFormatter.Result result) {
+            mProgressDialog.dismiss();
+            if (result == null) {
+                return;
+            }
+            mActivity.reloadFiles(result.getChangedFiles());
+            if (!result.getErrors().isEmpty()) {
+                DiagnosticPresenter diagnosticPresenter = mActivity.getDiagnosticPresenter();
+                PrintStream errorOutput = new PrintStream(diagnosticPresenter.getErrorOutput());
+                for (String error : result.getErrors()) {
+                    errorOutput.println(error);
+                }
+                errorOutput.flush();
+                diagnosticPresenter.showPanel();
+            }
+            String message = mActivity.getString(R.string.format_project_result,
+                    result.getChangedFiles().size(), result.getTotal(), result.getSkipped(),
+                    result.getErrors().size());
+            Toast.makeText(mActivity, message, Toast.LENGTH_LONG).show();
+        }
+    }
+}
@@ -36,13 +36,20 @@ public class JavaFormatter implements CodeFormatter {
     @Override
     public CharSequence format(CharSequence input) {
         try {
-            AppSetting setting = new AppSetting(context);
-            JavaFormatterOptions.Builder builder = JavaFormatterOptions.builder();
-            builder.style(setting.getFormatType() == 0
-                    ? JavaFormatterOptions.Style.GOOGLE : JavaFormatterOptions.Style.AOSP);
-            return new Formatter(builder.build()).formatSource(input.toString());
+            return new Formatter(getOptions(context)).formatSource(input.toString());
         } catch (Exception e) {
             return null;
         }
     }
+
+    /**
+     * @return the options of the style selected in the settings
+     */
+    static JavaFormatterOptions getOptions(Context context) {
+        AppSetting setting = new AppSetting(context);
+        JavaFormatterOptions.Builder builder = JavaFormatterOptions.builder();
+        builder.style(setting.getFormatType() == 0
+                ? JavaFormatterOptions.Style.GOOGLE : JavaFormatterOptions.Style.AOSP);
+        return builder.build();
+    }
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.ide.javaide.editor.format;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.duy.android.compiler.project.FileCollection;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.googlejavaformat.java.Formatter;
+import com.google.googlejavaformat.java.FormatterException;
+import com.google.googlejavaformat.java.JavaFormatterOptions;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Formats all the java files of some source folders, in parallel.
+ * <p>
+ * The hash of every file is stored once it is formatted. A file whose content still has this
+ * hash is skipped without being parsed, and a formatted file is written only when its content
+ * changed. The hashes are valid for one set of {@link JavaFormatterOptions}, all the files are
+ * formatted again after a style switch.
+ */
+public class ProjectFormatter {
+    private static final String HEADER = "format-hashes v1 ";
+
+    @NonNull
+    private final JavaFormatterOptions mOptions;
+    @NonNull
+    private final File mHashFile;
+    private final int mThreads;
+
+    /**
+     * Path of the formatted files mapped to the hash of their content
+     */
+    private final Map<String, String> mHashes = new ConcurrentHashMap<>();
+
+    /**
+     * @param hashFile file storing the hashes of the formatted files, may not exist
+     */
+    public ProjectFormatter(@NonNull JavaFormatterOptions options, @NonNull File hashFile) {
+        mOptions = options;
+        mHashFile = hashFile;
+        mThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Formats the java files of the folders, blocks until all of them are processed.
+     *
+     * @param listener notified from the calling thread after each file, may be null
+     */
+    @NonNull
+    public Result format(@NonNull List<File> srcDirs, @Nullable ProgressListener listener)
+            throws InterruptedException {
+        List<File> files = new FileCollection(srcDirs).filter(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(".java");
+            }
+        });
+        readHashes();
+
+        Result result = new Result(files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(mThreads, files.size())));
+        try {
+            CompletionService<FileResult> completionService =
+                    new ExecutorCompletionService<>(executor);
+            Map<Future<FileResult>, File> futures = new HashMap<>();
+            for (File file : files) {
+                futures.put(completionService.submit(new FormatFileCallable(file)), file);
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Future<FileResult> future = completionService.take();
+                FileResult fileResult;
+                try {
+                    fileResult = future.get();
+                } catch (ExecutionException e) {
+                    // syntax error, the file is formatted again next time
+                    File file = futures.get(future);
+                    mHashes.remove(file.getAbsolutePath());
+                    fileResult = new FileResult(file, Status.FAILED, e.getCause().getMessage());
+                }
+                result.add(fileResult);
+                if (listener != null) {
+                    listener.onProgress(i + 1, files.size(), fileResult.file);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // files removed from the project are not kept
+        mHashes.keySet().retainAll(result.mPaths);
+        writeHashes();
+        return result;
+    }
+
+    private String getOptionsKey() {
+        return HEADER + mOptions.indentationMultiplier() + " " + mOptions.maxLineLength();
+    }
+
+    private void readHashes() {
+        mHashes.clear();
+        if (!mHashFile.isFile()) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readLines(mHashFile, Charsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(getOptionsKey())) {
+                return;
+            }
+            for (int i = 1; i < lines.size(); i++) {
+                String line = lines.get(i);
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    mHashes.put(line.substring(separator + 1), line.substring(0, separator));
+                }
+            }
+        } catch (IOException e) {
+            // formats everything again
+            mHashes.clear();
+        }
+    }
+
+    private void writeHashes() {
+        StringBuilder content = new StringBuilder(getOptionsKey()).append('\n');
+        for (Map.Entry<String, String> entry : mHashes.entrySet()) {
+            content.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+        }
+        try {
+            mHashFile.getParentFile().mkdirs();
+            Files.write(content, mHashFile, Charsets.UTF_8);
+        } catch (IOException e) {
+            // only an optimization, the next run formats the files again
+            mHashFile.delete();
+        }
+    }
+
+    private static String hash(String content) {
+        return Hashing.sha1().hashString(content, Charsets.UTF_8).toString();
+    }
+
+    public interface ProgressListener {
+        /**
+         * @param done  number of processed files
+         * @param total number of files
+         * @param file  the last processed file
+         */
+        void onProgress(int done, int total, File file);
+    }
+
+    private static class FileResult {
+        final File file;
+        final Status status;
+        @Nullable
+        final String error;
+
+        FileResult(File file, Status status, @Nullable String error) {
+            this.file = file;
+            this.status = status;
+            this.error = error;
+        }
+    }
+
+    private enum Status {
+        CHANGED, UNCHANGED, SKIPPED, FAILED
+    }
+
+    public static class Result {
+        private final int mTotal;
+        private final Set<String> mPaths;
+        private final List<File> mChangedFiles = new ArrayList<>();
+        private final List<String> mErrors = new ArrayList<>();
+        private int mSkipped;
+
+        Result(int total) {
+            mTotal = total;
+            mPaths = new HashSet<>(total);
+        }
+
+        void add(FileResult fileResult) {
+            mPaths.add(fileResult.file.getAbsolutePath());
+            switch (fileResult.status) {
+                case CHANGED:
+                    mChangedFiles.add(fileResult.file);
+                    break;
+                case SKIPPED:
+                    mSkipped++;
+                    break;
+                case FAILED:
+                    mErrors.add(fileResult.file.getName() + ": " + fileResult.error);
+                    break;
+            }
+        }
+
+        /**
+         * @return number of java files in the source folders
+         */
+        public int getTotal() {
+            return mTotal;
+        }
+
+        /**
+         * @return the files written by the formatter
+         */
+        public List<File> getChangedFiles() {
+            return Collections.unmodifiableList(mChangedFiles);
+        }
+
+        /**
+         * @return number of files not changed since they were formatted, they were not parsed
+         */
+        public int getSkipped() {
+            return mSkipped;
+        }
+
+        /**
+         * @return a message for each file which can not be read, parsed or written
+         */
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(mErrors);
+        }
+    }
+
+    private class FormatFileCallable implements Callable<FileResult> {
+        private final File mFile;
+
+        FormatFileCallable(File file) {
+            mFile = file;
+        }
+
+        @Override
+        public FileResult call() throws IOException, FormatterException {
+            String path = mFile.getAbsolutePath();
+            String input = Files.toString(mFile, Charsets.UTF_8);
+            String inputHash = hash(input);
+            if (inputHash.equals(mHashes.get(path))) {
+                return new FileResult(mFile, Status.SKIPPED, null);
+            }
+            String formatted = new Formatter(mOptions).formatSource(input);
+            Status status = Status.UNCHANGED;
+            String formattedHash = inputHash;
+            if (!formatted.equals(input)) {
+                Files.write(formatted, mFile, Charsets.UTF_8);
+                status = Status.CHANGED;
+                formattedHash = hash(formatted);
+            }
+            mHashes.put(path, formattedHash);
+            return new FileResult(mFile, status, null);
+        }
+    }
+}
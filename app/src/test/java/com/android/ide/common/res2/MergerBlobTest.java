@@ -0,0 +1,204 @@
+package com.android.ide.common.res2;
+
+import com.google.common.io.Files;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * The binary merger blob must read back the tree it was written from, and a blob that is not
+ * readable must be reported as missing or unreadable, never break the merge.
+ */
+public class MergerBlobTest extends TestCase {
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<merger version=\"3\" xmlns:ns1=\"urn:oasis:names:tc:xliff:document:1.2\">\n" +
+            "    <dataSet config=\"main\">\n" +
+            "        <source path=\"/p/res\">\n" +
+            "            <!-- comments are not stored -->\n" +
+            "            <file name=\"icon\" path=\"/p/res/drawable/icon.png\" qualifiers=\"\"" +
+            " type=\"drawable\"/>\n" +
+            "            <file path=\"/p/res/values/values.xml\" qualifiers=\"\">\n" +
+            "                <string name=\"app_name\">App \u00e9\u4e2d</string>\n" +
+            "                <string name=\"hello\">Hello <ns1:g id=\"name\">%s</ns1:g></string>\n" +
+            "                <string name=\"data\"><![CDATA[<b>bold</b>]]></string>\n" +
+            "            </file>\n" +
+            "        </source>\n" +
+            "    </dataSet>\n" +
+            "</merger>\n";
+
+    private File mDir;
+    private DocumentBuilder mBuilder;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDir = Files.createTempDir();
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setIgnoringComments(true);
+        mBuilder = factory.newDocumentBuilder();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDir.delete();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() throws Exception {
+        Document expected = parse(XML);
+        File blob = new File(mDir, MergerBlob.FN_MERGER_BIN);
+        MergerBlob.write(expected.getDocumentElement(), blob);
+
+        Document actual = MergerBlob.read(blob, mBuilder);
+        assertNotNull(actual);
+        assertEquals(dump(expected.getDocumentElement()), dump(actual.getDocumentElement()));
+
+        // the tree read back is written to the same bytes
+        File copy = new File(mDir, "copy.bin");
+        MergerBlob.write(actual.getDocumentElement(), copy);
+        assertTrue(Arrays.equals(Files.toByteArray(blob), Files.toByteArray(copy)));
+    }
+
+    public void testMissingFile() throws Exception {
+        assertNull(MergerBlob.read(new File(mDir, MergerBlob.FN_MERGER_BIN), mBuilder));
+    }
+
+    public void testXmlBlob() throws Exception {
+        File blob = new File(mDir, MergerBlob.FN_MERGER_BIN);
+        Files.write(XML, blob, UTF_8);
+        assertNull(MergerBlob.read(blob, mBuilder));
+    }
+
+    public void testOtherVersion() throws Exception {
+        byte[] bytes = writeBlob();
+        // the format version follows the magic
+        bytes[7]++;
+        assertNull(read(bytes));
+    }
+
+    public void testTruncated() throws Exception {
+        byte[] bytes = writeBlob();
+        for (int length = 8; length < bytes.length; length++) {
+            try {
+                assertNull(read(Arrays.copyOf(bytes, length)));
+            } catch (IOException expected) {
+                // end of file
+            }
+        }
+    }
+
+    public void testCorrupted() throws Exception {
+        byte[] bytes = writeBlob();
+        Random random = new Random(42);
+        // every byte after the header is overwritten once, then random bytes several at a time
+        for (int i = 8; i < bytes.length; i++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[i] = (byte) random.nextInt();
+            readCorrupted(corrupted);
+        }
+        for (int i = 0; i < 2000; i++) {
+            byte[] corrupted = bytes.clone();
+            for (int j = 0; j < 4; j++) {
+                corrupted[8 + random.nextInt(bytes.length - 8)] = (byte) random.nextInt();
+            }
+            readCorrupted(corrupted);
+        }
+    }
+
+    public void testCorruptedSectionLength() throws Exception {
+        byte[] bytes = writeBlob();
+        // the length of the string table follows the version
+        bytes[8] = (byte) 0x7F;
+        try {
+            assertNull(read(bytes));
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("section length"));
+        }
+    }
+
+    private void readCorrupted(byte[] bytes) throws Exception {
+        // a corruption either goes unnoticed, like one in a value, or is reported by a null
+        // document or an IOException, a RuntimeException would break the merge.
+        try {
+            read(bytes);
+        } catch (IOException expected) {
+            // reported
+        }
+    }
+
+    private byte[] writeBlob() throws Exception {
+        File blob = new File(mDir, MergerBlob.FN_MERGER_BIN);
+        MergerBlob.write(parse(XML).getDocumentElement(), blob);
+        return Files.toByteArray(blob);
+    }
+
+    private Document read(byte[] bytes) throws IOException {
+        File blob = new File(mDir, MergerBlob.FN_MERGER_BIN);
+        Files.write(bytes, blob);
+        return MergerBlob.read(blob, mBuilder);
+    }
+
+    private Document parse(String xml) throws Exception {
+        return mBuilder.parse(new ByteArrayInputStream(xml.getBytes(UTF_8)));
+    }
+
+    /**
+     * Returns the tree of the node as text, with the namespaces of the elements and attributes.
+     */
+    private static String dump(Node node) {
+        StringBuilder sb = new StringBuilder();
+        dump(node, sb);
+        return sb.toString();
+    }
+
+    private static void dump(Node node, StringBuilder sb) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                Element element = (Element) node;
+                sb.append('<').append('{').append(element.getNamespaceURI()).append('}')
+                        .append(element.getTagName());
+                for (int i = 0; i < element.getAttributes().getLength(); i++) {
+                    Node attribute = element.getAttributes().item(i);
+                    sb.append(' ').append('{').append(attribute.getNamespaceURI()).append('}')
+                            .append(attribute.getNodeName()).append("=\"")
+                            .append(attribute.getNodeValue()).append('"');
+                }
+                sb.append('>');
+                for (Node child = node.getFirstChild(); child != null;
+                        child = child.getNextSibling()) {
+                    dump(child, sb);
+                }
+                sb.append("</").append(element.getTagName()).append('>');
+                break;
+            case Node.TEXT_NODE:
+                sb.append(node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                sb.append("<![CDATA[").append(node.getNodeValue()).append("]]>");
+                break;
+            default:
+                fail("Unexpected node " + node);
+        }
+    }
+}
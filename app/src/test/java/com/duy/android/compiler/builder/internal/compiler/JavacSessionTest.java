@@ -0,0 +1,105 @@
+package com.duy.android.compiler.builder.internal.compiler;
+
+import com.google.common.io.Files;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * A session compiles the same project several times, the classes of the previous compilation
+ * must not be visible to the next one.
+ */
+public class JavacSessionTest extends TestCase {
+    private static final String A = "package p;\n" +
+            "public class A {\n" +
+            "    enum E { X }\n" +
+            "    private static class N { }\n" +
+            "    private N n = new N();\n" +
+            "    E e = E.X;\n" +
+            "}\n";
+    private static final String B = "package p;\n" +
+            "class B {\n" +
+            "    A.E e = A.E.X;\n" +
+            "}\n";
+
+    private File mDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDir = Files.createTempDir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        JavacSession.release();
+        deleteRecursively(mDir);
+        super.tearDown();
+    }
+
+    public void testCompileTwice() throws IOException {
+        List<File> sources = Arrays.asList(write("p/A.java", A), write("p/B.java", B));
+        JavacSession session = getSession();
+
+        for (int i = 0; i < 2; i++) {
+            ClassFileStore output = new ClassFileStore();
+            StringWriter log = new StringWriter();
+            assertTrue(log.toString(), session.compile(sources, output, new PrintWriter(log)));
+            assertTrue(output.getClasses().containsKey("p/A$E.class"));
+            assertTrue(output.getClasses().containsKey("p/A$N.class"));
+        }
+    }
+
+    public void testChangedSource() throws IOException {
+        File a = write("p/A.java", A);
+        List<File> sources = Arrays.asList(a, write("p/B.java", B));
+        JavacSession session = getSession();
+        StringWriter log = new StringWriter();
+        assertTrue(log.toString(), session.compile(sources, new ClassFileStore(),
+                new PrintWriter(log)));
+
+        // the members of the previous A are gone
+        Files.write(A.replace("enum E { X }", "enum E { Y }"), a, UTF_8);
+        log = new StringWriter();
+        assertFalse(session.compile(sources, new ClassFileStore(), new PrintWriter(log)));
+        assertTrue(log.toString(), log.toString().contains("cannot find symbol"));
+    }
+
+    private JavacSession getSession() {
+        // the fork reads the class files of the running jvm
+        String bootClassPath = System.getProperty("sun.boot.class.path");
+        List<File> jars = new ArrayList<>();
+        for (String path : bootClassPath.split(File.pathSeparator)) {
+            jars.add(new File(path));
+        }
+        List<String> options = Arrays.asList("-bootclasspath", bootClassPath,
+                "-sourcepath", mDir.getPath(), "-source", "1.7", "-target", "1.7");
+        return JavacSession.get(options, jars);
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(mDir, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, UTF_8);
+        return file;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
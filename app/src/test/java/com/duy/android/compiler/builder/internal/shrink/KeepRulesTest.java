@@ -0,0 +1,77 @@
+package com.duy.android.compiler.builder.internal.shrink;
+
+import junit.framework.TestCase;
+
+/**
+ * The class name patterns of the keep rules must keep at least the classes ProGuard keeps.
+ */
+public class KeepRulesTest extends TestCase {
+
+    public void testInnerClass() {
+        KeepRules rules = rules("-keep class com.foo.Outer$Inner");
+        assertTrue(rules.isKept("com.foo.Outer$Inner"));
+        assertFalse(rules.isKept("com.foo.Outer"));
+        assertFalse(rules.isKept("com.foo.OuterXInner"));
+    }
+
+    public void testInnerClassWildcard() {
+        KeepRules rules = rules("-keep class **.R$*");
+        assertTrue(rules.isKept("com.foo.R$layout"));
+        assertFalse(rules.isKept("com.foo.R"));
+        assertFalse(rules.isKept("com.foo.Rx$id"));
+    }
+
+    public void testAaptRules() {
+        KeepRules rules = rules("# view AndroidManifest.xml #generated:12\n" +
+                "-keep class com.foo.MainActivity { <init>(...); }\n" +
+                "\n" +
+                "# view res/layout/main.xml #generated:7\n" +
+                "-keep class com.foo.CustomView$Inner { <init>(...); }\n");
+        assertTrue(rules.isKept("com.foo.MainActivity"));
+        assertTrue(rules.isKept("com.foo.CustomView$Inner"));
+        assertFalse(rules.isKept("com.foo.CustomView"));
+    }
+
+    public void testLoneStar() {
+        KeepRules rules = rules("-keep public class * extends android.app.Activity");
+        assertTrue(rules.isKept("com.foo.MainActivity"));
+        assertTrue(rules.isKept("Main"));
+    }
+
+    public void testStar() {
+        KeepRules rules = rules("-keep class com.foo.*");
+        assertTrue(rules.isKept("com.foo.Bar"));
+        assertTrue(rules.isKept("com.foo.Bar$Inner"));
+        assertFalse(rules.isKept("com.foo.bar.Baz"));
+        assertFalse(rules.isKept("com.fooX.Bar"));
+    }
+
+    public void testDoubleStar() {
+        KeepRules rules = rules("-keep class com.foo.**");
+        assertTrue(rules.isKept("com.foo.Bar"));
+        assertTrue(rules.isKept("com.foo.bar.Baz"));
+        assertFalse(rules.isKept("com.bar.Foo"));
+    }
+
+    public void testQuestionMark() {
+        KeepRules rules = rules("-keep class com.foo.Ba?");
+        assertTrue(rules.isKept("com.foo.Bar"));
+        assertTrue(rules.isKept("com.foo.Ba$"));
+        assertFalse(rules.isKept("com.foo.Ba"));
+        assertFalse(rules.isKept("com.foo.Barr"));
+        assertFalse(rules.isKept("com.foo.Ba.r"));
+    }
+
+    public void testIgnoredRules() {
+        KeepRules rules = rules("-keepnames class com.foo.A\n" +
+                "-keep,allowshrinking class com.foo.B\n" +
+                "-keepclassmembers class com.foo.C { *; }\n");
+        assertTrue(rules.isEmpty());
+    }
+
+    private static KeepRules rules(String content) {
+        KeepRules rules = new KeepRules();
+        rules.parse(content);
+        return rules;
+    }
+}
@@ -0,0 +1,131 @@
+package com.google.googlejavaformat.java;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.googlejavaformat.java.JavacTokens.RawTok;
+import com.google.googlejavaformat.java.javac.parser.Tokens.TokenKind;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+
+import junit.framework.TestCase;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * The lexing of a source resumed after the tokens of the previous source must give the same
+ * tokens as a lexing of the whole source.
+ */
+public class JavacTokensTest extends TestCase {
+    private static final ImmutableSet<TokenKind> STOP_TOKENS = ImmutableSet.of(TokenKind.EOF);
+
+    private static final String SOURCE = "package p;\n" +
+            "\n" +
+            "/** Javadoc {@link A} */\n" +
+            "class A extends B { // line comment\n" +
+            "    /* block */ int a = 0x1F + 12L;\n" +
+            "    char c = '\\u0041', d = '\\n';\n" +
+            "    String s = \"a\\u0062\\\"c\";\n" +
+            "    int \\u0061b = a+-1;\n" +
+            "    double e = 1.5e-3;\n" +
+            "    boolean f = a >>>= 2 != 0;\n" +
+            "}\n";
+
+    /** Text inserted at every position of the source. */
+    private static final String[] INSERTIONS = {
+            " ", "\n", "x", "1", ".", "+", "=", ">", "/", "*", "/*", "*/", "//", "\"", "'",
+            "\\", "\\u", "\\u0041", "\\u002F"
+    };
+
+    public void testUnchangedSource() {
+        List<RawTok> first = lex(SOURCE);
+        List<RawTok> second = lex(SOURCE);
+        assertEquals(dump(first), dump(second));
+        // every token but the last one and the white space ending the source is reused
+        for (int i = 0; i < first.size() - 2; i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+    }
+
+    public void testAppendedText() {
+        List<RawTok> tokens = lex(SOURCE);
+        String source = SOURCE + "class C { }\n";
+        List<RawTok> resumed = lex(source);
+        assertSame(tokens.get(0), resumed.get(0));
+        assertEquals(dump(fullLex(source)), dump(resumed));
+    }
+
+    public void testInsertions() {
+        for (String insertion : INSERTIONS) {
+            for (int i = 0; i <= SOURCE.length(); i++) {
+                assertResumedLexing(SOURCE.substring(0, i) + insertion + SOURCE.substring(i));
+            }
+        }
+    }
+
+    public void testDeletions() {
+        for (int i = 0; i < SOURCE.length(); i++) {
+            assertResumedLexing(SOURCE.substring(0, i) + SOURCE.substring(i + 1));
+            if (i + 2 <= SOURCE.length()) {
+                assertResumedLexing(SOURCE.substring(0, i) + SOURCE.substring(i + 2));
+            }
+        }
+    }
+
+    public void testTruncations() {
+        for (int i = 0; i < SOURCE.length(); i++) {
+            assertResumedLexing(SOURCE.substring(0, i));
+        }
+    }
+
+    /**
+     * Lexes {@link #SOURCE} then the edited source, the lexing of the edited source resumes
+     * after the tokens of the common prefix.
+     */
+    private static void assertResumedLexing(String edited) {
+        lex(SOURCE);
+        List<RawTok> resumed = lex(edited);
+        assertEquals(edited, dump(fullLex(edited)), dump(resumed));
+    }
+
+    /**
+     * Lexes the source from its start, no token of a previous source is reused.
+     */
+    private static List<RawTok> fullLex(String source) {
+        // a source without any common prefix
+        lex(source.startsWith(" ") ? "\n" : " ");
+        return lex(source);
+    }
+
+    private static ImmutableList<RawTok> lex(final String source) {
+        Context context = new Context();
+        // the edited sources have errors, they are not printed
+        context.put(Log.outKey, new PrintWriter(new StringWriter()));
+        new JavacFileManager(context, true, UTF_8);
+        Log.instance(context).useSource(
+                new SimpleJavaFileObject(URI.create("Source.java"), Kind.SOURCE) {
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                        return source;
+                    }
+                });
+        return JavacTokens.getTokens(source, context, STOP_TOKENS);
+    }
+
+    private static String dump(List<RawTok> tokens) {
+        List<String> lines = new ArrayList<>();
+        for (RawTok tok : tokens) {
+            lines.add(tok.kind() + " " + tok.pos() + "-" + tok.endPos() + " " + tok.stringVal());
+        }
+        return lines.toString();
+    }
+}
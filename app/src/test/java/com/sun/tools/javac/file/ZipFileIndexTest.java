@@ -0,0 +1,284 @@
+package com.sun.tools.javac.file;
+
+import com.google.common.io.Files;
+import com.sun.tools.javac.file.RelativePath.RelativeDirectory;
+import com.sun.tools.javac.file.RelativePath.RelativeFile;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+/**
+ * The index file of an archive must list the same entries as the archive, and an index file
+ * that does not match its archive must be ignored and written again.
+ */
+public class ZipFileIndexTest extends TestCase {
+    private static final int INDEX_MAGIC = 0x4A5A4958;
+    private static final int INDEX_VERSION = 2;
+    /** magic, version, archive length, archive time stamp, directory count */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 4;
+    private static final long TIME_STAMP = 1500000000000L;
+
+    private static final byte[] ALPHA = "class Alpha { }".getBytes(UTF_8);
+    private static final byte[] BETA = "stored resource".getBytes(UTF_8);
+
+    private File mDir;
+    private File mJar;
+    private File mIndexDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDir = Files.createTempDir();
+        mJar = new File(mDir, "classes.jar");
+        mIndexDir = new File(mDir, "index");
+        mIndexDir.mkdir();
+        writeJar();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteRecursively(mDir);
+        super.tearDown();
+    }
+
+    public void testIndexFile() throws IOException {
+        newIndex();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                Files.toByteArray(getIndexFile())));
+        assertEquals(INDEX_MAGIC, in.readInt());
+        assertEquals(INDEX_VERSION, in.readInt());
+        assertEquals(mJar.length(), in.readLong());
+        assertEquals(TIME_STAMP, in.readLong());
+
+        // the directories of the archive, then the entries of each directory at its offset
+        int count = in.readInt();
+        List<String> directories = new ArrayList<String>();
+        List<Long> offsets = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[in.readInt()];
+            in.readFully(name);
+            directories.add(new String(name, UTF_8) + " " + in.readInt());
+            offsets.add(in.readLong());
+        }
+        Collections.sort(directories);
+        // p/ holds Alpha.class and q/
+        assertEquals(Arrays.asList("p/ 2", "p/q/ 1"), directories);
+
+        long headerLength = HEADER_LENGTH;
+        for (String directory : Arrays.asList("p/", "p/q/")) {
+            headerLength += 4 + directory.getBytes(UTF_8).length + 4 + 8;
+        }
+        assertEquals(headerLength, (long) Collections.min(offsets));
+        for (long offset : offsets) {
+            assertTrue(offset < getIndexFile().length());
+        }
+    }
+
+    public void testRoundTrip() throws IOException {
+        ZipFileIndex built = newIndex();
+        String expected = dump(built);
+
+        renameAlphaInJar();
+        ZipFileIndex read = newIndex();
+        // the entries come from the index file, not from the changed archive
+        assertEquals(expected, dump(read));
+        assertTrue(Arrays.equals(ALPHA, read.read(new RelativeFile("p/Alpha.class"))));
+        assertTrue(Arrays.equals(BETA, read.read(new RelativeFile("p/q/Beta.txt"))));
+        assertEquals(TIME_STAMP, read.getLastModified(new RelativeFile("p/Alpha.class")));
+    }
+
+    public void testOtherArchive() throws IOException {
+        newIndex();
+        renameAlphaInJar();
+        // the time stamp of the archive changed
+        assertTrue(mJar.setLastModified(TIME_STAMP + 2000));
+        assertRebuilt();
+    }
+
+    public void testCorruptedMagic() throws IOException {
+        corruptIndex(0);
+        assertRebuilt();
+    }
+
+    public void testCorruptedVersion() throws IOException {
+        corruptIndex(7);
+        assertRebuilt();
+    }
+
+    public void testCorruptedLength() throws IOException {
+        corruptIndex(15);
+        assertRebuilt();
+    }
+
+    public void testCorruptedDirectoryOffset() throws IOException {
+        newIndex();
+        byte[] bytes = Files.toByteArray(getIndexFile());
+        // the offset of the entries of the first directory ends its record
+        int nameLength = readInt(bytes, HEADER_LENGTH);
+        int offset = HEADER_LENGTH + 4 + nameLength + 4;
+        for (int i = offset; i < offset + 8; i++) {
+            bytes[i] = (byte) 0x7F;
+        }
+        Files.write(bytes, getIndexFile());
+        renameAlphaInJar();
+        assertRebuilt();
+    }
+
+    public void testTruncated() throws IOException {
+        newIndex();
+        byte[] bytes = Files.toByteArray(getIndexFile());
+        renameAlphaInJar();
+        for (int length = 0; length < HEADER_LENGTH; length++) {
+            Files.write(Arrays.copyOf(bytes, length), getIndexFile());
+            assertRebuilt();
+        }
+    }
+
+    public void testCorruptedEntries() throws IOException {
+        newIndex();
+        byte[] bytes = Files.toByteArray(getIndexFile());
+        Random random = new Random(42);
+        // a corrupted entry can not be detected, it must not break the compiler
+        for (int i = HEADER_LENGTH; i < bytes.length; i++) {
+            byte[] corrupted = bytes.clone();
+            corrupted[i] = (byte) random.nextInt();
+            Files.write(corrupted, getIndexFile());
+            dump(newIndex());
+        }
+    }
+
+    private void corruptIndex(int position) throws IOException {
+        newIndex();
+        byte[] bytes = Files.toByteArray(getIndexFile());
+        bytes[position]++;
+        Files.write(bytes, getIndexFile());
+        renameAlphaInJar();
+    }
+
+    /**
+     * Checks that the archive was indexed again, and that the index file was written again.
+     */
+    private void assertRebuilt() throws IOException {
+        ZipFileIndex index = newIndex();
+        assertTrue(index.contains(new RelativeFile("p/Omega.class")));
+        assertFalse(index.contains(new RelativeFile("p/Alpha.class")));
+        assertTrue(Arrays.equals(ALPHA, index.read(new RelativeFile("p/Omega.class"))));
+
+        byte[] bytes = Files.toByteArray(getIndexFile());
+        assertTrue(bytes.length > HEADER_LENGTH);
+        assertEquals(INDEX_MAGIC, readInt(bytes, 0));
+        ZipFileIndex read = newIndex();
+        assertEquals(dump(index), dump(read));
+    }
+
+    private ZipFileIndex newIndex() throws IOException {
+        return new ZipFileIndex(mJar, null, true, true, mIndexDir.getPath() + File.separator);
+    }
+
+    private File getIndexFile() {
+        File[] files = mIndexDir.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName(), files[0].getName().startsWith(mJar.getName() + "-"));
+        return files[0];
+    }
+
+    private void writeJar() throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(mJar));
+        try {
+            out.putNextEntry(newEntry("p/"));
+            out.closeEntry();
+            out.putNextEntry(newEntry("p/Alpha.class"));
+            out.write(ALPHA);
+            out.closeEntry();
+            out.putNextEntry(newEntry("p/q/"));
+            out.closeEntry();
+
+            ZipEntry stored = newEntry("p/q/Beta.txt");
+            CRC32 crc = new CRC32();
+            crc.update(BETA);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(BETA.length);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(BETA);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        assertTrue(mJar.setLastModified(TIME_STAMP));
+    }
+
+    private static ZipEntry newEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(TIME_STAMP);
+        return entry;
+    }
+
+    /**
+     * Renames p/Alpha.class to p/Omega.class in the archive, without changing its length or
+     * its time stamp: the index file still matches it.
+     */
+    private void renameAlphaInJar() throws IOException {
+        byte[] bytes = Files.toByteArray(mJar);
+        byte[] alpha = "p/Alpha.class".getBytes(UTF_8);
+        byte[] omega = "p/Omega.class".getBytes(UTF_8);
+        int count = 0;
+        for (int i = 0; i + alpha.length <= bytes.length; i++) {
+            if (Arrays.equals(alpha, Arrays.copyOfRange(bytes, i, i + alpha.length))) {
+                System.arraycopy(omega, 0, bytes, i, omega.length);
+                count++;
+            }
+        }
+        // the local header and the central directory
+        assertEquals(2, count);
+        Files.write(bytes, mJar);
+        assertTrue(mJar.setLastModified(TIME_STAMP));
+    }
+
+    /**
+     * Returns the directories of the index and their entries, sorted.
+     */
+    private static String dump(ZipFileIndex index) {
+        List<String> lines = new ArrayList<String>();
+        for (RelativeDirectory directory : index.getAllDirectories()) {
+            List<String> files = new ArrayList<String>(index.getFiles(directory));
+            List<String> directories = new ArrayList<String>(index.getDirectories(directory));
+            Collections.sort(files);
+            Collections.sort(directories);
+            lines.add(directory.getPath() + " files=" + files + " directories=" + directories);
+        }
+        Collections.sort(lines);
+        return lines.toString();
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16)
+                | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.dx.benchmark;
+
+import com.duy.dx.dex.file.DexFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A set of class files given to the benchmarks.
+ * <p>
+ * The built-in corpora are:
+ * <ul>
+ * <li>{@code small}: the dx command line classes, about the size of a small application</li>
+ * <li>{@code library}: all dx classes, a big library</li>
+ * <li>{@code generated}: classes made of huge methods with many locals, like generated
+ * code, see {@link GeneratedClasses}</li>
+ * </ul>
+ * Any other name is read as the path of a jar or a folder of class files.
+ */
+public final class Corpus {
+    public static final String SMALL = "small";
+    public static final String LIBRARY = "library";
+    public static final String GENERATED = "generated";
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    /** package of the benchmarks, compiled with dx but not part of the corpora */
+    private static final String BENCHMARK_PACKAGE = "com/duy/dx/benchmark/";
+
+    /** {@code non-null;} file path (a/b/C.class) of every class file */
+    private final List<String> names;
+
+    /** {@code non-null;} contents of every class file, same order as {@link #names} */
+    private final List<byte[]> contents;
+
+    private Corpus(List<String> names, List<byte[]> contents) {
+        this.names = names;
+        this.contents = contents;
+    }
+
+    /**
+     * Loads a corpus.
+     *
+     * @param name {@code non-null;} name of a built-in corpus, or path of a jar or a folder
+     * @return {@code non-null;} the corpus
+     */
+    public static Corpus load(String name) throws IOException {
+        List<String> names = new ArrayList<String>();
+        List<byte[]> contents = new ArrayList<byte[]>();
+
+        if (GENERATED.equals(name)) {
+            GeneratedClasses.generate(names, contents);
+        } else if (SMALL.equals(name)) {
+            read(dxClasses(), "com/duy/dx/command/", names, contents);
+        } else if (LIBRARY.equals(name)) {
+            read(dxClasses(), "com/duy/dx/", names, contents);
+        } else {
+            read(new File(name), "", names, contents);
+        }
+
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("no class file in corpus " + name);
+        }
+        return new Corpus(Collections.unmodifiableList(names),
+                Collections.unmodifiableList(contents));
+    }
+
+    /**
+     * @return {@code non-null;} the folder or jar the dx classes were loaded from
+     */
+    private static File dxClasses() {
+        try {
+            return new File(DexFile.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void read(File input, String prefix, List<String> names,
+            List<byte[]> contents) throws IOException {
+        if (input.isDirectory()) {
+            readFolder(input, "", prefix, names, contents);
+            return;
+        }
+
+        ZipFile zipFile = new ZipFile(input);
+        try {
+            List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+            // same order as a folder, so that both forms give the same dex file
+            Collections.sort(entries, new Comparator<ZipEntry>() {
+                @Override
+                public int compare(ZipEntry a, ZipEntry b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+            for (ZipEntry entry : entries) {
+                String path = entry.getName();
+                if (isCorpusClass(path, prefix)) {
+                    InputStream in = zipFile.getInputStream(entry);
+                    try {
+                        names.add(path);
+                        contents.add(readFully(in));
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static void readFolder(File folder, String path, String prefix,
+            List<String> names, List<byte[]> contents) throws IOException {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String filePath = path + file.getName();
+            if (file.isDirectory()) {
+                readFolder(file, filePath + "/", prefix, names, contents);
+            } else if (isCorpusClass(filePath, prefix)) {
+                InputStream in = new FileInputStream(file);
+                try {
+                    names.add(filePath);
+                    contents.add(readFully(in));
+                } finally {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    private static boolean isCorpusClass(String path, String prefix) {
+        return path.startsWith(prefix) && path.endsWith(CLASS_EXTENSION)
+                && !path.startsWith(BENCHMARK_PACKAGE);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return number of class files
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @param n index of the class file
+     * @return {@code non-null;} file path (a/b/C.class) of the class file
+     */
+    public String getName(int n) {
+        return names.get(n);
+    }
+
+    /**
+     * @param n index of the class file
+     * @return {@code non-null;} contents of the class file, must not be modified
+     */
+    public byte[] getBytes(int n) {
+        return contents.get(n);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.dx.benchmark;
+
+import com.duy.dx.cf.code.ConcreteMethod;
+import com.duy.dx.cf.code.Ropper;
+import com.duy.dx.cf.direct.DirectClassFile;
+import com.duy.dx.cf.direct.StdAttributeFactory;
+import com.duy.dx.cf.iface.Method;
+import com.duy.dx.cf.iface.MethodList;
+import com.duy.dx.dex.DexOptions;
+import com.duy.dx.dex.cf.CfOptions;
+import com.duy.dx.dex.cf.CfTranslator;
+import com.duy.dx.dex.file.DexFile;
+import com.duy.dx.rop.code.AccessFlags;
+import com.duy.dx.rop.code.DexTranslationAdvice;
+import com.duy.dx.rop.code.RopMethod;
+import com.duy.dx.rop.cst.CstMethodRef;
+import com.duy.dx.ssa.Optimizer;
+import com.duy.dx.ssa.SsaMethod;
+import com.duy.dx.ssa.back.SsaToRop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of the translation of class files to dex, over a whole
+ * {@link Corpus}:
+ * <ul>
+ * <li>{@code parse}: class file parsing, {@link DirectClassFile}</li>
+ * <li>{@code rop}: conversion of the bytecode to rop form, {@link Ropper}</li>
+ * <li>{@code ssa}: conversion to SSA form and the SSA optimizations, up to the
+ * interference graph</li>
+ * <li>{@code alloc}: register allocation and conversion back to rop form,
+ * {@link SsaToRop}</li>
+ * <li>{@code write}: layout and writing of the dex file, {@link DexFile#toDex}</li>
+ * <li>{@code translate}: the whole {@link CfTranslator}, as done by dx with its default
+ * options</li>
+ * </ul>
+ * Each stage is given the output of the previous stages, computed out of the measurement.
+ * The {@code jmh} gradle task runs them with the gc profiler, which reports the allocation
+ * rate of each stage ({@code gc.alloc.rate.norm} is the number of bytes allocated to process
+ * the whole corpus once).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DxStageBenchmark {
+
+    /**
+     * Method of the corpus with its rop form, the input of the rop and ssa stages.
+     */
+    static final class MethodInput {
+        final ConcreteMethod concrete;
+        final MethodList classMethods;
+        final int paramSize;
+        final boolean isStatic;
+        final RopMethod ropMethod;
+
+        MethodInput(ConcreteMethod concrete, MethodList classMethods, int paramSize,
+                boolean isStatic, RopMethod ropMethod) {
+            this.concrete = concrete;
+            this.classMethods = classMethods;
+            this.paramSize = paramSize;
+            this.isStatic = isStatic;
+            this.ropMethod = ropMethod;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        /** name of a built-in corpus or path of a jar, see {@link Corpus} */
+        @Param({Corpus.SMALL, Corpus.LIBRARY, Corpus.GENERATED})
+        public String corpus;
+
+        Corpus classes;
+        final List<MethodInput> methods = new ArrayList<MethodInput>();
+        final CfOptions cfOptions = new CfOptions();
+        final DexOptions dexOptions = new DexOptions();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            classes = Corpus.load(corpus);
+
+            // same options as dx without arguments
+            cfOptions.optimize = true;
+            cfOptions.localInfo = true;
+
+            methods.clear();
+            for (int i = 0; i < classes.size(); i++) {
+                DirectClassFile cf = parse(i);
+                MethodList classMethods = cf.getMethods();
+                for (int m = 0; m < classMethods.size(); m++) {
+                    Method one = classMethods.get(m);
+                    int accessFlags = one.getAccessFlags();
+                    if (AccessFlags.isNative(accessFlags) || AccessFlags.isAbstract(accessFlags)) {
+                        continue;
+                    }
+                    boolean isStatic = AccessFlags.isStatic(accessFlags);
+                    int paramSize = new CstMethodRef(cf.getThisClass(), one.getNat())
+                            .getParameterWordCount(isStatic);
+                    ConcreteMethod concrete = new ConcreteMethod(one, cf, true, true);
+                    RopMethod ropMethod = Ropper.convert(concrete,
+                            DexTranslationAdvice.THE_ONE, classMethods);
+                    methods.add(new MethodInput(concrete, classMethods, paramSize, isStatic,
+                            ropMethod));
+                }
+            }
+        }
+
+        DirectClassFile parse(int n) {
+            DirectClassFile cf = new DirectClassFile(classes.getBytes(n), classes.getName(n),
+                    false);
+            cf.setAttributeFactory(StdAttributeFactory.THE_ONE);
+            // parsing is lazy, this parses the whole file
+            cf.getMagic();
+            cf.getMethods();
+            return cf;
+        }
+
+        SsaMethod toSsa(MethodInput input) {
+            return Optimizer.debugNoRegisterAllocation(input.ropMethod, input.paramSize,
+                    input.isStatic, cfOptions.localInfo, DexTranslationAdvice.THE_ONE,
+                    EnumSet.allOf(Optimizer.OptionalStep.class));
+        }
+
+        DexFile translate() {
+            DexFile dexFile = new DexFile(dexOptions);
+            for (int i = 0; i < classes.size(); i++) {
+                dexFile.add(CfTranslator.translate(parse(i), classes.getBytes(i), cfOptions,
+                        dexOptions, dexFile));
+            }
+            return dexFile;
+        }
+    }
+
+    /**
+     * SSA form of every method. The register allocator modifies it, so it is computed again
+     * before each invocation; an invocation processes the whole corpus, which is long enough
+     * for the setup not to disturb the measurement.
+     */
+    @State(Scope.Thread)
+    public static class SsaState {
+        final List<SsaMethod> methods = new ArrayList<SsaMethod>();
+
+        @Setup(Level.Invocation)
+        public void setUp(CorpusState state) {
+            methods.clear();
+            for (MethodInput input : state.methods) {
+                methods.add(state.toSsa(input));
+            }
+        }
+    }
+
+    /**
+     * Translated classes, not yet written. Writing a dex file assigns the offsets of its
+     * items, so a new one is needed for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class DexState {
+        DexFile dexFile;
+
+        @Setup(Level.Invocation)
+        public void setUp(CorpusState state) {
+            dexFile = state.translate();
+        }
+    }
+
+    @Benchmark
+    public void parse(CorpusState state, Blackhole blackhole) {
+        for (int i = 0; i < state.classes.size(); i++) {
+            DirectClassFile cf = state.parse(i);
+            blackhole.consume(cf.getFields());
+            blackhole.consume(cf.getAttributes());
+        }
+    }
+
+    @Benchmark
+    public void rop(CorpusState state, Blackhole blackhole) {
+        for (MethodInput input : state.methods) {
+            blackhole.consume(Ropper.convert(input.concrete, DexTranslationAdvice.THE_ONE,
+                    input.classMethods));
+        }
+    }
+
+    @Benchmark
+    public void ssa(CorpusState state, Blackhole blackhole) {
+        for (MethodInput input : state.methods) {
+            blackhole.consume(state.toSsa(input));
+        }
+    }
+
+    @Benchmark
+    public void alloc(SsaState ssa, Blackhole blackhole) {
+        for (SsaMethod method : ssa.methods) {
+            blackhole.consume(SsaToRop.convertToRopMethod(method, false));
+        }
+    }
+
+    @Benchmark
+    public byte[] write(DexState dex) throws IOException {
+        return dex.dexFile.toDex(null, false);
+    }
+
+    @Benchmark
+    public DexFile translate(CorpusState state) {
+        return state.translate();
+    }
+}
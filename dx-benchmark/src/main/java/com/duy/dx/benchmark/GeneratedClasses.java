@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.duy.dx.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the class files of the {@code generated} corpus.
+ * <p>
+ * Generated code (parsers, serializers, big switch tables...) is made of few methods with a
+ * lot of straight-line code and locals, which is where the SSA conversion and the register
+ * allocator spend most of their time. Each generated method is
+ * {@code static int mN(int, int)}: it initializes {@link #LOCALS} locals, then loops over a
+ * body of {@link #BLOCKS} arithmetic statements, some of them guarded by a forward branch,
+ * and calls the previous method once per iteration.
+ * <p>
+ * The output is deterministic, so the results of different runs can be compared.
+ */
+final class GeneratedClasses {
+    static final int CLASSES = 16;
+    static final int METHODS_PER_CLASS = 4;
+    static final int LOCALS = 48;
+    static final int BLOCKS = 1500;
+
+    private static final int CLASS_FILE_MAGIC = 0xcafebabe;
+    private static final int CLASS_FILE_VERSION = 50;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ILOAD = 0x15;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ISTORE = 0x36;
+    private static final int BIPUSH = 0x10;
+    private static final int IINC = 0x84;
+    private static final int IFEQ = 0x99;
+    private static final int IFGT = 0x9d;
+    private static final int IRETURN = 0xac;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int[] OPS = {
+            0x60, // iadd
+            0x64, // isub
+            0x68, // imul
+            0x82, // ixor
+            0x7e, // iand
+            0x80, // ior
+    };
+
+    /*
+     * Constant pool layout: the class and method descriptor entries, then three entries
+     * (name, name and type, method ref) per method.
+     */
+    private static final int CP_THIS_NAME = 1;
+    private static final int CP_THIS_CLASS = 2;
+    private static final int CP_SUPER_NAME = 3;
+    private static final int CP_SUPER_CLASS = 4;
+    private static final int CP_DESCRIPTOR = 5;
+    private static final int CP_CODE = 6;
+    private static final int CP_FIRST_METHOD = 7;
+
+    private GeneratedClasses() {
+        // This class is uninstantiable.
+    }
+
+    /**
+     * Adds the generated class files to the given lists.
+     *
+     * @param names {@code non-null;} receives the file path of each class
+     * @param contents {@code non-null;} receives the contents of each class
+     */
+    static void generate(List<String> names, List<byte[]> contents) throws IOException {
+        for (int i = 0; i < CLASSES; i++) {
+            String className = "generated/Gen" + i;
+            names.add(className + ".class");
+            contents.add(generateClass(className));
+        }
+    }
+
+    private static byte[] generateClass(String className) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(CLASS_FILE_MAGIC);
+        out.writeShort(0);
+        out.writeShort(CLASS_FILE_VERSION);
+
+        out.writeShort(CP_FIRST_METHOD + 3 * METHODS_PER_CLASS);
+        writeUtf8(out, className);
+        writeClass(out, CP_THIS_NAME);
+        writeUtf8(out, "java/lang/Object");
+        writeClass(out, CP_SUPER_NAME);
+        writeUtf8(out, "(II)I");
+        writeUtf8(out, "Code");
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            int nameIndex = methodNameIndex(m);
+            writeUtf8(out, "m" + m);
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(CP_DESCRIPTOR);
+            out.writeByte(CONSTANT_METHODREF);
+            out.writeShort(CP_THIS_CLASS);
+            out.writeShort(nameIndex + 1);
+        }
+
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(CP_THIS_CLASS);
+        out.writeShort(CP_SUPER_CLASS);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+
+        out.writeShort(METHODS_PER_CLASS);
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            byte[] code = generateCode(m);
+
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(methodNameIndex(m));
+            out.writeShort(CP_DESCRIPTOR);
+            out.writeShort(1); // attributes
+
+            out.writeShort(CP_CODE);
+            out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+            out.writeShort(2); // max stack
+            out.writeShort(LOCALS);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+
+        out.writeShort(0); // attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int methodNameIndex(int m) {
+        return CP_FIRST_METHOD + 3 * m;
+    }
+
+    /**
+     * Generates the code of method {@code mN}. Locals 0 and 1 are the parameters, local 1
+     * is also the loop counter.
+     */
+    private static byte[] generateCode(int m) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+        for (int local = 2; local < LOCALS; local++) {
+            code.write(BIPUSH);
+            code.write(local);
+            code.write(ISTORE);
+            code.write(local);
+        }
+
+        int loopStart = code.size();
+        int last = 0;
+        for (int block = 0; block < BLOCKS; block++) {
+            int target = 2 + block % (LOCALS - 2);
+            if (block % 4 == 3) {
+                // skip the next statement when the last result is zero
+                code.write(ILOAD);
+                code.write(last);
+                code.write(IFEQ);
+                code.write(0);
+                code.write(3 + 7);
+            }
+            code.write(ILOAD);
+            code.write((block * 7) % LOCALS);
+            code.write(ILOAD);
+            code.write((block * 13 + 5) % LOCALS);
+            code.write(OPS[block % OPS.length]);
+            code.write(ISTORE);
+            code.write(target);
+            last = target;
+
+            if (m > 0 && block == BLOCKS / 2) {
+                code.write(ILOAD);
+                code.write(last);
+                code.write(ILOAD_1);
+                code.write(INVOKESTATIC);
+                int methodRef = methodNameIndex(m - 1) + 2;
+                code.write(methodRef >> 8);
+                code.write(methodRef);
+                code.write(ISTORE);
+                code.write(last);
+            }
+        }
+
+        code.write(IINC);
+        code.write(1);
+        code.write(-1);
+        code.write(ILOAD_1);
+        int branch = code.size();
+        int offset = loopStart - branch;
+        code.write(IFGT);
+        code.write(offset >> 8);
+        code.write(offset);
+
+        code.write(ILOAD);
+        code.write(last);
+        code.write(IRETURN);
+        return code.toByteArray();
+    }
+
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        out.writeByte(CONSTANT_UTF8);
+        out.writeUTF(value);
+    }
+
+    private static void writeClass(DataOutputStream out, int nameIndex) throws IOException {
+        out.writeByte(CONSTANT_CLASS);
+        out.writeShort(nameIndex);
+    }
+}
@@ -22,10 +22,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -47,6 +53,14 @@ public class ClassPathOpener {
      */
     private final boolean sort;
     private FileNameFilter filter;
+    /**
+     * {@code null-ok;} executor used to read (and inflate) path elements
+     * ahead of the consumer, or {@code null} to read them on the calling
+     * thread
+     */
+    private ExecutorService readAheadPool;
+    /** maximum number of path elements read ahead of the consumer */
+    private int readAheadWindow;
 
     /**
      * Callback interface for {@code ClassOpener}.
@@ -132,6 +146,28 @@ public class ClassPathOpener {
         this.filter = filter;
     }
 
+    /**
+     * Enables reading of path elements ahead of the consumer. Files and
+     * archive entries are read and inflated by {@code pool} while the
+     * consumer works on previous ones, but are still handed to the
+     * consumer one at a time on the calling thread and in the same
+     * (possibly sorted) order as without read-ahead. At most
+     * {@code window} elements are kept in memory before the consumer
+     * catches up.
+     *
+     * @param pool {@code null-ok;} executor to read elements on, or
+     * {@code null} to disable read-ahead
+     * @param window {@code >= 1;} maximum number of elements read ahead
+     */
+    public void setReadAhead(ExecutorService pool, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window < 1");
+        }
+
+        this.readAheadPool = pool;
+        this.readAheadWindow = window;
+    }
+
     /**
      * Processes a path element.
      *
@@ -160,9 +196,7 @@ public class ClassPathOpener {
 
             String path = file.getPath();
 
-            if (path.endsWith(".zip") ||
-                    path.endsWith(".jar") ||
-                    path.endsWith(".apk")) {
+            if (isArchive(path)) {
                 return processArchive(file);
             }
             if (filter.accept(path)) {
@@ -177,6 +211,18 @@ public class ClassPathOpener {
         }
     }
 
+    /**
+     * Tells whether the given path names an archive to open.
+     *
+     * @param path {@code non-null;} the path
+     * @return whether it is a {@code .zip}, {@code .jar} or {@code .apk} file
+     */
+    private static boolean isArchive(String path) {
+        return path.endsWith(".zip") ||
+                path.endsWith(".jar") ||
+                path.endsWith(".apk");
+    }
+
     /**
      * Sorts java class names such that outer classes preceed their inner
      * classes and "package-info" preceeds all other classes in its package.
@@ -207,8 +253,10 @@ public class ClassPathOpener {
      * @param topLevel whether this is a top-level directory (that is,
      * specified directly on the commandline)
      * @return whether any processing actually happened
+     * @throws IOException on i/o problem while reading ahead
      */
-    private boolean processDirectory(File dir, boolean topLevel) {
+    private boolean processDirectory(File dir, boolean topLevel)
+            throws IOException {
         if (topLevel) {
             dir = new File(dir, ".");
         }
@@ -225,8 +273,33 @@ public class ClassPathOpener {
             });
         }
 
-        for (int i = 0; i < len; i++) {
-            any |= processOne(files[i], false);
+        if (readAheadPool == null) {
+            for (int i = 0; i < len; i++) {
+                any |= processOne(files[i], false);
+            }
+            return any;
+        }
+
+        ArrayDeque<PendingElement> pending = new ArrayDeque<PendingElement>();
+        try {
+            for (int i = 0; i < len; i++) {
+                File one = files[i];
+                String path = one.getPath();
+
+                if (one.isDirectory() || isArchive(path) || !filter.accept(path)) {
+                    // Keep the original order: everything read ahead so far
+                    // goes to the consumer first.
+                    any |= drain(pending, 0);
+                    any |= processOne(one, false);
+                } else {
+                    any |= drain(pending, readAheadWindow - 1);
+                    pending.add(new PendingElement(path, one.lastModified(),
+                            readAheadPool.submit(new FileReader(one))));
+                }
+            }
+            any |= drain(pending, 0);
+        } finally {
+            cancel(pending);
         }
 
         return any;
@@ -256,36 +329,210 @@ public class ClassPathOpener {
 
         consumer.onProcessArchiveStart(file);
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(40000);
-        byte[] buf = new byte[20000];
         boolean any = false;
 
-        for (ZipEntry one : entriesList) {
-            final boolean isDirectory = one.isDirectory();
+        try {
+            if (readAheadPool == null) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(40000);
+                byte[] buf = new byte[20000];
+
+                for (ZipEntry one : entriesList) {
+                    String path = one.getName();
+                    if (filter.accept(path)) {
+                        final byte[] bytes;
+                        if (!one.isDirectory()) {
+                            InputStream in = zip.getInputStream(one);
+
+                            baos.reset();
+                            int read;
+                            while ((read = in.read(buf)) != -1) {
+                                baos.write(buf, 0, read);
+                            }
+
+                            in.close();
+                            bytes = baos.toByteArray();
+                        } else {
+                            bytes = new byte[0];
+                        }
+
+                        any |= consumer.processFileBytes(path, one.getTime(), bytes);
+                    }
+                }
+            } else {
+                ArrayDeque<PendingElement> pending = new ArrayDeque<PendingElement>();
+                try {
+                    for (ZipEntry one : entriesList) {
+                        String path = one.getName();
+                        if (filter.accept(path)) {
+                            any |= drain(pending, readAheadWindow - 1);
+                            pending.add(new PendingElement(path, one.getTime(),
+                                    readAheadPool.submit(new ZipEntryReader(zip, one))));
+                        }
+                    }
+                    any |= drain(pending, 0);
+                } finally {
+                    // Never close the archive under a running reader.
+                    cancel(pending);
+                }
+            }
+        } finally {
+            zip.close();
+        }
+
+        return any;
+    }
+
+    /**
+     * Hands read-ahead elements to the consumer, in order, until at most
+     * {@code keep} elements are left pending.
+     *
+     * @param pending {@code non-null;} elements being read, in order
+     * @param keep number of elements that may remain pending
+     * @return the OR of the consumer results
+     * @throws IOException if reading one of the elements failed
+     */
+    private boolean drain(ArrayDeque<PendingElement> pending, int keep)
+            throws IOException {
+        boolean any = false;
+
+        while (pending.size() > keep) {
+            PendingElement one = pending.peekFirst();
+            byte[] bytes = one.get();
+            pending.removeFirst();
+            any |= consumer.processFileBytes(one.path, one.lastModified, bytes);
+        }
 
-            String path = one.getName();
-            if (filter.accept(path)) {
-                final byte[] bytes;
-                if (!isDirectory) {
-                    InputStream in = zip.getInputStream(one);
+        return any;
+    }
 
-                    baos.reset();
+    /**
+     * Cancels elements still being read and waits for their readers, so
+     * that the underlying archive can safely be closed.
+     *
+     * @param pending {@code non-null;} elements being read
+     */
+    private static void cancel(ArrayDeque<PendingElement> pending) {
+        for (PendingElement one : pending) {
+            one.future.cancel(false);
+        }
+        for (PendingElement one : pending) {
+            try {
+                one.get();
+            } catch (Exception ex) {
+                // Already reported, or never consumed.
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Element read ahead of the consumer.
+     */
+    private static class PendingElement {
+
+        /** {@code non-null;} name of the element */
+        final String path;
+        /** milliseconds since 1970-Jan-1 00:00:00 GMT */
+        final long lastModified;
+        /** {@code non-null;} the contents, being read */
+        final Future<byte[]> future;
+
+        PendingElement(String path, long lastModified, Future<byte[]> future) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.future = future;
+        }
+
+        /**
+         * Waits for the contents of this element.
+         *
+         * @return {@code non-null;} the contents
+         * @throws IOException if reading failed or was interrupted
+         */
+        byte[] get() throws IOException {
+            try {
+                return future.get();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Cannot read " + path, cause);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + path);
+            } catch (CancellationException ex) {
+                throw new IOException("Cancelled reading " + path);
+            }
+        }
+    }
+
+    /**
+     * Reads a file from the file system.
+     */
+    private static class FileReader implements Callable<byte[]> {
+
+        private final File file;
+
+        FileReader(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            return FileUtils.readFile(file);
+        }
+    }
+
+    /**
+     * Reads and inflates an archive entry. {@link ZipFile} allows several
+     * entries to be read concurrently; inflation then runs in parallel.
+     */
+    private static class ZipEntryReader implements Callable<byte[]> {
+
+        private final ZipFile zip;
+        private final ZipEntry entry;
+
+        ZipEntryReader(ZipFile zip, ZipEntry entry) {
+            this.zip = zip;
+            this.entry = entry;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            if (entry.isDirectory()) {
+                return new byte[0];
+            }
+
+            InputStream in = zip.getInputStream(entry);
+            try {
+                long size = entry.getSize();
+                if (size >= 0 && size <= Integer.MAX_VALUE) {
+                    byte[] bytes = new byte[(int) size];
+                    int off = 0;
                     int read;
-                    while ((read = in.read(buf)) != -1) {
-                        baos.write(buf, 0, read);
+                    while (off < bytes.length
+                            && (read = in.read(bytes, off, bytes.length - off)) != -1) {
+                        off += read;
                     }
-
-                    in.close();
-                    bytes = baos.toByteArray();
-                } else {
-                    bytes = new byte[0];
+                    if (off == bytes.length && in.read() == -1) {
+                        return bytes;
+                    }
+                    throw new IOException("Size mismatch for " + entry.getName());
                 }
 
-                any |= consumer.processFileBytes(path, one.getTime(), bytes);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream(40000);
+                byte[] buf = new byte[20000];
+                int read;
+                while ((read = in.read(buf)) != -1) {
+                    baos.write(buf, 0, read);
+                }
+                return baos.toByteArray();
+            } finally {
+                in.close();
             }
         }
-
-        zip.close();
-        return any;
     }
 }
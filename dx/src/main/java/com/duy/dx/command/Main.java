@@ -29,6 +29,7 @@ public class Main {
                     "[--no-locals]\n" +
                     "  [--no-optimize] [--statistics] [--[no-]optimize-list=<file>] " +
                     "[--no-strict]\n" +
+                    "  [--fast-optimize] [--max-optimized-method-size=<bytes>]\n" +
                     "  [--keep-classes] [--output=<file>] [--dump-to=<file>] " +
                     "[--dump-width=<n>]\n" +
                     "  [--dump-method=<name>[*]] [--verbose-dump] [--no-files] " +
@@ -53,6 +54,10 @@ public class Main {
                     "    --minimal-main-dex: only classes selected by --main-dex-list are " +
                     "to be put in\n" +
                     "    the main dex.\n" +
+                    "    --fast-optimize: only run the cheap optimization steps, for " +
+                    "quick debug builds.\n" +
+                    "    --max-optimized-method-size=<bytes>: methods with more " +
+                    "bytecode are not optimized.\n" +
                     "    --input-list: <file> is a list of inputs.\n" +
                     "    Each line in <file> must end with one of: .class .jar .zip .apk or be a directory.\n" +
                     "  dx --annotool --annotation=<class> [--element=<element types>]\n" +
@@ -70,6 +70,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -182,6 +184,30 @@ public class Main {
      * {@code null} if resources are being ignored
      */
     private static TreeMap<String, byte[]> outputResources;
+    /**
+     * Thread pool object used to read and inflate input files ahead of
+     * processing, or {@code null} when running single threaded.
+     */
+    private static ExecutorService classFileReaderPool;
+
+    /**
+     * Thread pool object used for multi-thread class parsing, or
+     * {@code null} when running single threaded.
+     */
+    private static ExecutorService classParserPool;
+
+    /**
+     * Single thread executor, for collecting results of parallel parsing
+     * and submitting classes to translation in original input file order.
+     */
+    private static ExecutorService classFileConsumer;
+
+    /**
+     * Futures for {@code classFileConsumer} tasks.
+     */
+    private static List<Future<Boolean>> parseFutures =
+            new ArrayList<Future<Boolean>>();
+
     /**
      * Thread pool object used for multi-thread class translation.
      */
@@ -554,6 +580,28 @@ public class Main {
                 new ThreadPoolExecutor.CallerRunsPolicy());
         // collect translated and write to dex in order
         classDefItemConsumer = Executors.newSingleThreadExecutor();
+        addToDexFutures.clear();
+        parseFutures.clear();
+
+        if (args.numThreads > 1) {
+            // read, parse and translate classes as a pipeline: the reader
+            // pool inflates entries ahead of us, the parser pool parses
+            // them, and the single class file consumer hands them to
+            // translation in input order.
+            classFileReaderPool = Executors.newFixedThreadPool(args.numThreads);
+            classParserPool = new ThreadPoolExecutor(args.numThreads,
+                    args.numThreads, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(2 * args.numThreads, true),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            // must never run on the caller, or input order would be lost
+            classFileConsumer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(2 * args.numThreads, true),
+                    new BlockingSubmitPolicy());
+        } else {
+            classFileReaderPool = null;
+            classParserPool = null;
+            classFileConsumer = null;
+        }
 
 
         try {
@@ -566,6 +614,11 @@ public class Main {
                 for (int i = 0; i < fileNames.length; i++) {
                     processOne(fileNames[i], mainPassFilter);
                 }
+                processInputClasses(mainPassFilter);
+
+                // all main dex classes must be submitted to translation
+                // before deciding on rotation
+                waitForParsedClasses();
 
                 if (dexOutputFutures.size() > 0) {
                     throw new DexException("Too many classes in " + Arguments.MAIN_DEX_LIST_OPTION
@@ -593,11 +646,13 @@ public class Main {
                 for (int i = 0; i < fileNames.length; i++) {
                     processOne(fileNames[i], new NotFilter(mainPassFilter));
                 }
+                processInputClasses(new NotFilter(mainPassFilter));
             } else {
                 // without --main-dex-list
                 for (int i = 0; i < fileNames.length; i++) {
                     processOne(fileNames[i], ClassPathOpener.acceptAll);
                 }
+                processInputClasses(ClassPathOpener.acceptAll);
             }
         } catch (StopProcessing ex) {
             /*
@@ -607,6 +662,27 @@ public class Main {
         }
 
         try {
+            if (classFileConsumer != null) {
+                // parsed classes feed the translator pool, so stop them first
+                classFileReaderPool.shutdown();
+                classParserPool.shutdown();
+                classParserPool.awaitTermination(600L, TimeUnit.SECONDS);
+                classFileConsumer.shutdown();
+                classFileConsumer.awaitTermination(600L, TimeUnit.SECONDS);
+
+                for (Future<Boolean> f : parseFutures) {
+                    try {
+                        f.get();
+                    } catch (ExecutionException ex) {
+                        int count = errors.incrementAndGet();
+                        if (count < 10) {
+                            DxConsole.err.println("Uncaught parsing error: " + ex.getCause());
+                        } else {
+                            throw new InterruptedException("Too many errors");
+                        }
+                    }
+                }
+            }
             classTranslatorPool.shutdown();
             classTranslatorPool.awaitTermination(600L, TimeUnit.SECONDS);
             classDefItemConsumer.shutdown();
@@ -628,12 +704,10 @@ public class Main {
             }
 
         } catch (InterruptedException ie) {
-            classTranslatorPool.shutdownNow();
-            classDefItemConsumer.shutdownNow();
+            shutdownPipelineNow();
             throw new RuntimeException("Translation has been interrupted", ie);
         } catch (Exception e) {
-            classTranslatorPool.shutdownNow();
-            classDefItemConsumer.shutdownNow();
+            shutdownPipelineNow();
             e.printStackTrace(System.out);
             throw new RuntimeException("Unexpected exception in translator thread.", e);
         }
@@ -661,6 +735,46 @@ public class Main {
         return true;
     }
 
+    /**
+     * Waits until every class handed to the parser pool so far has been
+     * submitted to the translation phase. No-op when running single
+     * threaded.
+     */
+    private static void waitForParsedClasses() {
+        if (classFileConsumer == null) {
+            return;
+        }
+
+        // The consumer is single threaded, so once this marker has run
+        // every previously submitted class file has been consumed.
+        Future<?> marker = classFileConsumer.submit(new Runnable() {
+            @Override
+            public void run() {
+                // This space intentionally left blank.
+            }
+        });
+        try {
+            marker.get();
+        } catch (InterruptedException ex) {
+            throw new RuntimeException("Parsing has been interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Unexpected exception in parser thread.", ex);
+        }
+    }
+
+    /**
+     * Abruptly stops all the thread pools of the translation pipeline.
+     */
+    private static void shutdownPipelineNow() {
+        if (classFileConsumer != null) {
+            classFileReaderPool.shutdownNow();
+            classParserPool.shutdownNow();
+            classFileConsumer.shutdownNow();
+        }
+        classTranslatorPool.shutdownNow();
+        classDefItemConsumer.shutdownNow();
+    }
+
     private static void createDexFile() {
         outputDex = new DexFile(args.dexOptions);
 
@@ -693,12 +807,43 @@ public class Main {
         ClassPathOpener opener;
 
         opener = new ClassPathOpener(pathname, true, filter, new FileBytesConsumer());
+        if (classFileReaderPool != null) {
+            opener.setReadAhead(classFileReaderPool, 2 * args.numThreads);
+        }
 
         if (opener.process()) {
             updateStatus(true);
         }
     }
 
+    /**
+     * Processes the class files given in memory by
+     * {@link Arguments#inputClasses}, in the order of the map. They are
+     * never older than an incremental output.
+     *
+     * @param filter {@code non-null;} A filter for excluding files.
+     */
+    private static void processInputClasses(FileNameFilter filter) {
+        if (args.inputClasses == null) {
+            return;
+        }
+
+        FileBytesConsumer consumer = new FileBytesConsumer();
+        for (Map.Entry<String, byte[]> entry : args.inputClasses.entrySet()) {
+            String name = entry.getKey();
+            if (!filter.accept(name)) {
+                continue;
+            }
+            try {
+                if (consumer.processFileBytes(name, Long.MAX_VALUE, entry.getValue())) {
+                    updateStatus(true);
+                }
+            } catch (Exception ex) {
+                consumer.onException(ex);
+            }
+        }
+    }
+
     private static void updateStatus(boolean res) {
         anyFilesProcessed |= res;
     }
@@ -770,6 +915,15 @@ public class Main {
             checkClassName(name);
         }
 
+        if (classParserPool != null) {
+            // parse in parallel, hand over to translation in input order
+            Future<DirectClassFile> dcff = classParserPool.submit(
+                    new ClassParserTask(name, bytes));
+            parseFutures.add(classFileConsumer.submit(
+                    new DirectClassFileConsumer(name, bytes, dcff)));
+            return true;
+        }
+
         try {
             new DirectClassFileConsumer(name, bytes, null).call(
                     new ClassParserTask(name, bytes).call());
@@ -1263,6 +1417,11 @@ public class Main {
 
         private static final String INPUT_LIST_OPTION = "--input-list";
 
+        private static final String FAST_OPTIMIZE_OPTION = "--fast-optimize";
+
+        private static final String MAX_OPTIMIZED_METHOD_SIZE_OPTION =
+                "--max-optimized-method-size";
+
         /**
          * whether to run in debug mode
          */
@@ -1357,11 +1516,31 @@ public class Main {
          */
         public String[] fileNames;
 
+        /**
+         * {@code null-ok;} class files held in memory, for example the
+         * output of an in-process compiler, keyed by their path in the
+         * class path ({@code com/example/Foo.class}). They are processed
+         * after {@link #fileNames}, without being written to disk. Must
+         * be set before {@link #parse}.
+         */
+        public Map<String, byte[]> inputClasses = null;
+
         /**
          * whether to do SSA/register optimization
          */
         public boolean optimize = true;
 
+        /**
+         * whether to run only the cheap optimization steps
+         */
+        public boolean fastOptimize = false;
+
+        /**
+         * maximum bytecode size of an optimized method, {@code 0} for
+         * no limit
+         */
+        public int maxOptimizedMethodSize = 0;
+
         /**
          * Filename containg list of methods to optimize
          */
@@ -1446,6 +1625,10 @@ public class Main {
                     coreLibrary = true;
                 } else if (parser.isArg("--statistics")) {
                     statistics = true;
+                } else if (parser.isArg(FAST_OPTIMIZE_OPTION)) {
+                    fastOptimize = true;
+                } else if (parser.isArg(MAX_OPTIMIZED_METHOD_SIZE_OPTION + "=")) {
+                    maxOptimizedMethodSize = Integer.parseInt(parser.getLastValue());
                 } else if (parser.isArg("--optimize-list=")) {
                     if (dontOptimizeListFile != null) {
                         System.err.println("--optimize-list and "
@@ -1540,7 +1723,7 @@ public class Main {
                 fileNames = inputList.toArray(new String[inputList.size()]);
             }
 
-            if (fileNames.length == 0) {
+            if (fileNames.length == 0 && inputClasses == null) {
                 if (!emptyOk) {
                     System.err.println("no input files specified");
                     throw new UsageException();
@@ -1594,6 +1777,8 @@ public class Main {
             cfOptions.localInfo = localInfo;
             cfOptions.strictNameCheck = strictNameCheck;
             cfOptions.optimize = optimize;
+            cfOptions.fastOptimize = fastOptimize;
+            cfOptions.maxOptimizedMethodSize = maxOptimizedMethodSize;
             cfOptions.optimizeListFile = optimizeListFile;
             cfOptions.dontOptimizeListFile = dontOptimizeListFile;
             cfOptions.statistics = statistics;
@@ -1804,8 +1989,14 @@ public class Main {
 
         @Override
         public Boolean call() throws Exception {
-
-            DirectClassFile cf = dcff.get();
+            DirectClassFile cf;
+            try {
+                cf = dcff.get();
+            } catch (ExecutionException ex) {
+                // Rethrow parsing exceptions, reported in processAllFiles().
+                Throwable t = ex.getCause();
+                throw (t instanceof Exception) ? (Exception) t : ex;
+            }
             return call(cf);
         }
 
@@ -1964,6 +2155,28 @@ public class Main {
         }
     }
 
+    /**
+     * Rejection policy that blocks the submitting thread until there is
+     * room in the queue, so that a single threaded, order preserving
+     * executor applies backpressure instead of running the task on the
+     * caller.
+     */
+    private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            try {
+                executor.getQueue().put(r);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting", ex);
+            }
+        }
+    }
+
     /**
      * Callable helper class to convert dex files in worker threads
      */
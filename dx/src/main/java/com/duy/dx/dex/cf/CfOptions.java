@@ -35,6 +35,19 @@ public class CfOptions {
     /** whether to do SSA/register optimization */
     public boolean optimize = false;
 
+    /**
+     * whether to run only the cheap SSA/register optimization steps, for
+     * quick debug builds
+     */
+    public boolean fastOptimize = false;
+
+    /**
+     * maximum size in bytes of the bytecode of a method to optimize, larger
+     * methods (typically generated code) are not optimized at all;
+     * {@code 0} for no limit
+     */
+    public int maxOptimizedMethodSize = 0;
+
     /** filename containing list of methods to optimize */
     public String optimizeListFile = null;
 
@@ -287,15 +287,27 @@ public class CfTranslator {
                             = thisClass.getClassType().getDescriptor()
                                 + "." + one.getName().getString();
 
-                    if (cfOptions.optimize &&
+                    boolean overOptimizeBudget =
+                            cfOptions.maxOptimizedMethodSize > 0 &&
+                            concrete.getCode().size()
+                                    > cfOptions.maxOptimizedMethodSize;
+
+                    if (cfOptions.optimize && !overOptimizeBudget &&
                             OptimizerOptions.shouldOptimize(canonicalName)) {
                         if (DEBUG) {
                             System.err.println("Optimizing " + canonicalName);
                         }
 
                         nonOptRmeth = rmeth;
-                        rmeth = Optimizer.optimize(rmeth,
-                                paramSize, isStatic, cfOptions.localInfo, advice);
+                        if (cfOptions.fastOptimize) {
+                            rmeth = Optimizer.optimizeFast(rmeth,
+                                    paramSize, isStatic, cfOptions.localInfo,
+                                    advice);
+                        } else {
+                            rmeth = Optimizer.optimize(rmeth,
+                                    paramSize, isStatic, cfOptions.localInfo,
+                                    advice);
+                        }
 
                         if (DEBUG) {
                             OptimizerOptions.compareOptimizerStep(nonOptRmeth,
@@ -109,6 +109,37 @@ public class Optimizer {
         return resultMeth;
     }
 
+    /**
+     * Runs the cheap subset of the optimizer over this method, and returns a
+     * new instance of RopMethod with the changes. Only the conversion to and
+     * from SSA form and dead code removal are done, using the simple
+     * {@link com.duy.dx.ssa.back.FirstFitAllocator}: all optional steps and
+     * the register minimizing second pass are skipped. The output is larger
+     * and uses more registers, which is fine for quick debug builds.
+     *
+     * @param rmeth method to process
+     * @param paramWidth the total width, in register-units, of this method's
+     * parameters
+     * @param isStatic true if this method has no 'this' pointer argument.
+     * @param inPreserveLocals true if local variable info should be preserved,
+     * at the cost of some registers and insns
+     * @param inAdvice {@code non-null;} translation advice
+     * @return optimized method
+     */
+    public static RopMethod optimizeFast(RopMethod rmeth, int paramWidth,
+            boolean isStatic, boolean inPreserveLocals,
+            TranslationAdvice inAdvice) {
+        SsaMethod ssaMeth = null;
+
+        preserveLocals = inPreserveLocals;
+        advice = inAdvice;
+
+        ssaMeth = SsaConverter.convertToSsaMethod(rmeth, paramWidth, isStatic);
+        runSsaFormSteps(ssaMeth, EnumSet.noneOf(OptionalStep.class));
+
+        return SsaToRop.convertToRopMethod(ssaMeth, false, true);
+    }
+
     /**
      * Runs the optimizer with a strategy to minimize the number of rop-form
      * registers used by the end result. Dex bytecode does not have instruction
@@ -53,6 +53,12 @@ public class SsaToRop {
      */
     private final boolean minimizeRegisters;
 
+    /**
+     * true if the simple {@link FirstFitAllocator} should be used instead of
+     * the {@link FirstFitLocalCombiningAllocator}
+     */
+    private final boolean firstFit;
+
     /** {@code non-null;} interference graph */
     private final InterferenceGraph interference;
 
@@ -66,7 +72,23 @@ public class SsaToRop {
      */
     public static RopMethod convertToRopMethod(SsaMethod ssaMeth,
             boolean minimizeRegisters) {
-        return new SsaToRop(ssaMeth, minimizeRegisters).convert();
+        return new SsaToRop(ssaMeth, minimizeRegisters, false).convert();
+    }
+
+    /**
+     * Converts a method in SSA form to ROP form.
+     *
+     * @param ssaMeth {@code non-null;} method to process
+     * @param minimizeRegisters {@code true} if the converter should
+     * attempt to minimize the rop-form register count
+     * @param firstFit {@code true} to use the simple and faster
+     * {@link FirstFitAllocator}, which does not co-locate local variables
+     * nor try to avoid moves for range instructions
+     * @return {@code non-null;} rop-form output
+     */
+    public static RopMethod convertToRopMethod(SsaMethod ssaMeth,
+            boolean minimizeRegisters, boolean firstFit) {
+        return new SsaToRop(ssaMeth, minimizeRegisters, firstFit).convert();
     }
 
     /**
@@ -75,9 +97,12 @@ public class SsaToRop {
      * @param ssaMeth {@code non-null;} method to process
      * @param minimizeRegisters {@code true} if the converter should
      * attempt to minimize the rop-form register count
+     * @param firstFit {@code true} to use the {@link FirstFitAllocator}
      */
-    private SsaToRop(SsaMethod ssaMethod, boolean minimizeRegisters) {
+    private SsaToRop(SsaMethod ssaMethod, boolean minimizeRegisters,
+            boolean firstFit) {
         this.minimizeRegisters = minimizeRegisters;
+        this.firstFit = firstFit;
         this.ssaMeth = ssaMethod;
         this.interference =
             LivenessAnalyzer.constructInterferenceGraph(ssaMethod);
@@ -97,9 +122,13 @@ public class SsaToRop {
         // allocator = new NullRegisterAllocator(ssaMeth, interference);
         // allocator = new FirstFitAllocator(ssaMeth, interference);
 
-        RegisterAllocator allocator =
-            new FirstFitLocalCombiningAllocator(ssaMeth, interference,
-                    minimizeRegisters);
+        RegisterAllocator allocator;
+        if (firstFit) {
+            allocator = new FirstFitAllocator(ssaMeth, interference);
+        } else {
+            allocator = new FirstFitLocalCombiningAllocator(ssaMeth,
+                    interference, minimizeRegisters);
+        }
 
         RegisterMapper mapper = allocator.allocateRegisters();
 
@@ -29,6 +29,8 @@ import com.duy.dx.rop.type.TypeList;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
@@ -93,6 +95,90 @@ public class ClassReferenceListBuilder {
         }
     }
 
+    /**
+     * Keeps the given classes and every class of the path they reference, directly or through
+     * other kept classes. Unlike {@link #addRoots(ZipFile)}, the roots do not need to be the
+     * result of a tracing, they may for instance be the components declared in a manifest.
+     * Roots and references that are not found in the path are assumed to be part of the
+     * libraries and ignored.
+     *
+     * @param rootClassNames binary names of the root classes, using '/' as separator
+     */
+    public void addRootsTransitively(Collection<String> rootClassNames) {
+        ArrayDeque<String> toVisit = new ArrayDeque<String>(rootClassNames);
+        Set<String> referenced = new HashSet<String>();
+
+        while (!toVisit.isEmpty()) {
+            String classBinaryName = toVisit.removeFirst();
+            if (classNames.contains(classBinaryName)) {
+                continue;
+            }
+
+            DirectClassFile classFile;
+            try {
+                classFile = path.getClass(classBinaryName + CLASS_EXTENSION);
+            } catch (FileNotFoundException e) {
+                // Ignore: The referenced type is not in the path it must be part of the libraries.
+                continue;
+            }
+            classNames.add(classBinaryName);
+
+            referenced.clear();
+            CstType superClass = classFile.getSuperclass();
+            if (superClass != null) {
+                referenced.add(superClass.getClassType().getClassName());
+            }
+            TypeList interfaceList = classFile.getInterfaces();
+            for (int i = 0; i < interfaceList.size(); i++) {
+                referenced.add(interfaceList.getType(i).getClassName());
+            }
+            for (Constant constant : classFile.getConstantPool().getEntries()) {
+                if (constant instanceof CstType) {
+                    addReferencedClass(((CstType) constant).getClassType(), referenced);
+                } else if (constant instanceof CstFieldRef) {
+                    addReferencedClass(((CstFieldRef) constant).getType(), referenced);
+                } else if (constant instanceof CstMethodRef) {
+                    Prototype proto = ((CstMethodRef) constant).getPrototype();
+                    addReferencedClass(proto.getReturnType(), referenced);
+                    StdTypeList args = proto.getParameterTypes();
+                    for (int i = 0; i < args.size(); i++) {
+                        addReferencedClass(args.get(i), referenced);
+                    }
+                }
+            }
+
+            for (String name : referenced) {
+                if (!classNames.contains(name)) {
+                    toVisit.addLast(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the given classes with their hierarchy, and the classes of the path they reference
+     * directly with their hierarchy, like {@link #addRoots(ZipFile)}. The references are not
+     * followed further. Roots that are not found in the path are ignored.
+     * <p>
+     * Call it after {@link #addRootsTransitively(Collection)}: a class already kept is not
+     * visited again, its references would not be followed.
+     *
+     * @param rootClassNames binary names of the root classes, using '/' as separator
+     */
+    public void addRootsWithDirectReferences(Collection<String> rootClassNames) {
+        for (String classBinaryName : rootClassNames) {
+            DirectClassFile classFile;
+            try {
+                classFile = path.getClass(classBinaryName + CLASS_EXTENSION);
+            } catch (FileNotFoundException e) {
+                // Ignore: The referenced type is not in the path it must be part of the libraries.
+                continue;
+            }
+            addClassWithHierachy(classBinaryName);
+            addDependencies(classFile.getConstantPool());
+        }
+    }
+
     Set<String> getClassNames() {
         return classNames;
     }
@@ -129,6 +215,14 @@ public class ClassReferenceListBuilder {
         }
     }
 
+    private static void addReferencedClass(Type type, Set<String> referenced) {
+        String descriptor = type.getDescriptor();
+        if (descriptor.endsWith(";")) {
+            int lastBrace = descriptor.lastIndexOf('[');
+            referenced.add(descriptor.substring(lastBrace + 2, descriptor.length() - 1));
+        }
+    }
+
     private void addClassWithHierachy(String classBinaryName) {
         if (classNames.contains(classBinaryName)) {
             return;
@@ -22,9 +22,16 @@ import com.duy.dx .cf.iface.Attribute;
 import com.duy.dx .cf.iface.FieldList;
 import com.duy.dx .cf.iface.HasAttribute;
 import com.duy.dx .cf.iface.MethodList;
+import com.duy.dx.rop.cst.Constant;
+import com.duy.dx.rop.cst.CstBaseMethodRef;
+import com.duy.dx.rop.cst.CstFieldRef;
+import com.duy.dx.rop.cst.CstMemberRef;
+import com.duy.dx.rop.cst.CstNat;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.zip.ZipFile;
@@ -68,6 +75,10 @@ public class MainDexListBuilder {
 
     private Set<String> filesToKeep = new HashSet<String>();
 
+    private int methodIdCount;
+
+    private int fieldIdCount;
+
     public static void main(String[] args) {
 
         int argIndex = 0;
@@ -120,25 +131,74 @@ public class MainDexListBuilder {
 
             ClassReferenceListBuilder mainListBuilder = new ClassReferenceListBuilder(path);
             mainListBuilder.addRoots(jarOfRoots);
-            for (String className : mainListBuilder.getClassNames()) {
-                filesToKeep.add(className + CLASS_EXTENSION);
-            }
-            if (keepAnnotated) {
-                keepAnnotated(path);
-            }
+            keep(mainListBuilder, keepAnnotated, path);
         } finally {
             try {
                 jarOfRoots.close();
             } catch (IOException e) {
                 // ignore
             }
-            if (path != null) {
-                for (ClassPathElement element : path.elements) {
-                    try {
-                        element.close();
-                    } catch (IOException e) {
-                        // keep going, lets do our best.
-                    }
+            close(path);
+        }
+    }
+
+    /**
+     * Builds a main dex list from classes that are not the result of a tracing, typically the
+     * components declared in the manifest. Every class of the path reachable from the roots is
+     * kept.
+     *
+     * @param rootClassNames binary names of the root classes, using '/' as separator
+     * @param pathString class path in which the roots and their dependencies are searched
+     */
+    public MainDexListBuilder(boolean keepAnnotated, Collection<String> rootClassNames,
+            String pathString) throws IOException {
+        this(keepAnnotated, rootClassNames, Collections.<String>emptySet(), pathString);
+    }
+
+    /**
+     * Builds a main dex list from classes that are not the result of a tracing, typically the
+     * components declared in the manifest. Every class of the path reachable from the first
+     * roots is kept. Only the direct references of the other roots are kept, with their
+     * hierarchy.
+     *
+     * @param transitiveRoots binary names of the roots kept with all the classes they reach,
+     *                        using '/' as separator
+     * @param directRoots binary names of the roots kept with their direct references
+     * @param pathString class path in which the roots and their dependencies are searched
+     */
+    public MainDexListBuilder(boolean keepAnnotated, Collection<String> transitiveRoots,
+            Collection<String> directRoots, String pathString) throws IOException {
+        Path path = null;
+        try {
+            path = new Path(pathString);
+
+            ClassReferenceListBuilder mainListBuilder = new ClassReferenceListBuilder(path);
+            mainListBuilder.addRootsTransitively(transitiveRoots);
+            mainListBuilder.addRootsWithDirectReferences(directRoots);
+            keep(mainListBuilder, keepAnnotated, path);
+            countMemberIds(path);
+        } finally {
+            close(path);
+        }
+    }
+
+    private void keep(ClassReferenceListBuilder mainListBuilder, boolean keepAnnotated,
+            Path path) throws FileNotFoundException {
+        for (String className : mainListBuilder.getClassNames()) {
+            filesToKeep.add(className + CLASS_EXTENSION);
+        }
+        if (keepAnnotated) {
+            keepAnnotated(path);
+        }
+    }
+
+    private static void close(Path path) {
+        if (path != null) {
+            for (ClassPathElement element : path.elements) {
+                try {
+                    element.close();
+                } catch (IOException e) {
+                    // keep going, lets do our best.
                 }
             }
         }
@@ -151,6 +211,57 @@ public class MainDexListBuilder {
         return filesToKeep;
     }
 
+    /**
+     * @return number of distinct methods defined or referenced by the classes to keep, the main
+     * dex file needs at least as many method ids. Only computed by the constructors taking root
+     * class names.
+     */
+    public int getMethodIdCount() {
+        return methodIdCount;
+    }
+
+    /**
+     * @return number of distinct fields defined or referenced by the classes to keep, see
+     * {@link #getMethodIdCount()}
+     */
+    public int getFieldIdCount() {
+        return fieldIdCount;
+    }
+
+    private void countMemberIds(Path path) throws FileNotFoundException {
+        Set<String> methods = new HashSet<String>();
+        Set<String> fields = new HashSet<String>();
+        for (String fileName : filesToKeep) {
+            DirectClassFile classFile = path.getClass(fileName);
+            String className = classFile.getThisClass().getClassType().getClassName();
+            MethodList methodList = classFile.getMethods();
+            for (int i = 0; i < methodList.size(); i++) {
+                methods.add(memberKey(className, methodList.get(i).getNat()));
+            }
+            FieldList fieldList = classFile.getFields();
+            for (int i = 0; i < fieldList.size(); i++) {
+                fields.add(memberKey(className, fieldList.get(i).getNat()));
+            }
+            for (Constant constant : classFile.getConstantPool().getEntries()) {
+                if (constant instanceof CstBaseMethodRef) {
+                    methods.add(memberKey((CstMemberRef) constant));
+                } else if (constant instanceof CstFieldRef) {
+                    fields.add(memberKey((CstMemberRef) constant));
+                }
+            }
+        }
+        methodIdCount = methods.size();
+        fieldIdCount = fields.size();
+    }
+
+    private static String memberKey(CstMemberRef ref) {
+        return memberKey(ref.getDefiningClass().getClassType().getClassName(), ref.getNat());
+    }
+
+    private static String memberKey(String className, CstNat nat) {
+        return className + '.' + nat.getName().getString() + nat.getDescriptor().getString();
+    }
+
     private static void printUsage() {
         System.err.print(USAGE_MESSAGE);
     }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.googlejavaformat.java;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of Java source files given to the benchmarks.
+ * <p>
+ * The built-in corpora are:
+ * <ul>
+ * <li>{@code javac}: the tree package of the javac fork, big hand written files</li>
+ * <li>{@code generated}: one class of about 5000 lines, with long statements that have to be
+ * broken</li>
+ * </ul>
+ * Any other name is read as the path of a source file or of a folder of source files.
+ */
+public final class Corpus {
+    public static final String JAVAC = "javac";
+    public static final String GENERATED = "generated";
+
+    /** resources of the javac corpus, copied by the processResources task */
+    private static final String[] JAVAC_SOURCES = {
+            "JCTree.java", "Pretty.java", "TreeCopier.java", "TreeInfo.java", "TreeMaker.java",
+            "TreeScanner.java", "TreeTranslator.java"
+    };
+
+    private static final int GENERATED_METHODS = 250;
+
+    private Corpus() {
+    }
+
+    /**
+     * Loads a corpus.
+     *
+     * @param name {@code non-null;} name of a built-in corpus, or path of a file or a folder
+     * @return {@code non-null;} the contents of the source files
+     */
+    public static List<String> load(String name) throws IOException {
+        List<String> sources = new ArrayList<String>();
+        if (GENERATED.equals(name)) {
+            sources.add(generate());
+        } else if (JAVAC.equals(name)) {
+            for (String file : JAVAC_SOURCES) {
+                sources.add(Resources.toString(
+                        Resources.getResource("corpus/com/sun/tools/javac/tree/" + file),
+                        Charsets.UTF_8));
+            }
+        } else {
+            read(new File(name), sources);
+        }
+
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("no source file in corpus " + name);
+        }
+        return Collections.unmodifiableList(sources);
+    }
+
+    private static void read(File input, List<String> sources) throws IOException {
+        if (!input.isDirectory()) {
+            sources.add(Files.asCharSource(input, Charsets.UTF_8).read());
+            return;
+        }
+        File[] files = input.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory() || file.getName().endsWith(".java")) {
+                read(file, sources);
+            }
+        }
+    }
+
+    /**
+     * @return a badly formatted class, every method is about 20 lines long once formatted
+     */
+    private static String generate() {
+        StringBuilder source = new StringBuilder();
+        source.append("package generated;\n\n")
+                .append("import java.util.ArrayList;\nimport java.util.List;\n\n")
+                .append("/** Generated. */\npublic class Generated {\n");
+        for (int i = 0; i < GENERATED_METHODS; i++) {
+            source.append("  private final List<String> values").append(i)
+                    .append(" = new ArrayList<String>();\n")
+                    .append("  // method ").append(i).append('\n')
+                    .append("  public List<String> method").append(i)
+                    .append("(String first, String second, int count, boolean reversed) {\n")
+                    .append("    List<String> result = new ArrayList<String>(values").append(i)
+                    .append(".size() + count);\n")
+                    .append("    for (int i = 0; i < count; i++) { if (reversed && i % 2 == 0) {")
+                    .append(" result.add(first.substring(0, Math.min(i, first.length()))")
+                    .append(" + second.toUpperCase() + String.valueOf(i) + values").append(i)
+                    .append(".get(i % values").append(i).append(".size())); } else {")
+                    .append(" result.add(String.format(\"%s-%s-%d\", second, first, i")
+                    .append(" * count + values").append(i).append(".size())); } }\n")
+                    .append("    return reversed ? new ArrayList<String>(result.subList(0,")
+                    .append(" result.size() / 2)) : method").append((i + 1) % GENERATED_METHODS)
+                    .append("(second, first, count - 1, !reversed && count > 10 && first")
+                    .append(".isEmpty());\n")
+                    .append("  }\n\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
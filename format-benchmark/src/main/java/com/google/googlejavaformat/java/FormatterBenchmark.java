@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.googlejavaformat.java;
+
+import com.google.common.collect.ImmutableList;
+import com.google.googlejavaformat.Doc;
+import com.google.googlejavaformat.Newlines;
+import com.google.googlejavaformat.Op;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures google-java-format over a whole {@link Corpus}:
+ * <ul>
+ * <li>{@code format}: {@link Formatter#formatSource(String)}, as done by the editor</li>
+ * <li>{@code layout}: the {@link Doc} part of the formatter, from the {@link Op}s of the
+ * parsed sources: building the {@link Doc}, computing its breaks and writing it</li>
+ * </ul>
+ * The {@code jmh} gradle task runs them with the gc profiler, which reports the allocation
+ * rate of each stage ({@code gc.alloc.rate.norm} is the number of bytes allocated to process
+ * the whole corpus once).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FormatterBenchmark {
+
+    /**
+     * Parsed source of the corpus, the input of the layout.
+     */
+    static final class ParsedSource {
+        final JavaInput javaInput;
+        final String lineSeparator;
+        final ImmutableList<Op> ops;
+
+        ParsedSource(JavaInput javaInput, String lineSeparator, ImmutableList<Op> ops) {
+            this.javaInput = javaInput;
+            this.lineSeparator = lineSeparator;
+            this.ops = ops;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        /** name of a built-in corpus or path of the sources, see {@link Corpus} */
+        @Param({Corpus.JAVAC, Corpus.GENERATED})
+        public String corpus;
+
+        List<String> sources;
+        final List<ParsedSource> parsed = new ArrayList<ParsedSource>();
+        final JavaFormatterOptions options = JavaFormatterOptions.defaultOptions();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, FormatterException {
+            sources = Corpus.load(corpus);
+
+            parsed.clear();
+            for (String source : sources) {
+                JavaInput javaInput = new JavaInput(source);
+                String lineSeparator = Newlines.guessLineSeparator(source);
+                ImmutableList<Op> ops =
+                        Formatter.buildOps(javaInput, newOutput(javaInput, lineSeparator), options);
+                parsed.add(new ParsedSource(javaInput, lineSeparator, ops));
+            }
+        }
+
+        JavaOutput newOutput(JavaInput javaInput, String lineSeparator) {
+            return new JavaOutput(lineSeparator, javaInput,
+                    new JavaCommentsHelper(lineSeparator, options));
+        }
+    }
+
+    @Benchmark
+    public void format(CorpusState state, Blackhole blackhole) throws FormatterException {
+        Formatter formatter = new Formatter(state.options);
+        for (String source : state.sources) {
+            blackhole.consume(formatter.formatSource(source));
+        }
+    }
+
+    /**
+     * The {@link Op}s are shared by the invocations, the tokens memoize their width and range
+     * but the levels are built again each time. The blank lines recorded in the output while
+     * the {@link Op}s were built are not in the new output, they do not change the layout.
+     */
+    @Benchmark
+    public void layout(CorpusState state, Blackhole blackhole) {
+        for (ParsedSource source : state.parsed) {
+            JavaOutput javaOutput = state.newOutput(source.javaInput, source.lineSeparator);
+            Formatter.layout(source.ops, javaOutput, state.options);
+            blackhole.consume(javaOutput);
+        }
+    }
+}
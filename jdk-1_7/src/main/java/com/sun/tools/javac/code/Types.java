@@ -2710,6 +2710,14 @@ public class Types {
      */
     private Map<Type,List<Type>> closureCache = new HashMap<Type,List<Type>>();
 
+    /**
+     * Clears the caches holding types of the previous compilation.
+     */
+    public void newRound() {
+        closureCache.clear();
+        isDerivedRawCache.clear();
+    }
+
     /**
      * Returns the closure of a class or interface type.
      */
@@ -159,6 +159,12 @@ public class Check {
      */
     public Map<Name,ClassSymbol> compiled = new HashMap<Name, ClassSymbol>();
 
+    /** Forgets the classes compiled by the previous compilation.
+     */
+    public void newRound() {
+        compiled.clear();
+    }
+
     /** A handler for messages about deprecated usage.
      */
     private MandatoryWarningHandler deprecationHandler;
@@ -57,7 +57,9 @@ import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Options;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
@@ -178,6 +180,25 @@ public class Enter extends JCTree.Visitor {
         return typeEnvs.get(sym);
     }
 
+    /** The toplevel and member classes entered from source files, including
+     *  the package-info classes.
+     */
+    Set<ClassSymbol> sourceClasses = new HashSet<ClassSymbol>();
+
+    /** Accessor for sourceClasses
+     */
+    public Set<ClassSymbol> getSourceClasses() {
+        return sourceClasses;
+    }
+
+    /** Forgets the environments and the source classes entered by the
+     *  previous compilation.
+     */
+    public void newRound() {
+        typeEnvs.clear();
+        sourceClasses.clear();
+    }
+
     public Env<AttrContext> getClassEnv(TypeSymbol sym) {
         Env<AttrContext> localEnv = getEnv(sym);
         Env<AttrContext> lintEnv = localEnv;
@@ -349,6 +370,7 @@ public class Enter extends JCTree.Visitor {
 
             Name name = names.package_info;
             ClassSymbol c = reader.enterClass(name, tree.packge);
+            sourceClasses.add(c);
             c.flatname = names.fromString(tree.packge + "." + name);
             c.sourcefile = tree.sourcefile;
             c.completer = null;
@@ -410,6 +432,7 @@ public class Enter extends JCTree.Visitor {
         }
         chk.compiled.put(c.flatname, c);
         enclScope.enter(c);
+        if (!c.isLocal()) sourceClasses.add(c);
 
         // Set up an environment for class block and store in `typeEnvs'
         // table, to be retrieved later in memberEnter and attribution.
@@ -47,6 +47,7 @@ import java.util.zip.ZipFile;
 
 import javax.tools.JavaFileManager.Location;
 
+import static com.sun.tools.javac.main.OptionName.BOOTCLASSPATH;
 import static com.sun.tools.javac.main.OptionName.CLASSPATH;
 import static com.sun.tools.javac.main.OptionName.PROCESSORPATH;
 import static com.sun.tools.javac.main.OptionName.SOURCEPATH;
@@ -318,7 +319,11 @@ public class Paths {
 
         Map<String, String> envs = System.getenv();
 
-        String bootclasspath = envs.get("BOOTCLASSPATH");
+        // the -bootclasspath option (android.jar of the build), else the
+        // class path of the device
+        String bootclasspath = options.get(BOOTCLASSPATH);
+        if (bootclasspath == null)
+            bootclasspath = envs.get("BOOTCLASSPATH");
         path.addFiles(bootclasspath);
 //        String defaultClasspath = "/data/user/0/com.duy.compiler.javanide/files/system/classes/android.jar";
 //        if (bootclasspath == null || !bootclasspath.equals(defaultClasspath)) {
@@ -29,12 +29,17 @@ package com.sun.tools.javac.file;
 import com.sun.tools.javac.file.RelativePath.RelativeDirectory;
 import com.sun.tools.javac.file.RelativePath.RelativeFile;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -67,6 +72,11 @@ import java.util.zip.ZipException;
  * file created for each archive, used by the compiler for compilation, at the
  * location specified by the "cachezipindexdir" option.
  *
+ * An index file is valid for the size and the time stamp of the archive it
+ * was written for, it is read with memory mapped IO. The directory set with
+ * {@link ZipFileIndexCache#setIndexDir(File)} enables all three options for
+ * the archives opened through the shared cache.
+ *
  * If system property nonBatchMode option is specified the compiler will use
  * timestamp checking to reindex the zip files if it is needed. In batch mode
  * the timestamps are not checked and the compiler uses the cached indexes.
@@ -82,6 +92,10 @@ public class ZipFileIndex {
 
     public final static long NOT_MODIFIED = Long.MIN_VALUE;
 
+    /** First bytes of an index file, followed by the version of its format. */
+    private static final int INDEX_MAGIC = 0x4A5A4958;
+    private static final int INDEX_VERSION = 2;
+
 
     private static boolean NON_BATCH_MODE = System.getProperty("nonBatchMode") != null;// TODO: Use -XD compiler switch for this.
 
@@ -100,6 +114,9 @@ public class ZipFileIndex {
     private boolean readFromIndex = false;
     private File zipIndexFile = null;
     private boolean triedToReadIndex = false;
+    private boolean indexWritten = false;
+    /** Content of the index file, when the index was read from it. */
+    private ByteBuffer indexBuffer;
     final RelativeDirectory symbolFilePrefix;
     private final int symbolFilePrefixLength;
     private boolean hasPopulatedData = false;
@@ -195,6 +212,9 @@ public class ZipFileIndex {
             }
         }
 
+        // written now rather than on close, the file manager of a tool is not always closed
+        writeIndex();
+
         lastReferenceTimeStamp = System.currentTimeMillis();
     }
 
@@ -789,54 +809,26 @@ public class ZipFileIndex {
                     entries.add(zipFileIndex.entries[i]);
                 }
             } else {
-                File indexFile = zipFileIndex.getIndexFile();
-                if (indexFile != null) {
-                    RandomAccessFile raf = null;
-                    try {
-                        raf = new RandomAccessFile(indexFile, "r");
-                        raf.seek(writtenOffsetOffset);
-
-                        for (int nFiles = 0; nFiles < numEntries; nFiles++) {
-                            // Read the name bytes
-                            int zfieNameBytesLen = raf.readInt();
-                            byte [] zfieNameBytes = new byte[zfieNameBytesLen];
-                            raf.read(zfieNameBytes);
-                            String eName = new String(zfieNameBytes, "UTF-8");
-
-                            // Read isDir
-                            boolean eIsDir = raf.readByte() == (byte)0 ? false : true;
-
-                            // Read offset of bytes in the real Jar/Zip file
-                            int eOffset = raf.readInt();
-
-                            // Read size of the file in the real Jar/Zip file
-                            int eSize = raf.readInt();
-
-                            // Read compressed size of the file in the real Jar/Zip file
-                            int eCsize = raf.readInt();
-
-                            // Read java time stamp of the file in the real Jar/Zip file
-                            long eJavaTimestamp = raf.readLong();
-
-                            Entry rfie = new Entry(dirName, eName);
-                            rfie.isDir = eIsDir;
-                            rfie.offset = eOffset;
-                            rfie.size = eSize;
-                            rfie.compressedSize = eCsize;
-                            rfie.javatime = eJavaTimestamp;
-                            entries.add(rfie);
-                        }
-                    } catch (Throwable t) {
-                        // Do nothing
-                    } finally {
-                        try {
-                            if (raf != null) {
-                                raf.close();
-                            }
-                        } catch (Throwable t) {
-                            // Do nothing
-                        }
+                // a copy, the position of the shared buffer is not changed
+                ByteBuffer buffer = zipFileIndex.indexBuffer.duplicate();
+                try {
+                    buffer.position((int) writtenOffsetOffset);
+                    for (int nFiles = 0; nFiles < numEntries; nFiles++) {
+                        // Read the name bytes
+                        byte [] zfieNameBytes = new byte[readLength(buffer)];
+                        buffer.get(zfieNameBytes);
+                        String eName = new String(zfieNameBytes, "UTF-8");
+
+                        Entry rfie = new Entry(dirName, eName);
+                        rfie.isDir = buffer.get() != (byte)0;
+                        rfie.offset = buffer.getInt();
+                        rfie.size = buffer.getInt();
+                        rfie.compressedSize = buffer.getInt();
+                        rfie.javatime = buffer.getLong();
+                        entries.add(rfie);
                     }
+                } catch (Exception e) {
+                    // Do nothing, the index was checked when it was opened
                 }
             }
 
@@ -861,30 +853,43 @@ public class ZipFileIndex {
             RandomAccessFile raf = null;
             try {
                 File indexFileName = getIndexFile();
+                if (indexFileName == null || !indexFileName.isFile()) {
+                    return false;
+                }
                 raf = new RandomAccessFile(indexFileName, "r");
-
-                long fileStamp = raf.readLong();
-                if (zipFile.lastModified() != fileStamp) {
-                    ret = false;
-                } else {
-                    directories = new LinkedHashMap<RelativeDirectory, DirectoryEntry>();
-                    int numDirs = raf.readInt();
+                FileChannel channel = raf.getChannel();
+                // the mapping stays valid after the file is closed
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                long fileStamp = zipFile.lastModified();
+                if (buffer.getInt() == INDEX_MAGIC
+                        && buffer.getInt() == INDEX_VERSION
+                        && buffer.getLong() == zipFile.length()
+                        && buffer.getLong() == fileStamp) {
+                    Map<RelativeDirectory, DirectoryEntry> dirs =
+                            new LinkedHashMap<RelativeDirectory, DirectoryEntry>();
+                    int numDirs = buffer.getInt();
                     for (int nDirs = 0; nDirs < numDirs; nDirs++) {
-                        int dirNameBytesLen = raf.readInt();
-                        byte [] dirNameBytes = new byte[dirNameBytesLen];
-                        raf.read(dirNameBytes);
+                        byte [] dirNameBytes = new byte[readLength(buffer)];
+                        buffer.get(dirNameBytes);
 
                         RelativeDirectory dirNameStr = getRelativeDirectory(new String(dirNameBytes, "UTF-8"));
                         DirectoryEntry de = new DirectoryEntry(dirNameStr, this);
-                        de.numEntries = raf.readInt();
-                        de.writtenOffsetOffset = raf.readLong();
-                        directories.put(dirNameStr, de);
+                        de.numEntries = buffer.getInt();
+                        de.writtenOffsetOffset = buffer.getLong();
+                        if (de.numEntries < 0 || de.writtenOffsetOffset < 0
+                                || de.writtenOffsetOffset > buffer.limit()) {
+                            throw new IOException("Invalid index " + indexFileName);
+                        }
+                        dirs.put(dirNameStr, de);
                     }
+                    directories = dirs;
+                    indexBuffer = buffer;
                     ret = true;
                     zipFileLastModified = fileStamp;
                 }
             } catch (Throwable t) {
-                // Do nothing
+                // Do nothing, the archive is indexed again
             } finally {
                 if (raf != null) {
                     try {
@@ -902,13 +907,28 @@ public class ZipFileIndex {
         return ret;
     }
 
+    /**
+     * Reads the length of a name of the index. A corrupted length is not
+     * allocated, the name could not be read anyway.
+     */
+    private static int readLength(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid name length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Writes the index of the archive, once. The file is written under a
+     * temporary name and renamed, another compiler never reads a partial index.
+     */
     private boolean writeIndex() {
-        boolean ret = false;
-        if (readFromIndex || !usePreindexedCache) {
+        if (readFromIndex || indexWritten || !usePreindexedCache) {
             return true;
         }
 
-        if (!writeIndex) {
+        if (!writeIndex || !hasPopulatedData || zipFileLastModified == NOT_MODIFIED) {
             return true;
         }
 
@@ -916,102 +936,77 @@ public class ZipFileIndex {
         if (indexFile == null) {
             return false;
         }
+        indexWritten = true;
 
-        RandomAccessFile raf = null;
-        long writtenSoFar = 0;
+        File tmpFile = null;
         try {
-            raf = new RandomAccessFile(indexFile, "rw");
-
-            raf.writeLong(zipFileLastModified);
-            writtenSoFar += 8;
-
-            List<DirectoryEntry> directoriesToWrite = new ArrayList<DirectoryEntry>();
-            Map<RelativeDirectory, Long> offsets = new HashMap<RelativeDirectory, Long>();
-            raf.writeInt(directories.keySet().size());
-            writtenSoFar += 4;
+            List<DirectoryEntry> directoriesToWrite =
+                    new ArrayList<DirectoryEntry>(directories.values());
 
-            for (RelativeDirectory dirName: directories.keySet()) {
-                DirectoryEntry dirEntry = directories.get(dirName);
-
-                directoriesToWrite.add(dirEntry);
-
-                // Write the dir name bytes
-                byte [] dirNameBytes = dirName.getPath().getBytes("UTF-8");
-                int dirNameBytesLen = dirNameBytes.length;
-                raf.writeInt(dirNameBytesLen);
-                writtenSoFar += 4;
-
-                raf.write(dirNameBytes);
-                writtenSoFar += dirNameBytesLen;
-
-                // Write the number of files in the dir
-                List<Entry> dirEntries = dirEntry.getEntriesAsCollection();
-                raf.writeInt(dirEntries.size());
-                writtenSoFar += 4;
+            // the entries go after the header and the directory table
+            long headerLength = 4 + 4 + 8 + 8 + 4;
+            for (DirectoryEntry de : directoriesToWrite) {
+                headerLength += 4 + de.dirName.getPath().getBytes("UTF-8").length + 4 + 8;
+            }
 
-                offsets.put(dirName, new Long(writtenSoFar));
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entryBytes);
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream((int) headerLength);
+            DataOutputStream headerOut = new DataOutputStream(headerBytes);
 
-                // Write the offset of the file's data in the dir
-                dirEntry.writtenOffsetOffset = 0L;
-                raf.writeLong(0L);
-                writtenSoFar += 8;
-            }
+            headerOut.writeInt(INDEX_MAGIC);
+            headerOut.writeInt(INDEX_VERSION);
+            headerOut.writeLong(zipFile.length());
+            headerOut.writeLong(zipFileLastModified);
+            headerOut.writeInt(directoriesToWrite.size());
 
             for (DirectoryEntry de : directoriesToWrite) {
-                // Fix up the offset in the directory table
-                long currFP = raf.getFilePointer();
-
-                long offsetOffset = offsets.get(de.dirName).longValue();
-                raf.seek(offsetOffset);
-                raf.writeLong(writtenSoFar);
+                List<Entry> list = de.getEntriesAsCollection();
 
-                raf.seek(currFP);
+                // Write the dir name, the number of files and their offset
+                byte [] dirNameBytes = de.dirName.getPath().getBytes("UTF-8");
+                headerOut.writeInt(dirNameBytes.length);
+                headerOut.write(dirNameBytes);
+                headerOut.writeInt(list.size());
+                headerOut.writeLong(headerLength + entryOut.size());
 
                 // Now write each of the files in the DirectoryEntry
-                List<Entry> list = de.getEntriesAsCollection();
                 for (Entry zfie : list) {
-                    // Write the name bytes
                     byte [] zfieNameBytes = zfie.name.getBytes("UTF-8");
-                    int zfieNameBytesLen = zfieNameBytes.length;
-                    raf.writeInt(zfieNameBytesLen);
-                    writtenSoFar += 4;
-                    raf.write(zfieNameBytes);
-                    writtenSoFar += zfieNameBytesLen;
-
-                    // Write isDir
-                    raf.writeByte(zfie.isDir ? (byte)1 : (byte)0);
-                    writtenSoFar += 1;
-
-                    // Write offset of bytes in the real Jar/Zip file
-                    raf.writeInt(zfie.offset);
-                    writtenSoFar += 4;
-
-                    // Write size of the file in the real Jar/Zip file
-                    raf.writeInt(zfie.size);
-                    writtenSoFar += 4;
-
-                    // Write compressed size of the file in the real Jar/Zip file
-                    raf.writeInt(zfie.compressedSize);
-                    writtenSoFar += 4;
-
-                    // Write java time stamp of the file in the real Jar/Zip file
-                    raf.writeLong(zfie.getLastModified());
-                    writtenSoFar += 8;
+                    entryOut.writeInt(zfieNameBytes.length);
+                    entryOut.write(zfieNameBytes);
+                    entryOut.writeByte(zfie.isDir ? (byte)1 : (byte)0);
+                    entryOut.writeInt(zfie.offset);
+                    entryOut.writeInt(zfie.size);
+                    entryOut.writeInt(zfie.compressedSize);
+                    entryOut.writeLong(zfie.getLastModified());
                 }
             }
-        } catch (Throwable t) {
-            // Do nothing
-        } finally {
+
+            File dir = indexFile.getAbsoluteFile().getParentFile();
+            tmpFile = File.createTempFile(indexFile.getName(), ".tmp", dir);
+            FileOutputStream out = new FileOutputStream(tmpFile);
             try {
-                if (raf != null) {
-                    raf.close();
+                headerBytes.writeTo(out);
+                entryBytes.writeTo(out);
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                indexFile.delete();
+                if (!tmpFile.renameTo(indexFile)) {
+                    return false;
                 }
-            } catch(IOException ioe) {
-                // Do nothing
+            }
+            tmpFile = null;
+            return true;
+        } catch (Throwable t) {
+            return false;
+        } finally {
+            if (tmpFile != null) {
+                tmpFile.delete();
             }
         }
-
-        return ret;
     }
 
     public boolean writeZipIndex() {
@@ -1026,8 +1021,11 @@ public class ZipFileIndex {
                 return null;
             }
 
+            // archives of different folders often have the same name, classes.jar of the aar
+            // libraries for example
+            String pathHash = Integer.toHexString(zipFile.getAbsolutePath().hashCode());
             zipIndexFile = new File((preindexedCacheLocation == null ? "" : preindexedCacheLocation) +
-                    zipFile.getName() + ".index");
+                    zipFile.getName() + "-" + pathHash + ".index");
         }
 
         return zipIndexFile;
@@ -42,6 +42,9 @@ public class ZipFileIndexCache {
     private final Map<File, ZipFileIndex> map =
             new HashMap<File, ZipFileIndex>();
 
+    /** Folder of the index files, when they are enabled for all archives. */
+    private File indexDir;
+
     /** Get a shared instance of the cache. */
     private static ZipFileIndexCache sharedInstance;
     public synchronized static ZipFileIndexCache getSharedInstance() {
@@ -58,6 +61,28 @@ public class ZipFileIndexCache {
         return instance;
     }
 
+    /**
+     * Keeps the index of every archive opened through this cache in a file of
+     * the given folder, as if "-XDusezipindex", "-XDwritezipindexfiles" and
+     * "-XDcachezipindexdir" were given to every compiler. The next process
+     * reads the index instead of scanning the central directory of the archive.
+     *
+     * @param dir the folder of the index files, or null to use the options
+     */
+    public synchronized void setIndexDir(File dir) {
+        if (dir != null) {
+            dir.mkdirs();
+            if (!dir.isDirectory() || !dir.canWrite()) {
+                dir = null;
+            }
+        }
+        indexDir = dir;
+    }
+
+    public synchronized File getIndexDir() {
+        return indexDir;
+    }
+
     /**
      * Returns a list of all ZipFileIndex entries
      *
@@ -96,6 +121,12 @@ public class ZipFileIndexCache {
             boolean writeIndex) throws IOException {
         ZipFileIndex zi = getExistingZipIndex(zipFile);
 
+        if (!useCache && indexDir != null) {
+            useCache = true;
+            cacheLocation = indexDir.getPath() + File.separator;
+            writeIndex = true;
+        }
+
         if (zi == null || (zi != null && zipFile.lastModified() != zi.zipFileLastModified)) {
             zi = new ZipFileIndex(zipFile, symbolFilePrefix, writeIndex,
                     useCache, cacheLocation);
@@ -86,6 +86,7 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -974,6 +975,92 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
     }
 
+    /**
+     * Compiles a list of files with a compiler kept for several compilations.
+     * Unlike {@link #compile}, the compiler is not closed: the symbols completed
+     * from class files (the platform and the libraries) stay valid, the next
+     * compilation must be prepared by {@link #newCompilation()}. Annotation
+     * processing is not supported.
+     *
+     * @param sourceFileObjects file objects to be compiled
+     */
+    public void compileKeepingSymbols(List<JavaFileObject> sourceFileObjects) {
+        if (hasBeenUsed)
+            throw new AssertionError("newCompilation() must be called before reusing JavaCompiler");
+        hasBeenUsed = true;
+
+        options.put(XLINT_CUSTOM + "-" + LintCategory.OPTIONS.option, "true");
+        options.remove(XLINT_CUSTOM + LintCategory.OPTIONS.option);
+
+        start_msec = now();
+
+        try {
+            delegateCompiler =
+                    processAnnotations(
+                            enterTrees(stopIfError(CompileState.PARSE, parseFiles(sourceFileObjects))),
+                            List.<String>nil());
+
+            delegateCompiler.compile2();
+            elapsed_msec = delegateCompiler.elapsed_msec;
+        } catch (Abort ex) {
+            if (devVerbose)
+                ex.printStackTrace(System.err);
+        } finally {
+            // the content of the source files must be read again by the next compilation
+            log.flush();
+            try {
+                fileManager.flush();
+            } catch (IOException e) {
+                throw new Abort(e);
+            }
+        }
+    }
+
+    /**
+     * Prepares a compiler used by {@link #compileKeepingSymbols} for the next
+     * compilation. The class symbols entered from source files, as recorded by
+     * {@link Enter#getSourceClasses()}, and the ones which could not be
+     * completed, are removed with the packages which contain them, those
+     * packages are read again when they are used. The symbols completed from
+     * class files are kept.
+     */
+    public void newCompilation() {
+        Set<PackageSymbol> packages = new HashSet<PackageSymbol>();
+        for (ClassSymbol c : enter.getSourceClasses()) {
+            // the classfile of a compiled class is its output, it can not be
+            // told apart from a class read from the class path
+            if (syms.classes.get(c.flatname) == c)
+                syms.classes.remove(c.flatname);
+            packages.add(c.packge());
+        }
+        Iterator<ClassSymbol> classes = syms.classes.values().iterator();
+        while (classes.hasNext()) {
+            // nothing may be completed here, the map would be modified
+            ClassSymbol c = classes.next();
+            if (c.type.tag == TypeTags.ERROR) {
+                classes.remove();
+                packages.add(c.packge());
+            }
+        }
+        for (PackageSymbol p : packages) {
+            p.members_field = null;
+            p.package_info = null;
+            p.completer = reader;
+        }
+
+        enter.newRound();
+        chk.newRound();
+        types.newRound();
+        log.clear();
+        todo.clear();
+        inputFiles.clear();
+        desugaredEnvs.clear();
+        rootClasses = null;
+        delegateCompiler = null;
+        implicitSourceFilesRead = false;
+        hasBeenUsed = false;
+    }
+
     /**
      * The phases following annotation processing: attribution,
      * desugar, and finally code generation.
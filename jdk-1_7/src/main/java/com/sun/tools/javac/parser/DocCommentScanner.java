@@ -60,6 +60,12 @@ public class DocCommentScanner extends Scanner {
         super(fac, input, inputLength);
     }
 
+    /** Create a scanner reading the characters of the input directly.
+     */
+    protected DocCommentScanner(ScannerFactory fac, CharSequence input) {
+        super(fac, input);
+    }
+
     /** Starting position of the comment in original source
      */
     private int pos;
@@ -418,7 +424,6 @@ public class DocCommentScanner extends Scanner {
      *
      * @return a LineMap */
     public Position.LineMap getLineMap() {
-        char[] buf = getRawCharacters();
-        return Position.makeLineMap(buf, buf.length, true);
+        return makeLineMap(true);
     }
 }
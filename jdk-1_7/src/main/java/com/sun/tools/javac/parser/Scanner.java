@@ -108,6 +108,9 @@ public class Scanner implements Lexer {
      *  index of one past last character in buffer.
      */
     private char[] buf;
+    /** The input, when it is read without a copy into buf.
+     */
+    private CharSequence input;
     private int bp;
     private int buflen;
     private int eofPos;
@@ -188,6 +191,36 @@ public class Scanner implements Lexer {
         scanChar();
     }
 
+    /**
+     * Create a scanner reading the characters of the input directly, the
+     * input is not copied. It must not change while the scanner is used.
+     *
+     * @param fac the factory which created this Scanner
+     * @param input the input
+     */
+    protected Scanner(ScannerFactory fac, CharSequence input) {
+        this(fac);
+        int inputLength = input.length();
+        eofPos = inputLength;
+        // as with an array, a trailing white space is read as the end of input
+        if (inputLength > 0 && Character.isWhitespace(input.charAt(inputLength - 1))) {
+            inputLength--;
+        }
+        this.input = input;
+        buflen = inputLength;
+        bp = -1;
+        scanChar();
+    }
+
+    /** The character at the given index of the input, EOI past its end.
+     */
+    private char charAt(int index) {
+        if (buf != null) {
+            return buf[index];
+        }
+        return index < buflen ? input.charAt(index) : (char) EOI;
+    }
+
     /** Report an error at the given position using the provided arguments.
      */
     private void lexError(int pos, String key, Object... args) {
@@ -221,17 +254,17 @@ public class Scanner implements Lexer {
      */
     private void convertUnicode() {
         if (ch == '\\' && unicodeConversionBp != bp) {
-            bp++; ch = buf[bp];
+            bp++; ch = charAt(bp);
             if (ch == 'u') {
                 do {
-                    bp++; ch = buf[bp];
+                    bp++; ch = charAt(bp);
                 } while (ch == 'u');
                 int limit = bp + 3;
                 if (limit < buflen) {
                     int d = digit(16);
                     int code = d;
                     while (bp < limit && d >= 0) {
-                        bp++; ch = buf[bp];
+                        bp++; ch = charAt(bp);
                         d = digit(16);
                         code = (code << 4) + d;
                     }
@@ -252,7 +285,7 @@ public class Scanner implements Lexer {
     /** Read next character.
      */
     private void scanChar() {
-        ch = buf[++bp];
+        ch = charAt(++bp);
         if (ch == '\\') {
             convertUnicode();
         }
@@ -263,7 +296,7 @@ public class Scanner implements Lexer {
     private void scanCommentChar() {
         scanChar();
         if (ch == '\\') {
-            if (buf[bp+1] == '\\' && unicodeConversionBp != bp) {
+            if (charAt(bp+1) == '\\' && unicodeConversionBp != bp) {
                 bp++;
             } else {
                 convertUnicode();
@@ -286,7 +319,7 @@ public class Scanner implements Lexer {
      */
     private void scanLitChar() {
         if (ch == '\\') {
-            if (buf[bp+1] == '\\' && unicodeConversionBp != bp) {
+            if (charAt(bp+1) == '\\' && unicodeConversionBp != bp) {
                 bp++;
                 putChar('\\');
                 scanChar();
@@ -954,7 +987,9 @@ public class Scanner implements Lexer {
                         }
                         if (isJavaIdentifierStart) {
                             scanIdent();
-                        } else if (bp == buflen || ch == EOI && bp+1 == buflen) { // JLS 3.5
+                        } else if (bp >= buflen || ch == EOI && bp+1 == buflen) { // JLS 3.5
+                            // bp is past buflen when scanning again after EOF, if the
+                            // input ends with a white space
                             token = EOF;
                             pos = bp = eofPos;
                         } else {
@@ -1062,9 +1097,7 @@ public class Scanner implements Lexer {
      * Unicode escape sequences are not translated.
      */
     public char[] getRawCharacters() {
-        char[] chars = new char[buflen];
-        System.arraycopy(buf, 0, chars, 0, buflen);
-        return chars;
+        return getRawCharacters(0, buflen);
     }
 
     /**
@@ -1084,7 +1117,15 @@ public class Scanner implements Lexer {
     public char[] getRawCharacters(int beginIndex, int endIndex) {
         int length = endIndex - beginIndex;
         char[] chars = new char[length];
-        System.arraycopy(buf, beginIndex, chars, 0, length);
+        if (buf != null) {
+            System.arraycopy(buf, beginIndex, chars, 0, length);
+        } else if (input instanceof String) {
+            ((String) input).getChars(beginIndex, endIndex, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = input.charAt(beginIndex + i);
+            }
+        }
         return chars;
     }
 
@@ -1134,7 +1175,16 @@ public class Scanner implements Lexer {
      *
      * @return a LineMap */
     public Position.LineMap getLineMap() {
-        return Position.makeLineMap(buf, buflen, false);
+        return makeLineMap(false);
+    }
+
+    /** Build a line map of the input, without copying it.
+     */
+    protected Position.LineMap makeLineMap(boolean expandTabs) {
+        if (buf != null) {
+            return Position.makeLineMap(buf, buflen, expandTabs);
+        }
+        return Position.makeLineMap(input, buflen, expandTabs);
     }
 
 }
@@ -81,9 +81,10 @@ public class ScannerFactory {
                 return new DocCommentScanner(this, buf);
             else
                 return new Scanner(this, buf);
+        } else if (keepDocComments) {
+            return new DocCommentScanner(this, input);
         } else {
-            char[] array = input.toString().toCharArray();
-            return newScanner(array, array.length, keepDocComments);
+            return new Scanner(this, input);
         }
     }
 
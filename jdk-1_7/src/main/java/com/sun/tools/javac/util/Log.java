@@ -147,6 +147,18 @@ public class Log extends AbstractLog {
      */
     private Set<Pair<JavaFileObject, Integer>> recorded = new HashSet<>();
 
+    /**
+     * Resets the counts and the reported positions, the sources are read
+     * again for the diagnostics of the next compilation.
+     */
+    public void clear() {
+        recorded.clear();
+        sourceMap.clear();
+        deferredDiagnostics.clear();
+        nerrors = 0;
+        nwarnings = 0;
+    }
+
 
     /**
      * Construct a log with given I/O redirections.
@@ -25,6 +25,7 @@
 
 package com.sun.tools.javac.util;
 
+import java.nio.CharBuffer;
 import java.util.BitSet;
 import static com.sun.tools.javac.util.LayoutCharacters.*;
 
@@ -72,6 +73,13 @@ public class Position {
      * @param   expandTabs  If true, expand tabs when calculating columns
      */
     public static LineMap makeLineMap(char[] src, int max, boolean expandTabs) {
+        return makeLineMap(CharBuffer.wrap(src), max, expandTabs);
+    }
+
+    /** Same as {@link #makeLineMap(char[], int, boolean)}, the characters
+     *  are read from the sequence without a copy.
+     */
+    public static LineMap makeLineMap(CharSequence src, int max, boolean expandTabs) {
         LineMapImpl lineMap = expandTabs ?
             new LineTabMapImpl(max) : new LineMapImpl();
         lineMap.build(src, max);
@@ -147,16 +155,16 @@ public class Position {
 
         protected LineMapImpl() {}
 
-        protected void build(char[] src, int max) {
+        protected void build(CharSequence src, int max) {
             int c = 0;
             int i = 0;
             int[] linebuf = new int[max];
             while (i < max) {
                 linebuf[c++] = i;
                 do {
-                    char ch = src[i];
+                    char ch = src.charAt(i);
                     if (ch == '\r' || ch == '\n') {
-                        if (ch == '\r' && (i+1) < max && src[i+1] == '\n')
+                        if (ch == '\r' && (i+1) < max && src.charAt(i+1) == '\n')
                             i += 2;
                         else
                             ++i;
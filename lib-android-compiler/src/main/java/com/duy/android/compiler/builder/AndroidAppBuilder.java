@@ -11,8 +11,11 @@ import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.builder.task.android.CompileAidlTask;
 import com.duy.android.compiler.builder.task.android.GenerateBuildConfigTask;
 import com.duy.android.compiler.builder.task.android.MergeManifestTask;
+import com.duy.android.compiler.builder.task.android.MergeResourceTask;
 import com.duy.android.compiler.builder.task.android.PackageApkTask;
 import com.duy.android.compiler.builder.task.android.ProcessAndroidResourceTask;
+import com.duy.android.compiler.builder.task.android.ShrinkClassesTask;
+import com.duy.android.compiler.builder.task.android.ShrinkResourcesTask;
 import com.duy.android.compiler.builder.task.android.SignApkTask;
 import com.duy.android.compiler.builder.task.java.CompileJavaTask;
 import com.duy.android.compiler.builder.task.java.DexTask;
@@ -24,10 +27,15 @@ import java.util.ArrayList;
  * Android build will execute all task
  * {@link GenerateBuildConfigTask}
  * {@link MergeManifestTask}
+ * {@link MergeResourceTask}
  * {@link ProcessAndroidResourceTask}
  * {@link CompileAidlTask}
  * {@link CompileJavaTask}
+ * {@link ShrinkClassesTask} (release only)
+ * {@link ShrinkResourcesTask} (release only)
+ * {@link DexTask}
  * {@link PackageApkTask}
+ * {@link SignApkTask} (release only, debug apks are signed while packaging)
  */
 public class AndroidAppBuilder extends BuilderImpl<AndroidAppProject> {
 
@@ -64,16 +72,25 @@ public class AndroidAppBuilder extends BuilderImpl<AndroidAppProject> {
 
         tasks.add(new GenerateBuildConfigTask(this));
 
+        tasks.add(new MergeManifestTask(this));
+        tasks.add(new MergeResourceTask(this));
         tasks.add(new ProcessAndroidResourceTask(this));
 //        tasks.add(new ProcessAndroidResourceTask2(this));
 
         tasks.add(new CompileJavaTask(this));
 
-        tasks.add(new DexTask(this));
+        if (buildType == BuildType.RELEASE) {
+            tasks.add(new ShrinkClassesTask(this));
+            tasks.add(new ShrinkResourcesTask(this));
+        }
+
+        tasks.add(new DexTask(this, buildType));
 
-        tasks.add(new PackageApkTask(this));
+        tasks.add(new PackageApkTask(this, buildType));
 
-        tasks.add(new SignApkTask(this, buildType));
+        if (buildType == BuildType.RELEASE) {
+            tasks.add(new SignApkTask(this, buildType));
+        }
         return tasks;
     }
 
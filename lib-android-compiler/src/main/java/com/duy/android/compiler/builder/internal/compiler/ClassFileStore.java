@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.compiler;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.Nullable;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class files produced by the compiler, kept in memory so they can be given to dx directly
+ * instead of being written to the classes folder and read back.
+ * <p>
+ * The classes are written to disk only when a task needs the folder (jar archive, class
+ * shrinking, multidex), once per compilation.
+ */
+public class ClassFileStore {
+    /**
+     * Class files by path in the class path, com/example/Foo.class. Sorted, so the dex file
+     * does not depend on the order of compilation
+     */
+    private final TreeMap<String, byte[]> mClasses = new TreeMap<>();
+    /**
+     * Folder the current classes were written to, null if they are only in memory
+     */
+    @Nullable
+    private File mWrittenTo;
+
+    public synchronized void put(@NonNull String path, @NonNull byte[] bytes) {
+        mClasses.put(path, bytes);
+        mWrittenTo = null;
+    }
+
+    public synchronized void clear() {
+        mClasses.clear();
+        mWrittenTo = null;
+    }
+
+    public synchronized boolean isEmpty() {
+        return mClasses.isEmpty();
+    }
+
+    public synchronized int size() {
+        return mClasses.size();
+    }
+
+    /**
+     * @return the class files by path in the class path, the map must not be modified
+     */
+    @NonNull
+    public synchronized Map<String, byte[]> getClasses() {
+        return Collections.unmodifiableMap(new TreeMap<>(mClasses));
+    }
+
+    /**
+     * Writes the class files to a folder, unless they were already written to it.
+     *
+     * @param dir the classes folder, files of a previous compilation must have been removed
+     * @return true if the files were written, false if they were already there
+     */
+    public synchronized boolean writeTo(@NonNull File dir) throws IOException {
+        if (dir.equals(mWrittenTo)) {
+            return false;
+        }
+        for (Map.Entry<String, byte[]> entry : mClasses.entrySet()) {
+            File file = new File(dir, entry.getKey().replace('/', File.separatorChar));
+            file.getParentFile().mkdirs();
+            Files.write(entry.getValue(), file);
+        }
+        mWrittenTo = dir;
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.compiler;
+
+import com.android.annotations.NonNull;
+
+import org.eclipse.jdt.internal.compiler.ClassFile;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.batch.Main;
+
+import java.io.PrintWriter;
+
+/**
+ * Ecj batch compiler which keeps the generated class files in a {@link ClassFileStore}
+ * instead of writing them to the output folder. Use {@code -d none} as output folder.
+ */
+public class InMemoryEcjCompiler extends Main {
+    @NonNull
+    private final ClassFileStore mOutput;
+
+    public InMemoryEcjCompiler(PrintWriter outWriter, PrintWriter errWriter,
+                               @NonNull ClassFileStore output) {
+        super(outWriter, errWriter, false, null, null);
+        mOutput = output;
+    }
+
+    @Override
+    public void outputClassFiles(CompilationResult unitResult) {
+        // the compilation fails anyway, class files of a unit with errors are not kept
+        if (unitResult == null || unitResult.hasErrors()) {
+            return;
+        }
+        for (ClassFile classFile : unitResult.getClassFiles()) {
+            mOutput.put(new String(classFile.fileName()) + ".class", classFile.getBytes());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.compiler;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.Nullable;
+import com.google.common.base.Charsets;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.ListBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Compiles with the bundled javac, keeping the compiler between builds.
+ * <p>
+ * Most of the work of compiling a small project is the completion of the classes of
+ * android.jar and of the libraries from their class files. The session keeps one javac context
+ * for as long as the options and the jars do not change: before each compilation only the
+ * symbols entered from source files are removed (see {@link JavaCompiler#newCompilation()}),
+ * the classes read from the jars, and the indexes of the jars, are reused.
+ * <p>
+ * Class files are written to a {@link ClassFileStore}, not to disk.
+ */
+public class JavacSession {
+    @Nullable
+    private static JavacSession sSession;
+
+    @NonNull
+    private final List<String> mOptions;
+    @NonNull
+    private final String mJarsStamp;
+    @NonNull
+    private final JavacFileManager mFileManager;
+    @NonNull
+    private final JavaCompiler mCompiler;
+    private boolean mUsed = false;
+
+    /**
+     * Output of the current compilation
+     */
+    private PrintWriter mOut;
+    private ClassFileStore mOutput;
+
+    private JavacSession(@NonNull List<String> options, @NonNull String jarsStamp) {
+        mOptions = options;
+        mJarsStamp = jarsStamp;
+
+        // the log of javac is created once, it prints to the output of the current compilation
+        Writer log = new Writer() {
+            @Override
+            public void write(@NonNull char[] buffer, int offset, int length) {
+                mOut.write(buffer, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                mOut.flush();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        JavacTool tool = JavacTool.create();
+        mFileManager = tool.getStandardFileManager(null, null, Charsets.UTF_8);
+        JavacTaskImpl task = (JavacTaskImpl) tool.getTask(log,
+                new ClassOutputFileManager(mFileManager), null, options, null, null);
+        mCompiler = JavaCompiler.instance(task.getContext());
+    }
+
+    /**
+     * @param options     javac options: boot class path, class path, source path, language
+     *                    level... but no output folder
+     * @param classPath   the jars of the boot class path and class path, a session is not reused
+     *                    when one of them changed
+     * @return the session of the given options, the previous session is reused if the options
+     * are the same
+     */
+    @NonNull
+    public static synchronized JavacSession get(@NonNull List<String> options,
+                                                @NonNull List<File> classPath) {
+        String jarsStamp = getJarsStamp(classPath);
+        if (sSession == null || !sSession.mOptions.equals(options)
+                || !sSession.mJarsStamp.equals(jarsStamp)) {
+            release();
+            sSession = new JavacSession(new ArrayList<>(options), jarsStamp);
+        }
+        return sSession;
+    }
+
+    /**
+     * Drops the current session, the memory used by the symbols of the jars is freed.
+     */
+    public static synchronized void release() {
+        if (sSession != null) {
+            sSession.mFileManager.close();
+            sSession = null;
+        }
+    }
+
+    /**
+     * Compiles the given source files, all the sources of the project must be given.
+     *
+     * @param output receives the class files, when the compilation succeeds
+     * @param out    receives the diagnostics
+     * @return true if there was no error
+     */
+    public synchronized boolean compile(@NonNull List<File> sourceFiles,
+                                        @NonNull ClassFileStore output,
+                                        @NonNull PrintWriter out) {
+        mOut = out;
+        mOutput = output;
+        try {
+            if (mUsed) {
+                mCompiler.newCompilation();
+            }
+            mUsed = true;
+
+            ListBuffer<JavaFileObject> files = new ListBuffer<>();
+            for (JavaFileObject file : mFileManager.getJavaFileObjectsFromFiles(sourceFiles)) {
+                files.append(file);
+            }
+            mCompiler.compileKeepingSymbols(files.toList());
+            return mCompiler.errorCount() == 0;
+        } catch (RuntimeException e) {
+            // the state of javac after an unexpected error is unknown, start again next time
+            synchronized (JavacSession.class) {
+                if (sSession == this) {
+                    release();
+                }
+            }
+            throw e;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private static String getJarsStamp(List<File> classPath) {
+        StringBuilder stamp = new StringBuilder();
+        for (File file : classPath) {
+            stamp.append(file.getAbsolutePath()).append(' ')
+                    .append(file.length()).append(' ')
+                    .append(file.lastModified()).append(File.pathSeparatorChar);
+        }
+        return stamp.toString();
+    }
+
+    /**
+     * Keeps the class files generated by javac in the {@link ClassFileStore} of the current
+     * compilation
+     */
+    private class ClassOutputFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        ClassOutputFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling)
+                throws IOException {
+            if (location != StandardLocation.CLASS_OUTPUT || kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            final String path = className.replace('.', '/') + kind.extension;
+            return new SimpleJavaFileObject(URI.create("mem:///" + path), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() throws IOException {
+                            super.close();
+                            mOutput.put(path, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
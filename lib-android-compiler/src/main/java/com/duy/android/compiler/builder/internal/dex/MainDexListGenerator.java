@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.dex;
+
+import com.android.SdkConstants;
+import com.android.annotations.NonNull;
+import com.android.utils.XmlUtils;
+import com.android.xml.AndroidManifest;
+import com.duy.dex.DexFormat;
+import com.duy.multidex.MainDexListBuilder;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes the classes that must be in the main dex file (classes.dex) of a multidex
+ * application, following the rule of the Android build tools: the application, the
+ * instrumentation, the backup agent, the providers and the receivers run before the secondary
+ * dex files are installed, they are kept with all the classes they can reach. Activities and
+ * services are only kept with the classes they reference directly, so the main dex does not
+ * hold most of the libraries of a large application.
+ * <p>
+ * The result can be passed to dx with {@code --main-dex-list} and {@code --minimal-main-dex}
+ */
+public class MainDexListGenerator {
+    private static final String CLASS_EXTENSION = ".class";
+
+    @NonNull
+    private final File mManifest;
+    @NonNull
+    private final List<File> mClassPath;
+    private int mMethodIdCount;
+    private int mFieldIdCount;
+
+    /**
+     * @param manifest  - the manifest declaring the components of the application
+     * @param classPath - build classes folder and library jars that will be dexed
+     */
+    public MainDexListGenerator(@NonNull File manifest, @NonNull List<File> classPath) {
+        mManifest = manifest;
+        mClassPath = classPath;
+    }
+
+    /**
+     * @return binary names (a/b/C) of the application, instrumentation, backup agent,
+     * activities, services, receivers and providers declared in the manifest
+     */
+    @NonNull
+    public Set<String> getRootClasses() throws Exception {
+        Set<String> roots = new TreeSet<>();
+        readRoots(roots, roots);
+        return roots;
+    }
+
+    /**
+     * @param startupRoots receives the components which run before the secondary dex files are
+     *                     installed: application, instrumentation, backup agent, receivers
+     *                     and providers
+     * @param otherRoots   receives the activities and services
+     */
+    private void readRoots(Set<String> startupRoots, Set<String> otherRoots) throws Exception {
+        Document document = XmlUtils.parseUtfXmlFile(mManifest, true);
+        Element manifest = document.getDocumentElement();
+        String packageName = manifest.getAttribute(AndroidManifest.ATTRIBUTE_PACKAGE);
+        addRoots(manifest, packageName, startupRoots, otherRoots);
+    }
+
+    private void addRoots(Element element, String packageName, Set<String> startupRoots,
+                          Set<String> otherRoots) {
+        String tag = element.getTagName();
+        if (AndroidManifest.NODE_APPLICATION.equals(tag)) {
+            addRoot(element, AndroidManifest.ATTRIBUTE_NAME, packageName, startupRoots);
+            addRoot(element, AndroidManifest.ATTRIBUTE_BACKUP_AGENT, packageName, startupRoots);
+        } else if (AndroidManifest.NODE_RECEIVER.equals(tag)
+                || AndroidManifest.NODE_PROVIDER.equals(tag)
+                || AndroidManifest.NODE_INSTRUMENTATION.equals(tag)) {
+            addRoot(element, AndroidManifest.ATTRIBUTE_NAME, packageName, startupRoots);
+        } else if (AndroidManifest.NODE_ACTIVITY.equals(tag)
+                || AndroidManifest.NODE_SERVICE.equals(tag)) {
+            addRoot(element, AndroidManifest.ATTRIBUTE_NAME, packageName, otherRoots);
+        } else if (AndroidManifest.NODE_ACTIVITY_ALIAS.equals(tag)) {
+            addRoot(element, AndroidManifest.ATTRIBUTE_TARGET_ACTIVITY, packageName, otherRoots);
+        }
+
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                addRoots((Element) child, packageName, startupRoots, otherRoots);
+            }
+        }
+    }
+
+    private void addRoot(Element element, String attribute, String packageName, Set<String> roots) {
+        String className = element.getAttributeNS(SdkConstants.ANDROID_URI, attribute);
+        if (className == null || className.isEmpty()) {
+            return;
+        }
+        className = AndroidManifest.combinePackageAndClassName(packageName, className);
+        roots.add(className.replace('.', '/'));
+    }
+
+    /**
+     * Computes the main dex list and writes it to the given file, one class file name per
+     * line.
+     *
+     * @return number of classes in the main dex list
+     */
+    public int writeTo(@NonNull File mainDexList) throws Exception {
+        StringBuilder classPath = new StringBuilder();
+        for (File file : mClassPath) {
+            if (!file.exists()) {
+                continue;
+            }
+            if (classPath.length() != 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(file.getAbsolutePath());
+        }
+
+        Set<String> startupRoots = new TreeSet<>();
+        Set<String> otherRoots = new TreeSet<>();
+        readRoots(startupRoots, otherRoots);
+        MainDexListBuilder builder = new MainDexListBuilder(true, startupRoots, otherRoots,
+                classPath.toString());
+        Set<String> classes = new TreeSet<>(builder.getMainDexList());
+        mMethodIdCount = builder.getMethodIdCount();
+        mFieldIdCount = builder.getFieldIdCount();
+
+        mainDexList.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(mainDexList), "UTF-8");
+        try {
+            for (String name : classes) {
+                if (name.endsWith(CLASS_EXTENSION)) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return classes.size();
+    }
+
+    /**
+     * @return methods defined or referenced by the classes of the list written by
+     * {@link #writeTo(File)}, at most {@link DexFormat#MAX_MEMBER_IDX} + 1 fit in the main dex
+     */
+    public int getMethodIdCount() {
+        return mMethodIdCount;
+    }
+
+    /**
+     * @return fields defined or referenced by the classes of the list written by
+     * {@link #writeTo(File)}
+     */
+    public int getFieldIdCount() {
+        return mFieldIdCount;
+    }
+}
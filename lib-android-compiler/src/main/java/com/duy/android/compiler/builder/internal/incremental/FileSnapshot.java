@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.incremental;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.Nullable;
+import com.android.ide.common.res2.FileStatus;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Size and last modified time of the files of some folders, used to find the inputs of a task
+ * that changed since its previous run.
+ */
+public class FileSnapshot {
+    /**
+     * Absolute path of every file, mapped to {length, last modified}
+     */
+    private final Map<String, long[]> mFiles;
+
+    private FileSnapshot(Map<String, long[]> files) {
+        mFiles = files;
+    }
+
+    /**
+     * @param inputs files and folders, the files of folders are added recursively
+     */
+    @NonNull
+    public static FileSnapshot of(@NonNull Iterable<File> inputs) {
+        Map<String, long[]> files = new TreeMap<>();
+        for (File input : inputs) {
+            add(input, files);
+        }
+        return new FileSnapshot(files);
+    }
+
+    private static void add(File file, Map<String, long[]> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    add(child, files);
+                }
+            }
+        } else if (file.isFile()) {
+            files.put(file.getAbsolutePath(), new long[]{file.length(), file.lastModified()});
+        }
+    }
+
+    /**
+     * @return the snapshot saved in the given file, null if it does not exist or can not be read
+     */
+    @Nullable
+    public static FileSnapshot load(@NonNull File snapshotFile) {
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        Map<String, long[]> files = new HashMap<>();
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(snapshotFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // <length> <last modified> <path>
+                    int pos = line.indexOf(' ');
+                    int pos2 = line.indexOf(' ', pos + 1);
+                    long length = Long.parseLong(line.substring(0, pos));
+                    long lastModified = Long.parseLong(line.substring(pos + 1, pos2));
+                    files.put(line.substring(pos2 + 1), new long[]{length, lastModified});
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return new FileSnapshot(files);
+    }
+
+    public void save(@NonNull File snapshotFile) throws IOException {
+        snapshotFile.getParentFile().mkdirs();
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(snapshotFile), "UTF-8"));
+        try {
+            for (Map.Entry<String, long[]> entry : mFiles.entrySet()) {
+                writer.write(Long.toString(entry.getValue()[0]));
+                writer.write(' ');
+                writer.write(Long.toString(entry.getValue()[1]));
+                writer.write(' ');
+                writer.write(entry.getKey());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @param previous snapshot of the same inputs, taken before
+     * @return the files added, changed or removed since the previous snapshot
+     */
+    @NonNull
+    public Map<File, FileStatus> getChangedFiles(@NonNull FileSnapshot previous) {
+        Map<File, FileStatus> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : mFiles.entrySet()) {
+            long[] old = previous.mFiles.get(entry.getKey());
+            if (old == null) {
+                changed.put(new File(entry.getKey()), FileStatus.NEW);
+            } else if (old[0] != entry.getValue()[0] || old[1] != entry.getValue()[1]) {
+                changed.put(new File(entry.getKey()), FileStatus.CHANGED);
+            }
+        }
+        for (String path : previous.mFiles.keySet()) {
+            if (!mFiles.containsKey(path)) {
+                changed.put(new File(path), FileStatus.REMOVED);
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.packaging;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.Nullable;
+import com.android.sdklib.build.ApkBuilder;
+import com.android.sdklib.build.ApkCreationException;
+import com.android.sdklib.build.DuplicateFileException;
+import com.android.sdklib.build.IArchiveBuilder;
+import com.android.sdklib.build.SealedApkException;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import sun.misc.BASE64Encoder;
+import sun.security.pkcs.ContentInfo;
+import sun.security.pkcs.PKCS7;
+import sun.security.pkcs.SignerInfo;
+import sun.security.x509.AlgorithmId;
+import sun.security.x509.X500Name;
+
+/**
+ * Builds an apk from the apk of the previous build.
+ * <p>
+ * An entry whose content did not change (same CRC and size as in the previous apk) is copied
+ * with its compressed bytes, without being inflated nor deflated again, and its digest is
+ * taken from the previous signature. Entries of zip inputs (resources.ap_) are always copied
+ * compressed, as aapt wrote them. Only new or modified files are compressed, entries that are
+ * no longer added are dropped, then the central directory and the v1 signature are written.
+ * <p>
+ * Without previous apk, every file is compressed and this is a full build. The apk has the
+ * same content as the one built by {@link ApkBuilder}.
+ */
+public class IncrementalApkBuilder implements IArchiveBuilder {
+    private static final String DIGEST_ALGORITHM = "SHA1";
+    private static final String DIGEST_ATTR = "SHA1-Digest";
+    private static final String DIGEST_MANIFEST_ATTR = "SHA1-Digest-Manifest";
+    private static final String META_INF = "META-INF/";
+
+    @NonNull
+    private final File mApkFile;
+    @Nullable
+    private final File mPreviousApkFile;
+    @Nullable
+    private final PrivateKey mKey;
+    @Nullable
+    private final X509Certificate mCertificate;
+
+    /**
+     * Archive path of the entries, in the order they were added, mapped to the file they
+     * come from
+     */
+    private final Map<String, File> mAddedFiles = new LinkedHashMap<>();
+    /**
+     * Archive path of the entries coming from a zip input, mapped to that zip
+     */
+    private final Map<String, ZipFile> mZipEntries = new HashMap<>();
+    private final ArrayList<ZipFile> mOpenedZips = new ArrayList<>();
+
+    private final byte[] mBuffer = new byte[8192];
+    /**
+     * Not the commons-codec Base64, the old copy in the Android framework shadows the one of the
+     * app and has no encodeBase64String
+     */
+    private final BASE64Encoder mBase64Encoder = new BASE64Encoder();
+    private boolean mIsSealed = false;
+    private int mCopiedCount;
+    private int mCompressedCount;
+
+    /**
+     * @param apkFile         the apk to create
+     * @param previousApkFile the apk of the previous build, may not exist
+     * @param key             the private key used to sign the apk, or null
+     * @param certificate     the certificate used to sign the apk, or null
+     */
+    public IncrementalApkBuilder(@NonNull File apkFile, @Nullable File previousApkFile,
+                                 @Nullable PrivateKey key,
+                                 @Nullable X509Certificate certificate) {
+        mApkFile = apkFile;
+        mPreviousApkFile = previousApkFile;
+        mKey = key;
+        mCertificate = certificate;
+    }
+
+    @Override
+    public void addFile(File file, String archivePath) throws ApkCreationException,
+            SealedApkException, DuplicateFileException {
+        if (mIsSealed) {
+            throw new SealedApkException("APK is already sealed");
+        }
+        File duplicate = mAddedFiles.get(archivePath);
+        if (duplicate != null) {
+            throw new DuplicateFileException(archivePath, duplicate, file);
+        }
+        mAddedFiles.put(archivePath, file);
+    }
+
+    /**
+     * Adds the content of a zip file, except folders and META-INF
+     */
+    public void addZipFile(File zipFile) throws ApkCreationException, SealedApkException,
+            DuplicateFileException {
+        if (mIsSealed) {
+            throw new SealedApkException("APK is already sealed");
+        }
+        ZipFile zip;
+        try {
+            zip = new ZipFile(zipFile);
+        } catch (IOException e) {
+            throw new ApkCreationException(e, "Failed to add %s", zipFile);
+        }
+        mOpenedZips.add(zip);
+
+        Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory() || name.startsWith(META_INF)) {
+                continue;
+            }
+            addFile(zipFile, name);
+            mZipEntries.put(name, zip);
+        }
+    }
+
+    /**
+     * Adds the java resources of a source folder, see {@link ApkBuilder#addSourceFolder(File)}
+     */
+    public void addSourceFolder(File sourceFolder) throws ApkCreationException,
+            SealedApkException, DuplicateFileException {
+        if (mIsSealed) {
+            throw new SealedApkException("APK is already sealed");
+        }
+        ApkBuilder.addSourceFolder(this, sourceFolder);
+    }
+
+    /**
+     * Writes the apk. It is written next to the output and replaces it when complete.
+     */
+    public void sealApk() throws ApkCreationException, SealedApkException {
+        if (mIsSealed) {
+            throw new SealedApkException("APK is already sealed");
+        }
+        mIsSealed = true;
+
+        File tmpFile = new File(mApkFile.getPath() + ".tmp");
+        ZipFile previous = null;
+        ZipArchiveOutputStream out = null;
+        try {
+            previous = openPreviousApk();
+            Manifest previousManifest = readManifest(previous);
+            Manifest manifest = null;
+            if (mKey != null && mCertificate != null) {
+                manifest = new Manifest();
+                Attributes main = manifest.getMainAttributes();
+                main.putValue("Manifest-Version", "1.0");
+                main.putValue("Created-By", "1.0 (Android)");
+            }
+
+            out = new ZipArchiveOutputStream(tmpFile);
+            out.setLevel(Deflater.BEST_COMPRESSION);
+            for (Map.Entry<String, File> added : mAddedFiles.entrySet()) {
+                String path = added.getKey();
+                ZipArchiveEntry previousEntry = previous != null ? previous.getEntry(path) : null;
+
+                String digest;
+                ZipFile zip = mZipEntries.get(path);
+                if (zip != null) {
+                    digest = writeZipEntry(out, zip, zip.getEntry(path), previousEntry,
+                            previousManifest, manifest != null);
+                } else {
+                    digest = writeFile(out, added.getValue(), path, previous, previousEntry);
+                }
+
+                if (manifest != null) {
+                    Attributes attr = new Attributes();
+                    attr.putValue(DIGEST_ATTR, digest);
+                    manifest.getEntries().put(path, attr);
+                }
+            }
+            if (manifest != null) {
+                writeSignature(out, manifest);
+            }
+            out.close();
+            out = null;
+        } catch (Exception e) {
+            tmpFile.delete();
+            throw new ApkCreationException(e, "Failed to seal APK");
+        } finally {
+            closeQuietly(out);
+            closeQuietly(previous);
+            for (ZipFile zip : mOpenedZips) {
+                closeQuietly(zip);
+            }
+        }
+
+        mApkFile.delete();
+        if (!tmpFile.renameTo(mApkFile)) {
+            throw new ApkCreationException("Failed to create %s", mApkFile);
+        }
+    }
+
+    /**
+     * @return number of entries copied without being compressed again
+     */
+    public int getCopiedCount() {
+        return mCopiedCount;
+    }
+
+    /**
+     * @return number of entries compressed because they are new or changed
+     */
+    public int getCompressedCount() {
+        return mCompressedCount;
+    }
+
+    @Nullable
+    private ZipFile openPreviousApk() {
+        if (mPreviousApkFile == null || !mPreviousApkFile.isFile()) {
+            return null;
+        }
+        try {
+            return new ZipFile(mPreviousApkFile);
+        } catch (IOException e) {
+            // corrupted, build from scratch
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Manifest readManifest(@Nullable ZipFile apk) throws IOException {
+        if (apk == null) {
+            return null;
+        }
+        ZipArchiveEntry entry = apk.getEntry(JarFile.MANIFEST_NAME);
+        if (entry == null) {
+            return null;
+        }
+        InputStream in = apk.getInputStream(entry);
+        try {
+            return new Manifest(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static boolean isSameContent(@NonNull ZipArchiveEntry entry, long crc, long size) {
+        return entry.getCrc() == crc && entry.getSize() == size;
+    }
+
+    /**
+     * Copies an entry of a zip input, with its compressed bytes
+     *
+     * @return the digest of the content, null if not signing
+     */
+    @Nullable
+    private String writeZipEntry(ZipArchiveOutputStream out, ZipFile zip, ZipArchiveEntry entry,
+                                 @Nullable ZipArchiveEntry previousEntry,
+                                 @Nullable Manifest previousManifest,
+                                 boolean sign) throws IOException, GeneralSecurityException {
+        String digest = null;
+        if (sign) {
+            if (previousEntry != null && previousManifest != null
+                    && isSameContent(previousEntry, entry.getCrc(), entry.getSize())) {
+                Attributes attr = previousManifest.getAttributes(entry.getName());
+                if (attr != null) {
+                    digest = attr.getValue(DIGEST_ATTR);
+                }
+            }
+            if (digest == null) {
+                InputStream in = zip.getInputStream(entry);
+                try {
+                    digest = digest(in, null);
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        copyRaw(out, zip, entry);
+        return digest;
+    }
+
+    /**
+     * Writes a file, copying the entry of the previous apk if the content did not change
+     *
+     * @return the digest of the content
+     */
+    private String writeFile(ZipArchiveOutputStream out, File file, String path,
+                             @Nullable ZipFile previous, @Nullable ZipArchiveEntry previousEntry)
+            throws IOException, GeneralSecurityException {
+        CRC32 crc = new CRC32();
+        String digest;
+        InputStream in = new FileInputStream(file);
+        try {
+            digest = digest(in, crc);
+        } finally {
+            in.close();
+        }
+
+        if (previous != null && previousEntry != null
+                && isSameContent(previousEntry, crc.getValue(), file.length())) {
+            copyRaw(out, previous, previousEntry);
+            return digest;
+        }
+
+        ZipArchiveEntry entry = new ZipArchiveEntry(path);
+        entry.setTime(file.lastModified());
+        out.putArchiveEntry(entry);
+        in = new FileInputStream(file);
+        try {
+            copy(in, out);
+        } finally {
+            in.close();
+        }
+        out.closeArchiveEntry();
+        mCompressedCount++;
+        return digest;
+    }
+
+    private void copyRaw(ZipArchiveOutputStream out, ZipFile zip, ZipArchiveEntry entry)
+            throws IOException {
+        ZipArchiveEntry copy = new ZipArchiveEntry(entry.getName());
+        copy.setMethod(entry.getMethod());
+        copy.setCrc(entry.getCrc());
+        copy.setSize(entry.getSize());
+        copy.setCompressedSize(entry.getCompressedSize());
+        copy.setTime(entry.getTime());
+
+        InputStream raw = zip.getRawInputStream(entry);
+        try {
+            out.addRawArchiveEntry(copy, raw);
+        } finally {
+            raw.close();
+        }
+        mCopiedCount++;
+    }
+
+    /**
+     * @return base64 encoded digest of the stream, also added to the crc if not null
+     */
+    private String digest(InputStream in, @Nullable CRC32 crc) throws IOException,
+            GeneralSecurityException {
+        MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        int count;
+        while ((count = in.read(mBuffer)) != -1) {
+            md.update(mBuffer, 0, count);
+            if (crc != null) {
+                crc.update(mBuffer, 0, count);
+            }
+        }
+        return mBase64Encoder.encode(md.digest());
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        int count;
+        while ((count = in.read(mBuffer)) != -1) {
+            out.write(mBuffer, 0, count);
+        }
+    }
+
+    /**
+     * Writes MANIFEST.MF, CERT.SF and the signature block, like
+     * {@link com.android.sdklib.internal.build.SignedJarBuilder}
+     */
+    private void writeSignature(ZipArchiveOutputStream out, Manifest manifest)
+            throws IOException, GeneralSecurityException {
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        manifest.write(manifestBytes);
+        writeEntry(out, JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+
+        byte[] signatureFile = createSignatureFile(manifest, manifestBytes.toByteArray());
+        writeEntry(out, "META-INF/CERT.SF", signatureFile);
+
+        Signature signature = Signature.getInstance("SHA1with" + mKey.getAlgorithm());
+        signature.initSign(mKey);
+        signature.update(signatureFile);
+
+        SignerInfo signerInfo = new SignerInfo(
+                new X500Name(mCertificate.getIssuerX500Principal().getName()),
+                mCertificate.getSerialNumber(),
+                AlgorithmId.get(DIGEST_ALGORITHM),
+                AlgorithmId.get(mKey.getAlgorithm()),
+                signature.sign());
+        PKCS7 pkcs7 = new PKCS7(
+                new AlgorithmId[]{AlgorithmId.get(DIGEST_ALGORITHM)},
+                new ContentInfo(ContentInfo.DATA_OID, null),
+                new X509Certificate[]{mCertificate},
+                new SignerInfo[]{signerInfo});
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        pkcs7.encodeSignedData(block);
+        writeEntry(out, "META-INF/CERT." + mKey.getAlgorithm(), block.toByteArray());
+    }
+
+    private byte[] createSignatureFile(Manifest manifest, byte[] manifestBytes)
+            throws IOException, GeneralSecurityException {
+        Manifest sf = new Manifest();
+        Attributes main = sf.getMainAttributes();
+        main.putValue("Signature-Version", "1.0");
+        main.putValue("Created-By", "1.0 (Android)");
+
+        MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        main.putValue(DIGEST_MANIFEST_ATTR, mBase64Encoder.encode(md.digest(manifestBytes)));
+
+        for (Map.Entry<String, Attributes> entry : manifest.getEntries().entrySet()) {
+            // digest of the manifest stanza of this entry
+            StringBuilder stanza = new StringBuilder();
+            stanza.append("Name: ").append(entry.getKey()).append("\r\n");
+            for (Map.Entry<Object, Object> att : entry.getValue().entrySet()) {
+                stanza.append(att.getKey()).append(": ").append(att.getValue()).append("\r\n");
+            }
+            stanza.append("\r\n");
+
+            Attributes sfAttr = new Attributes();
+            sfAttr.putValue(DIGEST_ATTR,
+                    mBase64Encoder.encode(md.digest(stanza.toString().getBytes("UTF-8"))));
+            sf.getEntries().put(entry.getKey(), sfAttr);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sf.write(out);
+        // java.util.jar of Android up to 1.6 fails on signature files of a multiple of 1024 bytes
+        if (out.size() % 1024 == 0) {
+            out.write('\r');
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeEntry(ZipArchiveOutputStream out, String path, byte[] content)
+            throws IOException {
+        out.putArchiveEntry(new ZipArchiveEntry(path));
+        out.write(content);
+        out.closeArchiveEntry();
+    }
+
+    private static void closeQuietly(@Nullable ZipFile zip) {
+        ZipFile.closeQuietly(zip);
+    }
+
+    private static void closeQuietly(@Nullable ZipArchiveOutputStream out) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // pass
+            }
+        }
+    }
+}
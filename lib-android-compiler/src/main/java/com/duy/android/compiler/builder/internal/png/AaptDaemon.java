@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.png;
+
+import com.android.annotations.NonNull;
+import com.android.builder.png.AaptProcess;
+import com.android.builder.tasks.Job;
+import com.android.builder.tasks.JobContext;
+import com.android.builder.tasks.Task;
+import com.android.utils.ILogger;
+import com.android.utils.NullLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long running aapt processes, started with {@code aapt m}, so crunching an image does not start
+ * a new process.
+ * <p>
+ * There is one daemon per aapt executable. It starts up to one process per cpu, on demand, and
+ * a process that exits or crashes is replaced by a new one for the next request. The processes
+ * are stopped once no image was crunched for {@link #IDLE_TIMEOUT_SECONDS}, the next build
+ * starts them again.
+ */
+public class AaptDaemon {
+    private static final Map<String, AaptDaemon> sDaemons = new HashMap<>();
+
+    /**
+     * Long enough to keep the processes between the builds of an edit session
+     */
+    private static final int IDLE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * A failed request is tried again once with a new process
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final ScheduledExecutorService sIdleTimer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "aapt daemon idle timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    @NonNull
+    private final File mAaptFile;
+    private final int mMaxProcesses;
+
+    /**
+     * Processes waiting for a request
+     */
+    private final LinkedBlockingQueue<DaemonProcess> mIdleProcesses = new LinkedBlockingQueue<>();
+    /**
+     * All the processes, idle or busy
+     */
+    private final List<DaemonProcess> mProcesses = new ArrayList<>();
+    /**
+     * False when aapt can not run in daemon mode, it has to be started for each request
+     */
+    private volatile boolean mAvailable = true;
+    /**
+     * Number of running requests, guarded by this
+     */
+    private int mRequestCount;
+    /**
+     * Incremented by each request, an idle shutdown scheduled before a request is ignored
+     */
+    private int mRequestGeneration;
+
+    private AaptDaemon(@NonNull File aaptFile, int maxProcesses) {
+        mAaptFile = aaptFile;
+        mMaxProcesses = maxProcesses;
+    }
+
+    /**
+     * @return the daemon of the given aapt executable, created on the first call
+     */
+    @NonNull
+    public static synchronized AaptDaemon get(@NonNull File aaptFile) {
+        AaptDaemon daemon = sDaemons.get(aaptFile.getAbsolutePath());
+        if (daemon == null) {
+            daemon = new AaptDaemon(aaptFile, Runtime.getRuntime().availableProcessors());
+            sDaemons.put(aaptFile.getAbsolutePath(), daemon);
+        }
+        return daemon;
+    }
+
+    /**
+     * @return false if aapt does not support the daemon mode, the caller should start aapt itself
+     */
+    public boolean isAvailable() {
+        return mAvailable;
+    }
+
+    /**
+     * Crunches a png file, blocks until it is written.
+     *
+     * @param logger receives the messages of aapt for this request
+     * @throws IOException if aapt failed to crunch the file, or can not run in daemon mode
+     */
+    public void crunch(@NonNull File from, @NonNull File to, @NonNull ILogger logger)
+            throws IOException, InterruptedException {
+        startRequest();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                DaemonProcess process = acquire(logger);
+                boolean success = false;
+                try {
+                    success = crunch(process.mProcess, from, to);
+                } catch (IOException e) {
+                    // the process exited, its input is closed
+                    logger.warning("aapt daemon failed: %1$s", e.getMessage());
+                } finally {
+                    release(process);
+                }
+                if (success) {
+                    return;
+                }
+                // retry only when the process died, a bad image fails again
+                if (process.mProcess.isReady() || attempt >= MAX_ATTEMPTS) {
+                    throw new IOException("Failed to crunch " + from);
+                }
+            }
+        } finally {
+            endRequest();
+        }
+    }
+
+    private boolean crunch(@NonNull AaptProcess process, @NonNull File from, @NonNull File to)
+            throws IOException, InterruptedException {
+        Job<AaptProcess> job = new Job<>("Crunch " + from.getName(), new Task<AaptProcess>() {
+            @Override
+            public void run(@NonNull Job<AaptProcess> job,
+                            @NonNull JobContext<AaptProcess> context) throws IOException {
+                // not queued, the request is sent directly to the process
+            }
+        });
+        process.crunch(from, to, job);
+        return job.await();
+    }
+
+    private synchronized void startRequest() {
+        mRequestCount++;
+        mRequestGeneration++;
+    }
+
+    private synchronized void endRequest() {
+        if (--mRequestCount > 0) {
+            return;
+        }
+        final int generation = mRequestGeneration;
+        sIdleTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                shutdownIfIdle(generation);
+            }
+        }, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return an idle process, a new one if none is idle and the limit is not reached
+     */
+    @NonNull
+    private DaemonProcess acquire(@NonNull ILogger logger)
+            throws IOException, InterruptedException {
+        if (!mAvailable) {
+            throw new IOException("aapt can not run in daemon mode");
+        }
+        while (true) {
+            DaemonProcess process = mIdleProcesses.poll();
+            if (process == null) {
+                synchronized (this) {
+                    if (!mAvailable) {
+                        throw new IOException("aapt can not run in daemon mode");
+                    }
+                    if (mProcesses.size() < mMaxProcesses) {
+                        process = start(logger);
+                        mProcesses.add(process);
+                        return process;
+                    }
+                }
+                // wait for a process to be released, or to exit, freeing a slot
+                process = mIdleProcesses.poll(100, TimeUnit.MILLISECONDS);
+                if (process == null) {
+                    continue;
+                }
+            }
+            if (process.mProcess.isReady()) {
+                process.mLogger.mDelegate = logger;
+                return process;
+            }
+            // exited since its last request
+            synchronized (this) {
+                mProcesses.remove(process);
+            }
+        }
+    }
+
+    private void release(@NonNull DaemonProcess process) {
+        // the output of an idle process is not reported to the logger of the last request
+        process.mLogger.mDelegate = NullLogger.getLogger();
+        if (process.mProcess.isReady()) {
+            mIdleProcesses.add(process);
+        } else {
+            synchronized (this) {
+                mProcesses.remove(process);
+            }
+        }
+    }
+
+    @NonNull
+    private DaemonProcess start(@NonNull ILogger logger) throws IOException, InterruptedException {
+        RequestLogger processLogger = new RequestLogger();
+        processLogger.mDelegate = logger;
+        try {
+            AaptProcess process =
+                    new AaptProcess.Builder(mAaptFile.getAbsolutePath(), processLogger).start();
+            process.waitForReady();
+            return new DaemonProcess(process, processLogger);
+        } catch (RuntimeException e) {
+            // old aapt without the 'm' command, or a process that can not start
+            mAvailable = false;
+            throw new IOException("Can not start aapt in daemon mode", e);
+        }
+    }
+
+    /**
+     * Stops the processes if no request was started since the shutdown was scheduled
+     */
+    private synchronized void shutdownIfIdle(int generation) {
+        if (mRequestCount > 0 || generation != mRequestGeneration) {
+            return;
+        }
+        mIdleProcesses.clear();
+        for (DaemonProcess process : mProcesses) {
+            try {
+                process.mProcess.shutdown();
+            } catch (Exception e) {
+                // nothing to report to, the process is killed anyway
+            }
+        }
+        mProcesses.clear();
+    }
+
+    private static class DaemonProcess {
+        @NonNull
+        final AaptProcess mProcess;
+        @NonNull
+        final RequestLogger mLogger;
+
+        DaemonProcess(@NonNull AaptProcess process, @NonNull RequestLogger logger) {
+            mProcess = process;
+            mLogger = logger;
+        }
+    }
+
+    /**
+     * Logger given to a process when it is started, it forwards the messages to the logger of
+     * the request being processed.
+     */
+    private static class RequestLogger implements ILogger {
+        @NonNull
+        volatile ILogger mDelegate = NullLogger.getLogger();
+
+        @Override
+        public void error(Throwable t, String msgFormat, Object... args) {
+            mDelegate.error(t, msgFormat, args);
+        }
+
+        @Override
+        public void warning(@NonNull String msgFormat, Object... args) {
+            mDelegate.warning(msgFormat, args);
+        }
+
+        @Override
+        public void info(@NonNull String msgFormat, Object... args) {
+            mDelegate.info(msgFormat, args);
+        }
+
+        @Override
+        public void verbose(@NonNull String msgFormat, Object... args) {
+            mDelegate.verbose(msgFormat, args);
+        }
+    }
+}
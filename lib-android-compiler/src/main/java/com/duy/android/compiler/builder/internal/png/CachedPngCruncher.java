@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.png;
+
+import com.android.SdkConstants;
+import com.android.annotations.NonNull;
+import com.android.ide.common.internal.PngCruncher;
+import com.android.ide.common.internal.PngException;
+import com.android.utils.ILogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Crunch png files with aapt, and keep the crunched files in a cache
+ * folder named by the hash of their content, so an image is crunched only once whatever the
+ * number of builds.
+ * <p>
+ * The requests are run synchronously on the calling thread. The merged resource writer calls
+ * it from its own thread pool, so the images of a merge are crunched in parallel. They are sent
+ * to the long running processes of {@link AaptDaemon}, or to a new {@code aapt singleCrunch}
+ * process if aapt can not run in daemon mode.
+ */
+public class CachedPngCruncher implements PngCruncher {
+    @NonNull
+    private final File mAaptFile;
+    @NonNull
+    private final File mCacheDir;
+    @NonNull
+    private final AaptDaemon mDaemon;
+    @NonNull
+    private final ILogger mLogger;
+    private final AtomicInteger mCrunchedCount = new AtomicInteger();
+    private final AtomicInteger mCachedCount = new AtomicInteger();
+
+    /**
+     * @param aaptFile the aapt executable
+     * @param cacheDir folder of the crunched files, can be shared by several projects
+     * @param logger   receives the messages of aapt
+     */
+    public CachedPngCruncher(@NonNull File aaptFile, @NonNull File cacheDir,
+                             @NonNull ILogger logger) {
+        mAaptFile = aaptFile;
+        mCacheDir = cacheDir;
+        mDaemon = AaptDaemon.get(aaptFile);
+        mLogger = logger;
+    }
+
+    @Override
+    public int start() {
+        return 0;
+    }
+
+    @Override
+    public void crunchPng(int key, @NonNull File from, @NonNull File to) throws PngException {
+        try {
+            File cachedFile = getCachedFile(from);
+            if (!cachedFile.isFile()) {
+                // crunch to a temporary file first, so another thread or an interrupted build
+                // never sees a partially written file
+                File tmpFile = File.createTempFile("crunch", SdkConstants.DOT_PNG, mCacheDir);
+                try {
+                    crunch(from, tmpFile);
+                    if (!tmpFile.renameTo(cachedFile) && !cachedFile.isFile()) {
+                        throw new IOException("Failed to create " + cachedFile);
+                    }
+                } finally {
+                    tmpFile.delete();
+                }
+                mCrunchedCount.incrementAndGet();
+            } else {
+                mCachedCount.incrementAndGet();
+            }
+            Files.copy(cachedFile, to);
+        } catch (IOException e) {
+            throw new PngException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PngException(e);
+        }
+    }
+
+    @Override
+    public void end(int key) {
+        // nothing to do, it's all synchronous.
+    }
+
+    /**
+     * @return number of images crunched by aapt
+     */
+    public int getCrunchedCount() {
+        return mCrunchedCount.get();
+    }
+
+    /**
+     * @return number of images copied from the cache
+     */
+    public int getCachedCount() {
+        return mCachedCount.get();
+    }
+
+    /**
+     * The aapt executable is part of the key, a new version may crunch differently. Nine patch
+     * files keep their extension, aapt compiles them differently.
+     */
+    private File getCachedFile(File from) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putBytes(Files.toByteArray(from));
+        hasher.putLong(mAaptFile.length());
+        hasher.putLong(mAaptFile.lastModified());
+        String extension = from.getName().endsWith(SdkConstants.DOT_9PNG)
+                ? SdkConstants.DOT_9PNG : SdkConstants.DOT_PNG;
+        mCacheDir.mkdirs();
+        return new File(mCacheDir, hasher.hash().toString() + extension);
+    }
+
+    private void crunch(File from, File to) throws IOException, InterruptedException {
+        if (mDaemon.isAvailable()) {
+            try {
+                mDaemon.crunch(from, to, mLogger);
+                return;
+            } catch (IOException e) {
+                if (mDaemon.isAvailable()) {
+                    throw e;
+                }
+                // no daemon mode, start aapt for this image
+            }
+        }
+        Process process = new ProcessBuilder(mAaptFile.getAbsolutePath(), "s",
+                "-i", from.getAbsolutePath(),
+                "-o", to.getAbsolutePath())
+                .redirectErrorStream(true)
+                .start();
+        InputStream output = process.getInputStream();
+        byte[] bytes;
+        try {
+            bytes = ByteStreams.toByteArray(output);
+        } finally {
+            output.close();
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || to.length() == 0) {
+            throw new IOException("Failed to crunch " + from + ", aapt exit code " + exitCode
+                    + "\n" + new String(bytes));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.shrink;
+
+import com.android.annotations.NonNull;
+import com.duy.multidex.MainDexListBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Removes the classes that can not be reached from the entry points of an application.
+ * <p>
+ * Reachability is computed on class files: a class is kept if it is an entry point, matches a
+ * keep rule, or is referenced from the constant pool or the hierarchy of a kept class. Classes
+ * are kept or removed as a whole, members of kept classes are never removed.
+ */
+public class ClassShrinker {
+    private static final String CLASS_EXTENSION = ".class";
+
+    /**
+     * Binary name (a/b/C) of every class of the inputs, mapped to its input. If a class is
+     * found in several inputs, the first one wins.
+     */
+    private final Map<String, File> mClasses = new TreeMap<>();
+    @NonNull
+    private final List<File> mInputs;
+
+    /**
+     * @param inputs class folders and jars, in class path order
+     */
+    public ClassShrinker(@NonNull List<File> inputs) throws IOException {
+        mInputs = inputs;
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                indexFolder(input, input, "");
+            } else if (input.isFile()) {
+                ZipFile zipFile = new ZipFile(input);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        addClass(entry.getName(), input);
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            }
+        }
+    }
+
+    private void indexFolder(File input, File folder, String prefix) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                indexFolder(input, file, prefix + file.getName() + "/");
+            } else {
+                addClass(prefix + file.getName(), input);
+            }
+        }
+    }
+
+    private void addClass(String path, File input) {
+        if (path.endsWith(CLASS_EXTENSION)) {
+            String name = path.substring(0, path.length() - CLASS_EXTENSION.length());
+            if (!mClasses.containsKey(name)) {
+                mClasses.put(name, input);
+            }
+        }
+    }
+
+    /**
+     * @return number of classes of the inputs
+     */
+    public int getClassCount() {
+        return mClasses.size();
+    }
+
+    /**
+     * @param entryPoints binary names (a/b/C) of the classes used by the system, e.g. the
+     *                    components declared in the manifest
+     * @param rules       additional classes to keep
+     * @return binary names of the classes reachable from the entry points and the rules
+     */
+    @NonNull
+    public Set<String> computeKeptClasses(@NonNull Collection<String> entryPoints,
+                                          @NonNull KeepRules rules) throws IOException {
+        Set<String> roots = new HashSet<>(entryPoints);
+        for (String name : mClasses.keySet()) {
+            if (rules.isKept(name.replace('/', '.'))) {
+                roots.add(name);
+            }
+        }
+
+        StringBuilder classPath = new StringBuilder();
+        for (File input : mInputs) {
+            if (!input.exists()) {
+                continue;
+            }
+            if (classPath.length() != 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(input.getAbsolutePath());
+        }
+
+        // the main dex list of these roots is exactly their transitive closure
+        MainDexListBuilder builder = new MainDexListBuilder(false, roots, classPath.toString());
+        Set<String> kept = new HashSet<>();
+        for (String fileName : builder.getMainDexList()) {
+            kept.add(fileName.substring(0, fileName.length() - CLASS_EXTENSION.length()));
+        }
+        return kept;
+    }
+
+    /**
+     * Write the kept classes into a jar
+     */
+    public void writeTo(@NonNull File outJar, @NonNull Set<String> keptClasses) throws IOException {
+        outJar.getParentFile().mkdirs();
+        ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outJar)));
+        Map<File, ZipFile> openedJars = new TreeMap<>();
+        byte[] buffer = new byte[8192];
+        try {
+            for (Map.Entry<String, File> entry : mClasses.entrySet()) {
+                String name = entry.getKey();
+                if (!keptClasses.contains(name)) {
+                    continue;
+                }
+                String path = name + CLASS_EXTENSION;
+                File input = entry.getValue();
+
+                InputStream in;
+                if (input.isDirectory()) {
+                    in = new FileInputStream(new File(input, path));
+                } else {
+                    ZipFile zipFile = openedJars.get(input);
+                    if (zipFile == null) {
+                        zipFile = new ZipFile(input);
+                        openedJars.put(input, zipFile);
+                    }
+                    in = zipFile.getInputStream(zipFile.getEntry(path));
+                }
+                try {
+                    out.putNextEntry(new ZipEntry(path));
+                    copy(in, out, buffer);
+                    out.closeEntry();
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            for (ZipFile zipFile : openedJars.values()) {
+                zipFile.close();
+            }
+            out.close();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2018 Tran Le Duy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.duy.android.compiler.builder.internal.shrink;
+
+import com.android.annotations.NonNull;
+import com.duy.common.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Class keep rules, read from a subset of the ProGuard configuration syntax.
+ * <p>
+ * Only the class specification of {@code -keep} and {@code -keepclasseswithmembers} is used:
+ * a class matching the name pattern is kept with all of its members. Member specifications
+ * and annotation or inheritance conditions are ignored, which keeps more classes than ProGuard
+ * would but never less. Rules that do not prevent shrinking ({@code -keepnames},
+ * {@code -keepclassmembers}, {@code allowshrinking}...) are ignored.
+ * <p>
+ * The rules written by aapt with {@code -G} use this syntax.
+ */
+public class KeepRules {
+    private final ArrayList<Pattern> mPatterns = new ArrayList<>();
+
+    /**
+     * Convert a ProGuard class name pattern into a regular expression
+     * <p>
+     * ? matches any single character of a class name, but not the package separator,
+     * * matches any part of a class name not containing the package separator,
+     * ** matches any part of a class name, possibly containing any number of package separators.
+     * A pattern which is only * matches any class, like in ProGuard. Any other character,
+     * including the '$' of inner classes, is matched literally.
+     */
+    @NonNull
+    static Pattern toRegex(@NonNull String classPattern) {
+        if (classPattern.equals("*")) {
+            return Pattern.compile(".*");
+        }
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < classPattern.length(); i++) {
+            char c = classPattern.charAt(i);
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            if (c == '?') {
+                regex.append("[^.]");
+            } else if (i + 1 < classPattern.length() && classPattern.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else {
+                regex.append("[^.]*");
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Add the rules of the given configuration file, if it exists
+     */
+    public void parse(@NonNull File file) throws IOException {
+        if (file.isFile()) {
+            parse(IOUtils.toString(file));
+        }
+    }
+
+    public void parse(@NonNull String content) {
+        // drop comments and member specifications
+        content = content.replaceAll("#[^\\n]*", " ");
+        content = content.replaceAll("(?s)\\{.*?\\}", " ");
+
+        String[] tokens = content.trim().split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            if (!isShrinkingKeepOption(tokens[i])) {
+                continue;
+            }
+            // skip modifiers and annotations up to the class keyword
+            int j = i + 1;
+            while (j < tokens.length && !tokens[j].startsWith("-")
+                    && !isClassKeyword(tokens[j])) {
+                j++;
+            }
+            if (j + 1 < tokens.length && isClassKeyword(tokens[j])) {
+                for (String name : tokens[j + 1].split(",")) {
+                    if (!name.isEmpty() && !name.startsWith("!")) {
+                        mPatterns.add(toRegex(name));
+                    }
+                }
+            }
+            i = j;
+        }
+    }
+
+    private static boolean isShrinkingKeepOption(String token) {
+        String[] parts = token.split(",");
+        String option = parts[0];
+        if (!option.equals("-keep") && !option.equals("-keepclasseswithmembers")) {
+            return false;
+        }
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].equals("allowshrinking")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isClassKeyword(String token) {
+        return token.equals("class") || token.equals("interface") || token.equals("enum")
+                || token.equals("@interface");
+    }
+
+    /**
+     * @param className fully qualified name, using '.' as package separator and '$' for inner
+     *                  classes
+     * @return true if one of the rules keeps the class
+     */
+    public boolean isKept(@NonNull String className) {
+        for (Pattern pattern : mPatterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return mPatterns.isEmpty();
+    }
+}
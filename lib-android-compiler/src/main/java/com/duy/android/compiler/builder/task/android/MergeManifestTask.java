@@ -2,110 +2,51 @@ package com.duy.android.compiler.builder.task.android;
 
 import com.android.annotations.NonNull;
 import com.android.annotations.Nullable;
+import com.android.builder.core.VariantConfiguration;
 import com.android.builder.dependency.ManifestDependency;
-import com.android.ide.common.internal.CommandLineRunner;
-import com.android.manifmerger.ICallback;
-import com.android.manifmerger.ManifestMerger;
-import com.android.manifmerger.MergerLog;
-import com.android.sdklib.IAndroidTarget;
-import com.android.sdklib.repository.FullRevision;
+import com.android.manifmerger.ManifestMerger2;
+import com.android.manifmerger.MergingReport;
+import com.android.manifmerger.XmlDocument;
 import com.android.utils.ILogger;
-import com.android.utils.SdkUtils;
+import com.android.utils.Pair;
+import com.android.utils.StdLogger;
 import com.duy.android.compiler.builder.IBuilder;
-import com.duy.android.compiler.builder.sdk.SdkInfo;
-import com.duy.android.compiler.builder.sdk.TargetInfo;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.project.AndroidAppProject;
-import com.google.common.collect.Lists;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Preconditions.checkState;
 
+/**
+ * Merge the manifests of the libraries into the manifest of the application, the result is
+ * written to {@link AndroidAppProject#getMergedManifestFile()}.
+ * <p>
+ * All the manifests are given to one {@link ManifestMerger2} invocation: each file is parsed
+ * once and the levels of the library graph are merged in memory, without intermediate files.
+ * <p>
+ * The merge is skipped when the hash of its inputs (content of the manifests, placeholders and
+ * overrides) is the same as the one of the previous merge.
+ */
 public class MergeManifestTask extends Task<AndroidAppProject> {
-    private static final String TAG = "MergeManifestTask";
+    private static final String FN_INPUTS_HASH = "inputs.sha1";
 
-    private static final FullRevision MIN_BUILD_TOOLS_REV = new FullRevision(19, 0, 0);
+    private static final String PLACEHOLDER_APPLICATION_ID = "applicationId";
 
-
-    private final ILogger mLogger;
-    private final CommandLineRunner mCmdLineRunner;
-    private final boolean mVerboseExec;
-
-    private String mCreatedBy;
-
-    private SdkInfo mSdkInfo;
-    private TargetInfo mTargetInfo;
-
-    public MergeManifestTask(IBuilder<? extends AndroidAppProject> builder,
-                             @NonNull ILogger log,
-                             boolean verboseExec) {
+    public MergeManifestTask(IBuilder<? extends AndroidAppProject> builder) {
         super(builder);
-        mLogger = log;
-        mVerboseExec = verboseExec;
-        mCmdLineRunner = new CommandLineRunner(mLogger);
-    }
-
-    @NonNull
-    private static Map<String, String> getAttributeInjectionMap(
-            int versionCode,
-            @Nullable String versionName,
-            @Nullable String minSdkVersion,
-            int targetSdkVersion) {
-
-        Map<String, String> attributeInjection = Maps.newHashMap();
-
-        if (versionCode != -1) {
-            attributeInjection.put(
-                    "/manifest|http://schemas.android.com/apk/res/android versionCode",
-                    Integer.toString(versionCode));
-        }
-
-        if (versionName != null) {
-            attributeInjection.put(
-                    "/manifest|http://schemas.android.com/apk/res/android versionName",
-                    versionName);
-        }
-
-        if (minSdkVersion != null) {
-            attributeInjection.put(
-                    "/manifest/uses-sdk|http://schemas.android.com/apk/res/android minSdkVersion",
-                    minSdkVersion);
-        }
-
-        if (targetSdkVersion != -1) {
-            attributeInjection.put(
-                    "/manifest/uses-sdk|http://schemas.android.com/apk/res/android targetSdkVersion",
-                    Integer.toString(targetSdkVersion));
-        }
-        return attributeInjection;
-    }
-
-    /**
-     * Sets the SdkInfo and the targetInfo on the builder. This is required to actually
-     * build (some of the steps).
-     *
-     * @param sdkInfo    the SdkInfo
-     * @param targetInfo the TargetInfo
-     *                   <p>
-     *                   //     * @see com.android.builder.sdk.SdkLoader
-     */
-    public void setTargetInfo(@NonNull SdkInfo sdkInfo, @NonNull TargetInfo targetInfo) {
-        mSdkInfo = sdkInfo;
-        mTargetInfo = targetInfo;
-
-        if (mTargetInfo.getBuildTools().getRevision().compareTo(MIN_BUILD_TOOLS_REV) < 0) {
-            throw new IllegalArgumentException(String.format(
-                    "The SDK Build Tools revision (%1$s) is too low. Minimum required is %2$s",
-                    mTargetInfo.getBuildTools().getRevision(), MIN_BUILD_TOOLS_REV));
-        }
     }
 
     @Override
@@ -115,164 +56,161 @@ public class MergeManifestTask extends Task<AndroidAppProject> {
 
     @Override
     public boolean doFullTaskAction() throws Exception {
-        mBuilder.stderr(TAG + ": Not impalement yet");
+        File mainManifest = mProject.getManifestFile();
+        // library manifests commonly use ${applicationId} in authorities and permissions
+        Map<String, String> placeholders = Maps.newHashMap();
+        placeholders.put(PLACEHOLDER_APPLICATION_ID,
+                VariantConfiguration.getManifestPackage(mainManifest));
+
+        if (!processManifest(mainManifest, Collections.<File>emptyList(), mProject.getLibraries(),
+                null, placeholders, mProject.getMergedManifestFile())) {
+            mBuilder.stdout("Manifest is up to date");
+        }
         return true;
     }
 
     /**
-     * Merges all the manifests into a single manifest
+     * Merges all the manifests into a single manifest, unless the inputs did not change since
+     * the previous merge.
      *
-     * @param mainManifest        The main manifest of the application.
-     * @param manifestOverlays    manifest overlays coming from flavors and build types
-     * @param libraries           the library dependency graph
-     * @param packageOverride     a package name override. Can be null.
-     * @param versionCode         a version code to inject in the manifest or -1 to do nothing.
-     * @param versionName         a version name to inject in the manifest or null to do nothing.
-     * @param minSdkVersion       a minSdkVersion to inject in the manifest or -1 to do nothing.
-     * @param targetSdkVersion    a targetSdkVersion to inject in the manifest or -1 to do nothing.
-     * @param outManifestLocation the output location for the merged manifest
-     *                            //     * @see com.android.builder.VariantConfiguration#getMainManifest()
-     *                            //     * @see com.android.builder.VariantConfiguration#getManifestOverlays()
-     *                            //     * @see com.android.builder.VariantConfiguration#getDirectLibraries()
-     *                            //     * @see com.android.builder.VariantConfiguration#getMergedFlavor()
-     *                            //     * @see DefaultProductFlavor#getVersionCode()
-     *                            //     * @see DefaultProductFlavor#getVersionName()
-     *                            //     * @see DefaultProductFlavor#getMinSdkVersion()
-     *                            //     * @see DefaultProductFlavor#getTargetSdkVersion()
+     * @param mainManifest     The main manifest of the application.
+     * @param manifestOverlays manifest overlays coming from flavors and build types, highest
+     *                         priority first
+     * @param libraries        the library dependency graph
+     * @param packageOverride  a package name override. Can be null.
+     * @param placeholders     values of the ${name} placeholders of the manifests
+     * @param outManifest      the output location for the merged manifest
+     * @return false if the output is up to date and the merge was skipped
      */
-    public void processManifest(
+    public boolean processManifest(
             @NonNull File mainManifest,
             @NonNull List<File> manifestOverlays,
             @NonNull List<? extends ManifestDependency> libraries,
-            String packageOverride,
-            int versionCode,
-            String versionName,
-            @Nullable String minSdkVersion,
-            int targetSdkVersion,
-            @NonNull String outManifestLocation) {
+            @Nullable String packageOverride,
+            @NonNull Map<String, String> placeholders,
+            @NonNull File outManifest) throws IOException, ManifestMerger2.MergeFailureException {
         checkNotNull(mainManifest, "mainManifest cannot be null.");
         checkNotNull(manifestOverlays, "manifestOverlays cannot be null.");
         checkNotNull(libraries, "libraries cannot be null.");
-        checkNotNull(outManifestLocation, "outManifestLocation cannot be null.");
-        checkState(mTargetInfo != null,
-                "Cannot call processManifest() before setTargetInfo() is called.");
+        checkNotNull(outManifest, "outManifest cannot be null.");
 
-        final IAndroidTarget target = mTargetInfo.getTarget();
+        ImmutableList<Pair<String, File>> libraryManifests = collectLibraries(libraries);
 
-        ICallback callback = new ICallback() {
-            @Override
-            public int queryCodenameApiLevel(@NonNull String codename) {
-                if (codename.equals(target.getVersion().getCodename())) {
-                    return target.getVersion().getApiLevel();
-                }
-                return ICallback.UNKNOWN_CODENAME;
-            }
-        };
-
-        try {
-            Map<String, String> attributeInjection = getAttributeInjectionMap(
-                    versionCode, versionName, minSdkVersion, targetSdkVersion);
-
-            if (manifestOverlays.isEmpty() && libraries.isEmpty()) {
-                // if no manifest to merge, just copy to location, unless we have to inject
-                // attributes
-                if (attributeInjection.isEmpty() && packageOverride == null) {
-                    SdkUtils.copyXmlWithSourceReference(mainManifest,
-                            new File(outManifestLocation));
-                } else {
-                    ManifestMerger merger = new ManifestMerger(MergerLog.wrapSdkLog(mLogger),
-                            callback);
-                    doMerge(merger, new File(outManifestLocation), mainManifest,
-                            attributeInjection, packageOverride);
-                }
-            } else {
-                File outManifest = new File(outManifestLocation);
-
-                // first merge the app manifest.
-                if (!manifestOverlays.isEmpty()) {
-                    File mainManifestOut = outManifest;
-
-                    // if there is also libraries, put this in a temp file.
-                    if (!libraries.isEmpty()) {
-                        // TODO find better way of storing intermediary file?
-                        mainManifestOut = File.createTempFile("manifestMerge", ".xml");
-                        mainManifestOut.deleteOnExit();
-                    }
-
-                    ManifestMerger merger = new ManifestMerger(MergerLog.wrapSdkLog(mLogger),
-                            callback);
-                    doMerge(merger, mainManifestOut, mainManifest, manifestOverlays,
-                            attributeInjection, packageOverride);
-
-                    // now the main manifest is the newly merged one
-                    mainManifest = mainManifestOut;
-                    // and the attributes have been inject, no need to do it below
-                    attributeInjection = null;
-                }
+        File hashFile = new File(mProject.getMergeManifestIncrementalDir(), FN_INPUTS_HASH);
+        String hash = hashInputs(mainManifest, manifestOverlays, libraryManifests,
+                packageOverride, placeholders, outManifest);
+        if (outManifest.isFile() && hashFile.isFile()
+                && hash.equals(Files.toString(hashFile, Charsets.UTF_8))) {
+            return false;
+        }
+        hashFile.delete();
+
+        ILogger logger = mBuilder.getLogger() != null
+                ? mBuilder.getLogger() : new StdLogger(StdLogger.Level.WARNING);
+        ManifestMerger2.Invoker invoker = ManifestMerger2.newMerger(mainManifest, logger,
+                ManifestMerger2.MergeType.APPLICATION)
+                .setPlaceHolderValues(placeholders)
+                .addFlavorAndBuildTypeManifests(
+                        manifestOverlays.toArray(new File[manifestOverlays.size()]))
+                .addLibraryManifests(libraryManifests)
+                .withFeatures(ManifestMerger2.Invoker.Feature.REMOVE_TOOLS_DECLARATIONS);
+        if (packageOverride != null) {
+            invoker.setOverride(ManifestMerger2.SystemProperty.PACKAGE, packageOverride);
+        }
 
-                if (!libraries.isEmpty()) {
-                    // recursively merge all manifests starting with the leaves and up toward the
-                    // root (the app)
-                    mergeLibraryManifests(mainManifest, libraries,
-                            new File(outManifestLocation), attributeInjection, packageOverride,
-                            callback);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        MergingReport mergingReport = invoker.merge();
+        switch (mergingReport.getResult()) {
+            case WARNING:
+                mergingReport.log(logger);
+                // fall through since these are just warnings.
+            case SUCCESS:
+                XmlDocument xmlDocument = mergingReport.getMergedDocument().get();
+                outManifest.getParentFile().mkdirs();
+                Files.write(xmlDocument.prettyPrint(), outManifest, Charsets.UTF_8);
+                break;
+            case ERROR:
+                mergingReport.log(logger);
+                throw new RuntimeException(mergingReport.getReportString());
+            default:
+                throw new RuntimeException("Unhandled result type : " + mergingReport.getResult());
         }
+
+        hashFile.getParentFile().mkdirs();
+        Files.write(hash, hashFile, Charsets.UTF_8);
+        return true;
     }
 
     /**
-     * Merges library manifests into a main manifest.
-     *
-     * @param mainManifest    the main manifest
-     * @param directLibraries the libraries to merge
-     * @param outManifest     the output file
-     * @throws IOException
+     * @return the manifests of the libraries and their dependencies, in priority order. A
+     * library reached through several paths is merged once.
      */
-    private void mergeLibraryManifests(
-            File mainManifest,
-            Iterable<? extends ManifestDependency> directLibraries,
-            File outManifest, Map<String, String> attributeInjection,
-            String packageOverride,
-            @NonNull ICallback callback)
-            throws IOException {
-
-        List<File> manifests = Lists.newArrayList();
-        for (ManifestDependency library : directLibraries) {
-            Collection<? extends ManifestDependency> subLibraries = library.getManifestDependencies();
-            if (subLibraries.isEmpty()) {
-                manifests.add(library.getManifest());
-            } else {
-                File mergeLibManifest = File.createTempFile("manifestMerge", ".xml");
-                mergeLibManifest.deleteOnExit();
-
-                // don't insert the attribute injection into libraries
-                mergeLibraryManifests(
-                        library.getManifest(), subLibraries, mergeLibManifest, null, null, callback);
+    private static ImmutableList<Pair<String, File>> collectLibraries(
+            List<? extends ManifestDependency> libraries) {
+        ImmutableList.Builder<Pair<String, File>> manifestFiles = ImmutableList.builder();
+        collectLibraries(libraries, manifestFiles, new HashSet<File>());
+        return manifestFiles.build();
+    }
 
-                manifests.add(mergeLibManifest);
+    private static void collectLibraries(List<? extends ManifestDependency> libraries,
+                                         ImmutableList.Builder<Pair<String, File>> manifestFiles,
+                                         Set<File> visited) {
+        for (ManifestDependency library : libraries) {
+            File manifest = library.getManifest();
+            if (!visited.add(manifest)) {
+                continue;
             }
+            String name = library.getName() != null
+                    ? library.getName() : manifest.getParentFile().getName();
+            manifestFiles.add(Pair.of(name, manifest));
+            collectLibraries(library.getManifestDependencies(), manifestFiles, visited);
         }
-
-        ManifestMerger merger = new ManifestMerger(MergerLog.wrapSdkLog(mLogger), callback);
-        doMerge(merger, outManifest, mainManifest, manifests, attributeInjection, packageOverride);
     }
 
-    private void doMerge(ManifestMerger merger, File output, File input,
-                         Map<String, String> injectionMap, String packageOverride) {
-        List<File> list = Collections.emptyList();
-        doMerge(merger, output, input, list, injectionMap, packageOverride);
+    private static String hashInputs(File mainManifest, List<File> manifestOverlays,
+                                     List<Pair<String, File>> libraryManifests,
+                                     @Nullable String packageOverride,
+                                     Map<String, String> placeholders,
+                                     File outManifest) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        putFile(hasher, mainManifest);
+        hasher.putInt(manifestOverlays.size());
+        for (File overlay : manifestOverlays) {
+            putFile(hasher, overlay);
+        }
+        hasher.putInt(libraryManifests.size());
+        for (Pair<String, File> library : libraryManifests) {
+            putFile(hasher, library.getSecond());
+        }
+        putString(hasher, packageOverride);
+        // sorted, the order of a hash map is not stable
+        Map<String, String> sortedPlaceholders = Maps.newTreeMap();
+        sortedPlaceholders.putAll(placeholders);
+        hasher.putInt(sortedPlaceholders.size());
+        for (Map.Entry<String, String> entry : sortedPlaceholders.entrySet()) {
+            putString(hasher, entry.getKey());
+            putString(hasher, entry.getValue());
+        }
+        putString(hasher, outManifest.getAbsolutePath());
+        return hasher.hash().toString();
     }
 
-    private void doMerge(ManifestMerger merger, File output, File input, List<File> subManifests,
-                         Map<String, String> injectionMap, String packageOverride) {
-        if (!merger.process(output, input,
-                subManifests.toArray(new File[subManifests.size()]),
-                injectionMap, packageOverride)) {
-            throw new RuntimeException("Manifest merging failed. See console for more info.");
+    private static void putFile(Hasher hasher, File file) throws IOException {
+        putString(hasher, file.getAbsolutePath());
+        if (file.isFile()) {
+            byte[] bytes = Files.toByteArray(file);
+            hasher.putInt(bytes.length);
+            hasher.putBytes(bytes);
+        } else {
+            hasher.putInt(-1);
         }
     }
 
+    private static void putString(Hasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length());
+            hasher.putString(value, Charsets.UTF_8);
+        }
+    }
 }
@@ -1,10 +1,45 @@
 package com.duy.android.compiler.builder.task.android;
 
+import com.android.annotations.NonNull;
+import com.android.builder.dependency.LibraryDependency;
+import com.android.ide.common.internal.PngCruncher;
+import com.android.ide.common.res2.FileStatus;
+import com.android.ide.common.res2.FileValidity;
+import com.android.ide.common.res2.MergedResourceWriter;
+import com.android.ide.common.res2.MergingException;
+import com.android.ide.common.res2.ResourceMerger;
+import com.android.ide.common.res2.ResourcePreprocessor;
+import com.android.ide.common.res2.ResourceSet;
+import com.android.utils.FileUtils;
+import com.android.utils.ILogger;
+import com.android.utils.StdLogger;
 import com.duy.android.compiler.builder.IBuilder;
+import com.duy.android.compiler.builder.internal.incremental.FileSnapshot;
+import com.duy.android.compiler.builder.internal.png.CachedPngCruncher;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.project.AndroidAppProject;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merge the resources of the application and its libraries into
+ * {@link AndroidAppProject#getMergedResDir()}, the only resource folder given to aapt.
+ * <p>
+ * The state of the merger is saved after each merge with a snapshot of the input files. The
+ * next build only updates the merger with the files that changed, so only the values files of
+ * the changed qualifiers and the changed files are written again. When no input changed the
+ * merged folder is used as is.
+ * <p>
+ * Png files are crunched while they are written, on the thread pool of the writer, and the
+ * crunched files are cached by {@link CachedPngCruncher}. Vector drawables are kept as is.
+ */
 public class MergeResourceTask extends Task<AndroidAppProject> {
+    private static final String FN_INPUTS = "inputs.txt";
 
     public MergeResourceTask(IBuilder<? extends AndroidAppProject> builder) {
         super(builder);
@@ -17,7 +52,149 @@ public class MergeResourceTask extends Task<AndroidAppProject> {
 
     @Override
     public boolean doFullTaskAction() throws Exception {
-        // TODO: 02-Jun-18 impl
+        List<ResourceSet> resourceSets = getResourceSets();
+        File outputDir = mProject.getMergedResDir();
+        File incrementalDir = mProject.getMergeResourcesIncrementalDir();
+        File inputsFile = new File(incrementalDir, FN_INPUTS);
+
+        List<File> inputs = new ArrayList<>();
+        for (ResourceSet resourceSet : resourceSets) {
+            inputs.addAll(resourceSet.getSourceFiles());
+        }
+        FileSnapshot snapshot = FileSnapshot.of(inputs);
+        FileSnapshot previous = FileSnapshot.load(inputsFile);
+
+        ILogger logger = mBuilder.getLogger() != null
+                ? mBuilder.getLogger() : new StdLogger(StdLogger.Level.WARNING);
+        CachedPngCruncher cruncher = new CachedPngCruncher(
+                ProcessAndroidResourceTask.getAaptFile(context), mProject.getPngCacheDir(), logger);
+        ResourceMerger merger = new ResourceMerger();
+        try {
+            if (previous != null && outputDir.isDirectory()) {
+                Map<File, FileStatus> changedFiles = snapshot.getChangedFiles(previous);
+                if (changedFiles.isEmpty()) {
+                    mBuilder.stdout("Resources are up to date");
+                    return true;
+                }
+                if (mergeIncrementally(merger, resourceSets, changedFiles, cruncher, logger)) {
+                    mBuilder.stdout("Merged " + changedFiles.size() + " changed resource files");
+                    printCrunchStats(cruncher);
+                    snapshot.save(inputsFile);
+                    return true;
+                }
+                // the state can not be updated, start again from the files
+                merger = new ResourceMerger();
+            }
+
+            inputsFile.delete();
+            outputDir.mkdirs();
+            FileUtils.emptyFolder(outputDir);
+            for (ResourceSet resourceSet : resourceSets) {
+                resourceSet.loadFromFiles(logger);
+                merger.addDataSet(resourceSet);
+            }
+            MergedResourceWriter writer = createWriter(outputDir, cruncher);
+            merger.mergeData(writer, false);
+            merger.writeBlobTo(incrementalDir, writer);
+            printCrunchStats(cruncher);
+            snapshot.save(inputsFile);
+            return true;
+        } catch (MergingException e) {
+            merger.cleanBlob(incrementalDir);
+            inputsFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Load the state of the previous merge and apply the changed files to it.
+     *
+     * @return false if the resource sets changed or a file does not belong to any of them, a full
+     * merge is needed
+     */
+    private boolean mergeIncrementally(ResourceMerger merger, List<ResourceSet> resourceSets,
+                                       Map<File, FileStatus> changedFiles,
+                                       PngCruncher cruncher, ILogger logger)
+            throws Exception {
+        File incrementalDir = mProject.getMergeResourcesIncrementalDir();
+        if (!merger.loadFromBlob(incrementalDir, true /*incrementalState*/)) {
+            return false;
+        }
+        if (!merger.checkValidUpdate(resourceSets)) {
+            return false;
+        }
+
+        FileValidity<ResourceSet> fileValidity = new FileValidity<>();
+        for (Map.Entry<File, FileStatus> entry : changedFiles.entrySet()) {
+            File changedFile = entry.getKey();
+            merger.findDataSetContaining(changedFile, fileValidity);
+            if (fileValidity.getStatus() == FileValidity.FileStatus.UNKNOWN_FILE) {
+                return false;
+            } else if (fileValidity.getStatus() == FileValidity.FileStatus.VALID_FILE) {
+                if (!fileValidity.getDataSet().updateWith(fileValidity.getSourceFile(),
+                        changedFile, entry.getValue(), logger)) {
+                    return false;
+                }
+            }
+        }
+
+        MergedResourceWriter writer = createWriter(mProject.getMergedResDir(), cruncher);
+        merger.mergeData(writer, false);
+        merger.writeBlobTo(incrementalDir, writer);
         return true;
     }
+
+    /**
+     * @return the resource sets, from the lowest to the highest priority: the libraries, the
+     * last one first, then the application
+     */
+    private List<ResourceSet> getResourceSets() {
+        List<ResourceSet> resourceSets = new ArrayList<>();
+        List<LibraryDependency> libraries = new ArrayList<LibraryDependency>(mProject.getLibraries());
+        Collections.reverse(libraries);
+        for (LibraryDependency library : libraries) {
+            File resFolder = library.getResFolder();
+            if (!resFolder.isDirectory()) {
+                continue;
+            }
+            ResourceSet resourceSet = new ResourceSet(library.getFolder().getName());
+            resourceSet.addSource(resFolder.getAbsoluteFile());
+            resourceSets.add(resourceSet);
+        }
+        ResourceSet main = new ResourceSet("main");
+        main.addSource(mProject.getResDir().getAbsoluteFile());
+        resourceSets.add(main);
+        return resourceSets;
+    }
+
+    private MergedResourceWriter createWriter(File outputDir, PngCruncher cruncher) {
+        MergedResourceWriter writer = new MergedResourceWriter(outputDir, cruncher,
+                true /*crunchPng*/, true /*process9Patch*/, null /*publicFile*/,
+                new NoOpResourcePreprocessor());
+        writer.setInsertSourceMarkers(false);
+        return writer;
+    }
+
+    private void printCrunchStats(CachedPngCruncher cruncher) {
+        if (cruncher.getCrunchedCount() > 0 || cruncher.getCachedCount() > 0) {
+            mBuilder.stdout("Crunched " + cruncher.getCrunchedCount() + " png files, "
+                    + cruncher.getCachedCount() + " from cache");
+        }
+    }
+
+    private static class NoOpResourcePreprocessor implements ResourcePreprocessor {
+        @Override
+        public boolean needsPreprocessing(File file) {
+            return false;
+        }
+
+        @Override
+        public Collection<File> getFilesToBeGenerated(File original) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void generateFile(File toBeGenerated, File original) {
+        }
+    }
 }
@@ -2,15 +2,49 @@ package com.duy.android.compiler.builder.task.android;
 
 import com.android.sdklib.build.ApkBuilder;
 import com.duy.android.compiler.builder.AndroidAppBuilder;
+import com.duy.android.compiler.builder.internal.packaging.IncrementalApkBuilder;
+import com.duy.android.compiler.builder.model.BuildType;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.project.AndroidAppProject;
 
 import java.io.File;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 
+import kellinwood.security.zipsigner.KeySet;
+import kellinwood.security.zipsigner.ZipSigner;
+
+/**
+ * Package the resources, dex files and java resources into the apk.
+ * <p>
+ * Debug builds are signed with the test key while packaging: the digest of each entry is
+ * computed while it is written and the signature files are added at the end, so the apk is
+ * compressed and written only once. Release builds are packaged unsigned for
+ * {@link SignApkTask}.
+ * <p>
+ * In incremental mode, the default for debug builds, the entries of the previous apk that did
+ * not change are copied without being compressed again, see {@link IncrementalApkBuilder}.
+ */
 public class PackageApkTask extends Task<AndroidAppProject> {
+    private final BuildType mBuildType;
+    private boolean mIncremental;
 
     public PackageApkTask(AndroidAppBuilder builder) {
+        this(builder, BuildType.DEBUG);
+    }
+
+    public PackageApkTask(AndroidAppBuilder builder, BuildType buildType) {
         super(builder);
+        mBuildType = buildType;
+        mIncremental = buildType == BuildType.DEBUG;
+    }
+
+    /**
+     * @param incremental true to reuse the entries of the previous debug apk
+     */
+    public void setIncremental(boolean incremental) {
+        mIncremental = incremental;
     }
 
     @Override
@@ -20,19 +54,83 @@ public class PackageApkTask extends Task<AndroidAppProject> {
 
     @Override
     public boolean doFullTaskAction() throws Exception {
+        File apkFile;
+        PrivateKey key = null;
+        X509Certificate certificate = null;
+        if (mBuildType == BuildType.DEBUG) {
+            ZipSigner signer = new ZipSigner();
+            signer.setKeymode(ZipSigner.KEY_TESTKEY);
+            KeySet keySet = signer.getKeySet();
+            key = keySet.getPrivateKey();
+            certificate = keySet.getPublicKey();
+            apkFile = mProject.getApkSigned();
+        } else {
+            apkFile = mProject.getApkUnsigned();
+        }
+
+        if (mIncremental && mBuildType == BuildType.DEBUG) {
+            return packageIncremental(apkFile, key, certificate);
+        }
+        apkFile.delete();
+
         ApkBuilder apkBuilder = new ApkBuilder(
-                mProject.getApkUnsigned(),
-                mProject.getProcessResourcePackageOutputFile(),
+                apkFile,
+                getResourcePackage(),
                 mProject.getDexFile(),
-                null,
+                key,
+                certificate,
                 null);
 
+        // secondary dex files of a multidex build
+        ArrayList<File> dexFiles = mProject.getDexFiles();
+        for (int i = 1; i < dexFiles.size(); i++) {
+            apkBuilder.addFile(dexFiles.get(i), dexFiles.get(i).getName());
+        }
+
         for (File file : mProject.getJavaSrcDirs()) {
             apkBuilder.addSourceFolder(file);
         }
 
         apkBuilder.sealApk();
 
-        return true;
+        if (key != null) {
+            mBuilder.stdout("Signed debug apk " + apkFile.getName());
+        }
+        return apkFile.exists();
+    }
+
+    /**
+     * @return the resources shrunk by {@link ShrinkResourcesTask} for a release build, the
+     * output of aapt otherwise
+     */
+    private File getResourcePackage() {
+        File shrunkResourcePackage = mProject.getShrunkResourcePackageFile();
+        if (mBuildType == BuildType.RELEASE && shrunkResourcePackage.isFile()) {
+            return shrunkResourcePackage;
+        }
+        return mProject.getProcessResourcePackageOutputFile();
+    }
+
+    private boolean packageIncremental(File apkFile, PrivateKey key, X509Certificate certificate)
+            throws Exception {
+        File previousApk = mProject.getPreviousApk();
+        IncrementalApkBuilder apkBuilder = new IncrementalApkBuilder(apkFile, previousApk, key,
+                certificate);
+        apkBuilder.addZipFile(mProject.getProcessResourcePackageOutputFile());
+        for (File dexFile : mProject.getDexFiles()) {
+            apkBuilder.addFile(dexFile, dexFile.getName());
+        }
+        for (File file : mProject.getJavaSrcDirs()) {
+            apkBuilder.addSourceFolder(file);
+        }
+        apkBuilder.sealApk();
+        previousApk.delete();
+
+        mBuilder.stdout("Packaged " + apkFile.getName() + ": " + apkBuilder.getCopiedCount()
+                + " entries copied, " + apkBuilder.getCompressedCount() + " compressed");
+        if (key != null) {
+            mBuilder.stdout("Signed debug apk " + apkFile.getName());
+        }
+        return apkFile.exists();
     }
 }
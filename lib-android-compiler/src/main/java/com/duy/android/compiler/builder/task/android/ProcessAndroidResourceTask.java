@@ -1,20 +1,33 @@
 package com.duy.android.compiler.builder.task.android;
 
+import android.content.Context;
 import android.os.Build;
 
+import com.android.SdkConstants;
+import com.android.builder.core.VariantConfiguration;
 import com.android.builder.dependency.LibraryDependency;
+import com.android.builder.internal.SymbolLoader;
+import com.android.builder.internal.SymbolWriter;
+import com.android.utils.ILogger;
+import com.android.utils.StdLogger;
 import com.duy.android.compiler.builder.AndroidAppBuilder;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.builder.util.Argument;
 import com.duy.android.compiler.env.Environment;
 import com.duy.android.compiler.project.AndroidAppProject;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -122,34 +135,7 @@ public class ProcessAndroidResourceTask extends Task<AndroidAppProject> {
     }
 
     public boolean doFullTaskAction() throws Exception {
-        File aaptFile = getAaptFile();
-        if (mProject.getLibraries().size() > 0) {
-            mBuilder.stdout("Run AAPT for all libraries");
-            //run aapt for library
-            for (LibraryDependency library : mProject.getLibraries()) {
-                mBuilder.stdout("AAPT for library " + library.getName());
-                Argument args = new Argument();
-                args.add(aaptFile.getAbsolutePath());
-                args.add("package"); //package
-                args.add("--no-crunch");
-                args.add("-f"); //force overwrite of existing files
-                args.add("--auto-add-overlay");
-                if (mBuilder.isVerbose()) args.add("-v"); //verbose output
-                args.add("--non-constant-id"); //non constant for library
-                args.add("-M", library.getManifest().getAbsolutePath());  //manifest file
-                args.add("-A", library.getAssetsFolder().getAbsolutePath()); //input assets dir
-                args.add("-I", mProject.getBootClassPath(context));//The location of the android.jar resource
-                args.add("-S", library.getResFolder().getAbsolutePath());  //input resource dir
-                args.add("-m"); // make package directories under location specified by -J
-                //specify where to output R.java resource constant definitions
-                args.add("-J", mProject.getDirGeneratedSource().getAbsolutePath());
-
-                boolean complete = execAapt(args);
-                if (!complete) {
-                    return false;
-                }
-            }
-        }
+        File aaptFile = getAaptFile(context);
 
         Argument args = new Argument();
         args.add(aaptFile.getAbsolutePath());
@@ -157,13 +143,20 @@ public class ProcessAndroidResourceTask extends Task<AndroidAppProject> {
         args.add("-f");
         args.add("--auto-add-overlay");
         args.add("-v");
-        args.add("-M", mProject.getManifestFile().getAbsolutePath());  //manifest file
+        // png files are crunched when resources are merged
+        args.add("--no-crunch");
+        args.add("-M", mProject.getMergedManifestFile().getAbsolutePath());  //manifest file
         args.add("-F", mProject.getProcessResourcePackageOutputFile().getAbsolutePath());  //output resources.ap_
         args.add("-I", mProject.getBootClassPath(context));//The location of the android.jar resource
         args.add("-A", mProject.getAssetsDir().getAbsolutePath()); //input assets dir
-        args.add("-S", mProject.getResDirs().getAbsolutePath());  //input resource dir
+        // input resource dir, the resources of the application and its libraries merged by
+        // MergeResourceTask
+        args.add("-S", mProject.getMergedResDir().getAbsolutePath());
 
         //-G A file to output proguard options into.\n"
+        File aaptRules = mProject.getAaptRulesFile();
+        aaptRules.getParentFile().mkdirs();
+        args.add("-G", aaptRules.getAbsolutePath());
         //-D A file to output proguard options for the main dex into
 
         args.add("-m");  // make package directories under location specified by -J
@@ -174,13 +167,123 @@ public class ProcessAndroidResourceTask extends Task<AndroidAppProject> {
         //--custom-package project.getPackageName()
 
         for (LibraryDependency library : mProject.getLibraries()) {
-            args.add("-S", library.getResFolder().getAbsolutePath());
             args.add("-A", library.getAssetsFolder().getAbsolutePath()); //input assets dir
         }
-        return execAapt(args);
+        if (!execAapt(args)) {
+            return false;
+        }
+
+        return generateLibraryRClasses(aaptFile);
+    }
+
+    /**
+     * Write the R class of each library, with the ids of the application. The fields are the
+     * symbols of the library (R.txt of the aar), their values come from the symbol table written
+     * by aapt for the application, so aapt does not need to be run for each library. It is run
+     * only for the libraries whose aar has no R.txt.
+     */
+    private boolean generateLibraryRClasses(File aaptFile)
+            throws IOException, InterruptedException {
+        if (mProject.getLibraries().isEmpty()) {
+            return true;
+        }
+        ILogger logger = mBuilder.getLogger() != null
+                ? mBuilder.getLogger() : new StdLogger(StdLogger.Level.WARNING);
+        File outFolder = mProject.getDirGeneratedSource();
+        File appSymbolFile = new File(outFolder, SdkConstants.FN_RESOURCE_TEXT);
+        if (!appSymbolFile.isFile()) {
+            return true;
+        }
+        SymbolLoader appSymbols = new SymbolLoader(appSymbolFile, logger);
+        appSymbols.load();
+
+        String appPackageName = VariantConfiguration.getManifestPackage(mProject.getManifestFile());
+        // symbols of the libraries, by package name. Several libraries can share a package
+        Map<String, List<SymbolLoader>> libraryMap = new LinkedHashMap<>();
+        for (LibraryDependency library : mProject.getLibraries()) {
+            String packageName = VariantConfiguration.getManifestPackage(library.getManifest());
+            // the R class of the application is already written by aapt
+            if (packageName == null || packageName.equals(appPackageName)) {
+                continue;
+            }
+            File symbolFile = getLibrarySymbolFile(aaptFile, library);
+            if (symbolFile == null) {
+                return false;
+            }
+            SymbolLoader librarySymbols = new SymbolLoader(symbolFile, logger);
+            librarySymbols.load();
+
+            List<SymbolLoader> symbols = libraryMap.get(packageName);
+            if (symbols == null) {
+                symbols = new ArrayList<>();
+                libraryMap.put(packageName, symbols);
+            }
+            symbols.add(librarySymbols);
+        }
+
+        for (Map.Entry<String, List<SymbolLoader>> entry : libraryMap.entrySet()) {
+            mBuilder.stdout("Generate R class for " + entry.getKey());
+            SymbolWriter writer = new SymbolWriter(outFolder.getAbsolutePath(), entry.getKey(),
+                    appSymbols);
+            for (SymbolLoader symbols : entry.getValue()) {
+                writer.addSymbolsToWrite(symbols);
+            }
+            writer.write();
+        }
+        return true;
     }
 
-    private File getAaptFile() {
+    /**
+     * @return the R.txt of the aar, or a symbol table written by aapt from the resources of the
+     * library when the aar has none. Null if aapt failed
+     */
+    private File getLibrarySymbolFile(File aaptFile, LibraryDependency library)
+            throws IOException, InterruptedException {
+        File symbolFile = library.getSymbolFile();
+        if (symbolFile.isFile()) {
+            return symbolFile;
+        }
+
+        File outFolder = new File(mProject.getLibrarySymbolsDir(), library.getFolder().getName());
+        symbolFile = new File(outFolder, SdkConstants.FN_RESOURCE_TEXT);
+        outFolder.mkdirs();
+        if (!library.getResFolder().isDirectory()) {
+            // no resource, the R class has no field
+            Files.write("", symbolFile, Charsets.UTF_8);
+            return symbolFile;
+        }
+
+        mBuilder.stdout("AAPT for library " + library.getName());
+        Argument args = new Argument();
+        args.add(aaptFile.getAbsolutePath());
+        args.add("p");
+        args.add("-f");
+        args.add("--auto-add-overlay");
+        args.add("--no-crunch");
+        args.add("--non-constant-id");
+        args.add("-M", library.getManifest().getAbsolutePath());
+        args.add("-I", mProject.getBootClassPath(context));
+        // the resources of the library first, the other libraries resolve its references
+        args.add("-S", library.getResFolder().getAbsolutePath());
+        for (LibraryDependency other : mProject.getLibraries()) {
+            if (other != library && other.getResFolder().isDirectory()) {
+                args.add("-S", other.getResFolder().getAbsolutePath());
+            }
+        }
+        args.add("-m");
+        // only the symbol table is used, the R.java written with it is ignored
+        args.add("-J", outFolder.getAbsolutePath());
+        args.add(AAPTOptions.OUTPUT_TEXT_SYMBOL, outFolder.getAbsolutePath());
+        if (!execAapt(args) || !symbolFile.isFile()) {
+            return null;
+        }
+        return symbolFile;
+    }
+
+    /**
+     * @return the aapt executable for the architecture of this device
+     */
+    static File getAaptFile(Context context) {
         String arch = Build.CPU_ABI.substring(0, 3).toLowerCase(Locale.US);
         String aaptName;
         // Position Independent Executables (PIE) were first supported in Jelly Bean 4.1 (API level 16)
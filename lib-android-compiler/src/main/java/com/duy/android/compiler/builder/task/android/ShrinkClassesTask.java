@@ -0,0 +1,55 @@
+package com.duy.android.compiler.builder.task.android;
+
+import com.duy.android.compiler.builder.AndroidAppBuilder;
+import com.duy.android.compiler.builder.internal.dex.MainDexListGenerator;
+import com.duy.android.compiler.builder.internal.shrink.ClassShrinker;
+import com.duy.android.compiler.builder.internal.shrink.KeepRules;
+import com.duy.android.compiler.builder.task.Task;
+import com.duy.android.compiler.project.AndroidAppProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Remove unused classes of the application and its libraries before dexing a release build.
+ * <p>
+ * Entry points are the components declared in the manifest, the classes referenced from
+ * resources (rules written by aapt) and the -keep rules of proguard-rules.pro. The kept classes
+ * are written to {@link AndroidAppProject#getShrunkClassesJar()}, which replaces the build
+ * classes and library jars as input of {@link com.duy.android.compiler.builder.task.java.DexTask}
+ */
+public class ShrinkClassesTask extends Task<AndroidAppProject> {
+
+    public ShrinkClassesTask(AndroidAppBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    public String getTaskName() {
+        return "Shrink classes";
+    }
+
+    @Override
+    public boolean doFullTaskAction() throws Exception {
+        ArrayList<File> inputs = new ArrayList<>();
+        inputs.add(mProject.writeCompiledClasses());
+        inputs.addAll(mProject.getJavaLibraries());
+
+        KeepRules rules = new KeepRules();
+        rules.parse(mProject.getAaptRulesFile());
+        rules.parse(mProject.getProguardRulesFile());
+
+        Set<String> entryPoints = new MainDexListGenerator(mProject.getMergedManifestFile(), inputs)
+                .getRootClasses();
+
+        ClassShrinker shrinker = new ClassShrinker(inputs);
+        Set<String> keptClasses = shrinker.computeKeptClasses(entryPoints, rules);
+
+        File shrunkClassesJar = mProject.getShrunkClassesJar();
+        shrinker.writeTo(shrunkClassesJar, keptClasses);
+
+        mBuilder.stdout("Kept " + keptClasses.size() + " of " + shrinker.getClassCount() + " classes");
+        return true;
+    }
+}
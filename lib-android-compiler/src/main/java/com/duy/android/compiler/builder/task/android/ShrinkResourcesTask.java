@@ -0,0 +1,67 @@
+package com.duy.android.compiler.builder.task.android;
+
+import com.android.builder.shrink.ResourceUsageAnalyzer;
+import com.android.utils.ILogger;
+import com.android.utils.StdLogger;
+import com.duy.android.compiler.builder.AndroidAppBuilder;
+import com.duy.android.compiler.builder.task.Task;
+import com.duy.android.compiler.project.AndroidAppProject;
+
+import java.io.File;
+
+/**
+ * Remove the content of unused resources from the resource package of a release build.
+ * <p>
+ * The resources reachable from the manifest, from the classes kept by {@link ShrinkClassesTask}
+ * and from other reachable resources are computed by {@link ResourceUsageAnalyzer}. The other
+ * file based resources are replaced by tiny stubs in
+ * {@link AndroidAppProject#getShrunkResourcePackageFile()}, which is packaged instead of the
+ * output of aapt. The resource table is not changed, so the ids compiled into the classes are
+ * still valid.
+ */
+public class ShrinkResourcesTask extends Task<AndroidAppProject> {
+
+    public ShrinkResourcesTask(AndroidAppBuilder builder) {
+        super(builder);
+    }
+
+    @Override
+    public String getTaskName() {
+        return "Shrink resources";
+    }
+
+    @Override
+    public boolean doFullTaskAction() throws Exception {
+        File resourcePackage = mProject.getProcessResourcePackageOutputFile();
+        File shrunkResourcePackage = mProject.getShrunkResourcePackageFile();
+        shrunkResourcePackage.getParentFile().mkdirs();
+
+        ILogger logger = mBuilder.getLogger() != null
+                ? mBuilder.getLogger() : new StdLogger(StdLogger.Level.WARNING);
+        // R.java files are written by aapt to the generated source folder, there is no
+        // obfuscation so no mapping file.
+        ResourceUsageAnalyzer analyzer = new ResourceUsageAnalyzer(
+                mProject.getDirGeneratedSource(),
+                mProject.getShrunkClassesJar(),
+                mProject.getMergedManifestFile(),
+                null,
+                mProject.getMergedResDir(),
+                logger);
+        analyzer.setVerbose(mBuilder.isVerbose());
+        analyzer.analyze();
+        analyzer.rewriteResourceZip(resourcePackage, shrunkResourcePackage);
+
+        int unused = analyzer.getUnusedResourceCount();
+        if (unused > 0) {
+            long before = resourcePackage.length();
+            long after = shrunkResourcePackage.length();
+            mBuilder.stdout("Removed " + unused + " unused resources: resource data reduced from "
+                    + toKbString(before) + "KB to " + toKbString(after) + "KB");
+        }
+        return true;
+    }
+
+    private static String toKbString(long size) {
+        return Long.toString(size / 1024);
+    }
+}
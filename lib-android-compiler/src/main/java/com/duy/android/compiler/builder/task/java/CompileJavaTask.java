@@ -6,6 +6,9 @@ import android.preference.PreferenceManager;
 import com.duy.android.compiler.builder.IBuilder;
 import com.duy.android.compiler.builder.internal.CompileOptions;
 import com.duy.android.compiler.builder.internal.JavaVersion;
+import com.duy.android.compiler.builder.internal.compiler.ClassFileStore;
+import com.duy.android.compiler.builder.internal.compiler.InMemoryEcjCompiler;
+import com.duy.android.compiler.builder.internal.compiler.JavacSession;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.builder.util.Argument;
 import com.duy.android.compiler.project.JavaProject;
@@ -17,11 +20,21 @@ import java.io.File;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compile the sources of the project with ecj, or with the bundled javac when it is selected in
+ * the settings (see {@link JavacSession}). The class files are not written to disk, they
+ * are kept in {@link JavaProject#getCompiledClasses()} and dexed from memory, tasks which need
+ * the classes folder write them with {@link JavaProject#writeCompiledClasses()}
+ */
 public class CompileJavaTask extends Task<JavaProject> {
 
     private static final String TAG = "CompileJavaTask";
+    private static final String COMPILER_JAVAC = "javac";
     private CompileOptions mCompileOptions;
+    private boolean mUseJavac;
 
     public CompileJavaTask(IBuilder<? extends JavaProject> builder) {
         super(builder);
@@ -34,6 +47,15 @@ public class CompileJavaTask extends Task<JavaProject> {
 
     public boolean doFullTaskAction() {
         loadCompilerOptions();
+        if (mUseJavac) {
+            // the bundled javac does not support java 8
+            if (mCompileOptions.getSourceCompatibility().isJava8Compatible()
+                    || mCompileOptions.getTargetCompatibility().isJava8Compatible()) {
+                mBuilder.stdout(TAG + ": javac supports Java 1.7 at most, compile with ecj");
+            } else {
+                return runJavac();
+            }
+        }
         return runEcj();
     }
 
@@ -66,6 +88,9 @@ public class CompileJavaTask extends Task<JavaProject> {
             }
         }
         mCompileOptions.setEncoding(encoding);
+
+        String compiler = pref.getString(context.getString(R.string.key_pref_java_compiler), null);
+        mUseJavac = COMPILER_JAVAC.equals(compiler);
     }
 
 
@@ -73,9 +98,9 @@ public class CompileJavaTask extends Task<JavaProject> {
         mBuilder.stdout(TAG + ": Compile java with javac");
         PrintWriter outWriter = new PrintWriter(mBuilder.getStdout());
         PrintWriter errWriter = new PrintWriter(mBuilder.getStderr());
-        org.eclipse.jdt.internal.compiler.batch.Main main =
-                new org.eclipse.jdt.internal.compiler.batch.Main(outWriter, errWriter,
-                        false, null, null);
+        ClassFileStore compiledClasses = mProject.getCompiledClasses();
+        compiledClasses.clear();
+        Main main = new InMemoryEcjCompiler(outWriter, errWriter, compiledClasses);
 
         Argument argument = new Argument();
         argument.add(mBuilder.isVerbose() ? "-verbose" : "-warn:");
@@ -85,7 +110,7 @@ public class CompileJavaTask extends Task<JavaProject> {
         argument.add("-" + mCompileOptions.getSourceCompatibility().toString()); //host
         argument.add("-target", mCompileOptions.getTargetCompatibility().toString()); //target
         argument.add("-proc:none"); // Disable annotation processors...
-        argument.add("-d", mProject.getDirBuildClasses().getAbsolutePath()); // The location of the output folder
+        argument.add("-d", "none"); // class files are kept in memory
 
         String[] sourceFiles = getAllSourceFiles(mProject);
         argument.add(sourceFiles);
@@ -99,6 +124,52 @@ public class CompileJavaTask extends Task<JavaProject> {
         return main.compile(argument.toArray());
     }
 
+    private boolean runJavac() {
+        mBuilder.stdout(TAG + ": Compile java with javac");
+        Argument argument = new Argument();
+        argument.add("-bootclasspath", mBuilder.getBootClassPath());
+        if (!mProject.getClasspath().isEmpty()) {
+            argument.add("-classpath", mProject.getClasspath());
+        }
+        if (!mProject.getSourcePath().isEmpty()) {
+            argument.add("-sourcepath", mProject.getSourcePath());
+        }
+        argument.add("-source", mCompileOptions.getSourceCompatibility().toString());
+        argument.add("-target", mCompileOptions.getTargetCompatibility().toString());
+        argument.add("-encoding", mCompileOptions.getEncoding());
+        argument.add("-proc:none");
+        if (mBuilder.isVerbose()) {
+            mBuilder.stdout(TAG + ": Compiler arguments " + argument);
+        }
+
+        List<File> jars = new ArrayList<>();
+        addFiles(jars, mBuilder.getBootClassPath());
+        addFiles(jars, mProject.getClasspath());
+
+        List<File> sourceFiles = new ArrayList<>();
+        for (String sourceFile : getAllSourceFiles(mProject)) {
+            sourceFiles.add(new File(sourceFile));
+        }
+
+        ClassFileStore compiledClasses = mProject.getCompiledClasses();
+        compiledClasses.clear();
+        JavacSession session = JavacSession.get(Arrays.asList(argument.toArray()), jars);
+        boolean success = session.compile(sourceFiles, compiledClasses,
+                new PrintWriter(mBuilder.getStderr()));
+        if (!success) {
+            compiledClasses.clear();
+        }
+        return success;
+    }
+
+    private static void addFiles(List<File> files, String path) {
+        for (String entry : path.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                files.add(new File(entry));
+            }
+        }
+    }
+
     private String[] getAllSourceFiles(JavaProject project) {
         ArrayList<String> javaFiles = new ArrayList<>();
         String[] sourcePaths = project.getSourcePath().split(File.pathSeparator);
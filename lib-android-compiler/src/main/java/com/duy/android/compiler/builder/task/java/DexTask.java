@@ -4,10 +4,17 @@ import android.support.annotation.NonNull;
 import android.util.Log;
 
 import com.duy.android.compiler.builder.IBuilder;
+import com.duy.android.compiler.builder.internal.compiler.ClassFileStore;
+import com.duy.android.compiler.builder.internal.dex.MainDexListGenerator;
+import com.duy.android.compiler.builder.model.BuildType;
 import com.duy.android.compiler.builder.task.Task;
 import com.duy.android.compiler.builder.util.MD5Hash;
+import com.duy.android.compiler.project.AndroidAppProject;
 import com.duy.android.compiler.project.JavaProject;
 import com.duy.dex.Dex;
+import com.duy.dex.DexFormat;
+import com.duy.dex.DexIndexOverflowException;
+import com.duy.dx.command.dexer.Main;
 import com.duy.dx.merge.CollisionPolicy;
 import com.duy.dx.merge.DexMerger;
 
@@ -18,9 +25,54 @@ import java.util.ArrayList;
 
 public class DexTask extends Task<JavaProject> {
     private static final String TAG = "Dexer";
+    /**
+     * Bytecode size above which methods of debug builds are not optimized, huge generated
+     * methods would otherwise dominate dex time
+     */
+    private static final int DEBUG_MAX_OPTIMIZED_METHOD_SIZE = 8 * 1024;
+
+    private final BuildType mBuildType;
+    private boolean mFastOptimize;
+    private int mMaxOptimizedMethodSize;
 
     public DexTask(IBuilder<? extends JavaProject> builder) {
+        this(builder, BuildType.DEBUG);
+    }
+
+    /**
+     * @param buildType release builds of android applications dex the output of
+     *                  {@link com.duy.android.compiler.builder.task.android.ShrinkClassesTask}
+     */
+    public DexTask(IBuilder<? extends JavaProject> builder, BuildType buildType) {
         super(builder);
+        mBuildType = buildType;
+        mFastOptimize = buildType == BuildType.DEBUG;
+        mMaxOptimizedMethodSize = buildType == BuildType.DEBUG ? DEBUG_MAX_OPTIMIZED_METHOD_SIZE : 0;
+    }
+
+    /**
+     * @param fastOptimize true to run only the cheap dx optimization steps, the output is a bit
+     *                     larger and slower. Enabled by default for debug builds
+     */
+    public void setFastOptimize(boolean fastOptimize) {
+        mFastOptimize = fastOptimize;
+    }
+
+    /**
+     * @param maxOptimizedMethodSize methods with more bytes of bytecode are not optimized at all,
+     *                               0 to optimize every method
+     */
+    public void setMaxOptimizedMethodSize(int maxOptimizedMethodSize) {
+        mMaxOptimizedMethodSize = maxOptimizedMethodSize;
+    }
+
+    private void addOptimizeArgs(ArrayList<String> args) {
+        if (mFastOptimize) {
+            args.add("--fast-optimize");
+        }
+        if (mMaxOptimizedMethodSize > 0) {
+            args.add("--max-optimized-method-size=" + mMaxOptimizedMethodSize);
+        }
     }
 
     @Override
@@ -34,18 +86,51 @@ public class DexTask extends Task<JavaProject> {
 
         mBuilder.stdout("Android dx");
 
+        deleteSecondaryDexFiles(mProject);
+
+        if (mBuildType == BuildType.RELEASE && mProject instanceof AndroidAppProject) {
+            AndroidAppProject project = (AndroidAppProject) mProject;
+            ArrayList<File> inputs = new ArrayList<>();
+            inputs.add(project.getShrunkClassesJar());
+            return dexMultiDex(project, inputs);
+        }
+
         if (!dexLibs(mProject)) {
             return false;
         }
         if (!dexBuildClasses(mProject)) {
             return false;
         }
-        if (!dexMerge(mProject)) {
-            return false;
+        try {
+            if (!dexMerge(mProject)) {
+                return false;
+            }
+        } catch (DexIndexOverflowException e) {
+            if (!(mProject instanceof AndroidAppProject)) {
+                throw e;
+            }
+            mBuilder.stdout(e.getMessage());
+            mBuilder.stdout("Too many references for a single dex file, switch to multidex");
+            AndroidAppProject project = (AndroidAppProject) mProject;
+            ArrayList<File> inputs = new ArrayList<>();
+            inputs.add(project.writeCompiledClasses());
+            inputs.addAll(project.getJavaLibraries());
+            return dexMultiDex(project, inputs);
         }
         return true;
     }
 
+    /**
+     * Remove classes2.dex, classes3.dex... of a previous multidex build, so they will not be
+     * packaged with a single dex build
+     */
+    private void deleteSecondaryDexFiles(@NonNull JavaProject project) {
+        ArrayList<File> dexFiles = project.getDexFiles();
+        for (int i = 1; i < dexFiles.size(); i++) {
+            dexFiles.get(i).delete();
+        }
+    }
+
     private boolean dexLibs(@NonNull JavaProject project) throws Exception {
         mBuilder.stdout("Dex libs");
         ArrayList<File> javaLibraries = project.getJavaLibraries();
@@ -59,14 +144,15 @@ public class DexTask extends Task<JavaProject> {
                 continue;
             }
 
-            String[] args = {"--verbose",
-                    "--no-strict",
-                    "--no-files",
-                    "--output=" + dexLib.getAbsolutePath(), //output
-                    jarLib.getAbsolutePath() //input
-            };
+            ArrayList<String> args = new ArrayList<>();
+            args.add("--verbose");
+            args.add("--no-strict");
+            args.add("--no-files");
+            addOptimizeArgs(args);
+            args.add("--output=" + dexLib.getAbsolutePath()); //output
+            args.add(jarLib.getAbsolutePath()); //input
             mBuilder.stdout("Dexing lib " + jarLib.getPath() + " => " + dexLib.getAbsolutePath());
-            int resultCode = com.duy.dx.command.dexer.Main.main(args);
+            int resultCode = Main.main(args.toArray(new String[0]));
             if (resultCode != 0) {
                 return false;
             }
@@ -79,17 +165,28 @@ public class DexTask extends Task<JavaProject> {
 
     /**
      * Merge all classed has been build by {@link CompileJavaTask} to a single file .dex
+     * <p>
+     * The class files compiled in memory are given to dx as byte arrays, the classes folder is
+     * read only if nothing was compiled in memory
      */
     private boolean dexBuildClasses(@NonNull JavaProject project) throws IOException {
         mBuilder.stdout("Merge build classes");
 
-        File buildClasseDir = project.getDirBuildClasses();
-        String[] args = new String[]{
-                "--verbose", "--no-strict",
-                "--output=" + project.getDexFile().getAbsolutePath(), //output dex file
-                buildClasseDir.getAbsolutePath() //input files
-        };
-        int resultCode = com.duy.dx.command.dexer.Main.main(args);
+        ClassFileStore compiledClasses = project.getCompiledClasses();
+        ArrayList<String> args = new ArrayList<>();
+        args.add("--verbose");
+        args.add("--no-strict");
+        addOptimizeArgs(args);
+        args.add("--output=" + project.getDexFile().getAbsolutePath()); //output dex file
+        Main.Arguments arguments = new Main.Arguments();
+        if (compiledClasses.isEmpty()) {
+            File buildClasseDir = project.getDirBuildClasses();
+            args.add(buildClasseDir.getAbsolutePath()); //input files
+        } else {
+            arguments.inputClasses = compiledClasses.getClasses(); //input classes
+        }
+        arguments.parse(args.toArray(new String[0]));
+        int resultCode = Main.run(arguments);
         mBuilder.stdout("Merged build classes " + project.getDexFile().getName());
         return resultCode == 0;
     }
@@ -114,4 +211,53 @@ public class DexTask extends Task<JavaProject> {
         return true;
     }
 
+    /**
+     * Dex all inputs at once into classes.dex, classes2.dex... (a single classes.dex if they
+     * fit). The classes reachable from the components declared in the manifest are kept in the
+     * main dex file.
+     *
+     * @param inputs class folders and jars of the whole application
+     */
+    private boolean dexMultiDex(@NonNull AndroidAppProject project,
+                                @NonNull ArrayList<File> inputs) throws Exception {
+        mBuilder.stdout("Compute main dex list");
+
+        File mainDexList = project.getMainDexListFile();
+        MainDexListGenerator generator = new MainDexListGenerator(project.getMergedManifestFile(), inputs);
+        int count = generator.writeTo(mainDexList);
+        mBuilder.stdout("Main dex list contains " + count + " classes");
+        int maxIds = DexFormat.MAX_MEMBER_IDX + 1;
+        if (generator.getMethodIdCount() > maxIds || generator.getFieldIdCount() > maxIds) {
+            // dx would fail with "main dex capacity exceeded"
+            mBuilder.stderr("The classes needed at startup do not fit in the main dex file: "
+                    + generator.getMethodIdCount() + " methods and "
+                    + generator.getFieldIdCount() + " fields for at most " + maxIds
+                    + ". Reduce the classes reached from the application, instrumentation, "
+                    + "backup agent, providers and receivers.");
+            return false;
+        }
+
+        File mainDexFile = project.getDexFile();
+        mainDexFile.delete();
+
+        ArrayList<String> args = new ArrayList<>();
+        args.add("--verbose");
+        args.add("--no-strict");
+        args.add("--multi-dex");
+        addOptimizeArgs(args);
+        args.add("--main-dex-list=" + mainDexList.getAbsolutePath());
+        // only the listed classes in classes.dex, dx does not fill it with other classes
+        args.add("--minimal-main-dex");
+        args.add("--output=" + mainDexFile.getParentFile().getAbsolutePath()); //output dir
+        for (File input : inputs) {
+            args.add(input.getAbsolutePath()); //input files
+        }
+        int resultCode = Main.main(args.toArray(new String[0]));
+        if (resultCode != 0) {
+            return false;
+        }
+        mBuilder.stdout("Multidex completed, " + project.getDexFiles().size() + " dex files");
+        return true;
+    }
+
 }
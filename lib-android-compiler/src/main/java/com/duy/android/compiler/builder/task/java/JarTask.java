@@ -32,6 +32,8 @@ public class JarTask extends Task<JavaProject> {
 
     @Override
     public boolean doFullTaskAction() throws Exception {
+        mProject.writeCompiledClasses();
+
         //now create normal jar file
         JarArchive jarArchive = new JarArchive(mBuilder.isVerbose());
         jarArchive.setJarOptions(mJarOptions);
@@ -2,19 +2,46 @@ package com.duy.android.compiler.library;
 
 import android.content.Context;
 
+import com.android.annotations.Nullable;
+import com.android.builder.dependency.LibraryBundle;
 import com.android.utils.FileUtils;
-import com.duy.android.compiler.env.Environment;
 import com.duy.android.compiler.utils.Zip;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import static com.android.SdkConstants.FD_AIDL;
+import static com.android.SdkConstants.FD_ASSETS;
 import static com.android.SdkConstants.FD_JARS;
+import static com.android.SdkConstants.FD_RES;
+import static com.android.SdkConstants.FN_ANDROID_MANIFEST_XML;
+import static com.android.SdkConstants.FN_CLASSES_JAR;
+import static com.android.SdkConstants.FN_PUBLIC_TXT;
+import static com.android.SdkConstants.FN_RESOURCE_TEXT;
 
 /**
  * Extract aar file
+ * <p>
+ * Only the files used by the build are extracted, to the layout expected by
+ * {@link LibraryBundle}. A stamp file holding the hash of the aar is written last, the next
+ * extraction of the same aar into the same folder does nothing.
  */
 public class LibraryCache {
+    private static final String FN_STAMP = ".aar.stamp";
+    /**
+     * Version of the extracted layout, folders extracted by an older version are extracted again
+     */
+    private static final int LAYOUT_VERSION = 1;
+    private static final String LIBS_FOLDER = "libs";
+
     private Context context;
 
     public LibraryCache(Context context) {
@@ -30,35 +57,88 @@ public class LibraryCache {
         }
 
         try {
+            File stampFile = new File(folderOut, FN_STAMP);
+            String previousStamp = stampFile.isFile()
+                    ? Files.toString(stampFile, Charsets.UTF_8) : null;
+            // the size and date are checked first, an unchanged file is not read at all. A copy
+            // of the same aar has another date, its hash is compared.
+            if (previousStamp != null && previousStamp.startsWith(getQuickStamp(bundle))) {
+                return true;
+            }
+            String hash = Files.hash(bundle, Hashing.sha1()).toString();
+            String stamp = getQuickStamp(bundle) + hash;
+            if (previousStamp != null && previousStamp.startsWith(LAYOUT_VERSION + " ")
+                    && previousStamp.endsWith(" " + hash)) {
+                Files.write(stamp, stampFile, Charsets.UTF_8);
+                return true;
+            }
+
             FileUtils.deleteFolder(folderOut);
             folderOut.mkdirs();
 
-            Zip.unpackZip(bundle, folderOut);
-            File[] jarsFile = folderOut.listFiles(new FileFilter() {
-                @Override
-                public boolean accept(File pathname) {
-                    return pathname.isFile() && pathname.getName().endsWith(".jar");
-                }
-            });
-
-            File jarFolder = new File(folderOut, FD_JARS);
-            jarFolder.mkdirs();
-
-            for (File file : jarsFile) {
-                file.renameTo(new File(jarFolder, file.getName()));
+            ZipFile zipFile = new ZipFile(bundle);
+            try {
+                Zip.extract(zipFile, getExtractedEntries(zipFile, folderOut),
+                        Runtime.getRuntime().availableProcessors());
+            } finally {
+                zipFile.close();
             }
 
+            Files.write(stamp, stampFile, Charsets.UTF_8);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    private String removeExt(String name) {
-        if (name.contains(".")) {
-            return name.substring(0, name.lastIndexOf("."));
-        } else {
-            return name;
+    private static String getQuickStamp(File bundle) {
+        return LAYOUT_VERSION + " " + bundle.length() + " " + bundle.lastModified() + " ";
+    }
+
+    /**
+     * @return the entries used by the build, mapped to their file in the {@link LibraryBundle}
+     * layout: the jars are moved to the jars folder.
+     */
+    private static Map<ZipEntry, File> getExtractedEntries(ZipFile zipFile, File folderOut)
+            throws IOException {
+        Map<ZipEntry, File> entries = new LinkedHashMap<>();
+        File jarFolder = new File(folderOut, FD_JARS);
+        Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+        while (zipEntries.hasMoreElements()) {
+            ZipEntry entry = zipEntries.nextElement();
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (name.startsWith("../") || name.contains("/../")) {
+                throw new IOException("Invalid entry " + name);
+            }
+            File outFile = getExtractedFile(name, folderOut, jarFolder);
+            if (outFile != null) {
+                entries.put(entry, outFile);
+            }
+        }
+        return entries;
+    }
+
+    @Nullable
+    private static File getExtractedFile(String name, File folderOut, File jarFolder) {
+        if (name.equals(FN_CLASSES_JAR)) {
+            return new File(jarFolder, name);
+        }
+        if (name.startsWith(LIBS_FOLDER + "/") && name.endsWith(".jar")
+                && name.indexOf('/') == name.lastIndexOf('/')) {
+            return new File(jarFolder, name);
+        }
+        if (name.equals(FN_ANDROID_MANIFEST_XML)
+                || name.equals(FN_RESOURCE_TEXT)
+                || name.equals(FN_PUBLIC_TXT)
+                || name.equals(LibraryBundle.FN_PROGUARD_TXT)
+                || name.startsWith(FD_RES + "/")
+                || name.startsWith(FD_ASSETS + "/")
+                || name.startsWith(FD_AIDL + "/")) {
+            return new File(folderOut, name);
         }
+        return null;
     }
 }
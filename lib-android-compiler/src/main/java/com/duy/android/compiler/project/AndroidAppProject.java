@@ -101,7 +101,13 @@ public class AndroidAppProject extends JavaProject {
     public void clean() {
         super.clean();
         apkUnsigned.delete();
-        apkSigned.delete();
+        getShrunkResourcePackageFile().delete();
+        // keep the last debug apk for incremental packaging
+        File previousApk = getPreviousApk();
+        previousApk.delete();
+        if (!apkSigned.renameTo(previousApk)) {
+            apkSigned.delete();
+        }
     }
 
     @Override
@@ -145,6 +151,95 @@ public class AndroidAppProject extends JavaProject {
         return libraries;
     }
 
+    /**
+     * @return list of classes that must be in the main dex file of a multidex build
+     */
+    public File getMainDexListFile() {
+        return new File(getDirBuildIntermediates(), "multi-dex" + File.separator + "maindexlist.txt");
+    }
+
+    /**
+     * @return keep rules written by aapt for the classes referenced from resources
+     */
+    public File getAaptRulesFile() {
+        return new File(getDirBuildIntermediates(), "proguard-rules" + File.separator + "aapt_rules.txt");
+    }
+
+    /**
+     * @return keep rules of the project, using the ProGuard syntax
+     */
+    public File getProguardRulesFile() {
+        return new File(getAppDir(), "proguard-rules.pro");
+    }
+
+    /**
+     * @return classes of the application and its libraries that are still used after shrinking
+     */
+    public File getShrunkClassesJar() {
+        return new File(getDirBuildIntermediates(), "shrunk" + File.separator + "classes.jar");
+    }
+
+    /**
+     * @return resource package of a release build, without the content of unused resources
+     */
+    public File getShrunkResourcePackageFile() {
+        return new File(getDirBuildIntermediates(), "res" + File.separator + "shrunk" + File.separator + outResourceFile.getName());
+    }
+
+    /**
+     * @return debug apk of the previous build, its unchanged entries are copied by incremental
+     * packaging
+     */
+    public File getPreviousApk() {
+        File file = new File(getDirBuildIntermediates(), "incremental" + File.separator + apkSigned.getName());
+        file.getParentFile().mkdirs();
+        return file;
+    }
+
+    /**
+     * @return resources of the application and its libraries merged into one folder, the
+     * input of aapt
+     */
+    public File getMergedResDir() {
+        return new File(getDirBuildIntermediates(), "res" + File.separator + "merged");
+    }
+
+    /**
+     * @return manifest of the application with the manifests of its libraries merged in, the
+     * manifest given to aapt
+     */
+    public File getMergedManifestFile() {
+        return new File(getDirBuildIntermediates(), "manifests" + File.separator + "full" + File.separator + xmlManifest.getName());
+    }
+
+    /**
+     * @return symbol tables written by aapt for the libraries whose aar has no R.txt
+     */
+    public File getLibrarySymbolsDir() {
+        return new File(getDirBuildIntermediates(), "symbols");
+    }
+
+    /**
+     * @return hash of the inputs of the previous manifest merge
+     */
+    public File getMergeManifestIncrementalDir() {
+        return new File(getDirBuildIntermediates(), "incremental" + File.separator + "mergeManifest");
+    }
+
+    /**
+     * @return crunched png files, named by the hash of the original file
+     */
+    public File getPngCacheDir() {
+        return new File(getDirBuildIntermediates(), "png-cache");
+    }
+
+    /**
+     * @return state of the previous resource merge, used to merge only the changed files
+     */
+    public File getMergeResourcesIncrementalDir() {
+        return new File(getDirBuildIntermediates(), "incremental" + File.separator + "mergeResources");
+    }
+
     public File getApkUnsigned() {
         apkUnsigned.getParentFile().mkdirs();
         return apkUnsigned;
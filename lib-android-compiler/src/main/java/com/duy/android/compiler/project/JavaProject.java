@@ -6,6 +6,7 @@ import android.util.Log;
 
 import com.android.annotations.NonNull;
 import com.android.annotations.Nullable;
+import com.duy.android.compiler.builder.internal.compiler.ClassFileStore;
 import com.duy.android.compiler.env.Environment;
 import com.duy.common.io.IOUtils;
 
@@ -56,6 +57,7 @@ public class JavaProject {
     private File dexFile;
     private File outJarArchive;
     private File dirGenerated;
+    private final ClassFileStore compiledClasses = new ClassFileStore();
 
     public JavaProject(File root, @Nullable String packageName) {
         this.packageName = packageName;
@@ -133,6 +135,23 @@ public class JavaProject {
         return dexFile;
     }
 
+    /**
+     * @return the main dex file followed by the secondary dex files (classes2.dex,
+     * classes3.dex, ...) produced by a multidex build, in order
+     */
+    public ArrayList<File> getDexFiles() {
+        ArrayList<File> dexFiles = new ArrayList<>();
+        dexFiles.add(getDexFile());
+        for (int i = 2; ; i++) {
+            File secondary = new File(dirBuildDexedClass, "classes" + i + ".dex");
+            if (!secondary.exists()) {
+                break;
+            }
+            dexFiles.add(secondary);
+        }
+        return dexFiles;
+    }
+
     public File getDirLibs() {
         if (!dirLibs.exists()) dirLibs.mkdirs();
         return dirLibs;
@@ -153,6 +172,27 @@ public class JavaProject {
         return dirBuildClasses;
     }
 
+    /**
+     * @return the class files of the last compilation, kept in memory until a task needs
+     * them on disk
+     */
+    @NonNull
+    public ClassFileStore getCompiledClasses() {
+        return compiledClasses;
+    }
+
+    /**
+     * Writes the class files compiled in memory to the classes folder, once per compilation.
+     * Tasks reading the folder must call it instead of {@link #getDirBuildClasses()}
+     *
+     * @return the classes folder
+     */
+    public File writeCompiledClasses() throws IOException {
+        File dir = getDirBuildClasses();
+        compiledClasses.writeTo(dir);
+        return dir;
+    }
+
     @CallSuper
     public void mkdirs() {
         if (!dirRoot.exists()) dirRoot.mkdirs();
@@ -167,6 +207,7 @@ public class JavaProject {
 
     @CallSuper
     public void clean() {
+        compiledClasses.clear();
         try {
             com.android.utils.FileUtils.emptyFolder(dirBuildClasses);
         } catch (IOException e) {
@@ -4,10 +4,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class Zip {
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     public static boolean unpackZip(File zipFile, File destFolder) {
 
@@ -15,8 +27,7 @@ public class Zip {
             ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(zipFile));
 
             ZipEntry ze;
-            byte[] buffer = new byte[1024];
-            int count;
+            byte[] buffer = new byte[BUFFER_SIZE];
             String filename;
             while ((ze = zipInputStream.getNextEntry()) != null) {
                 // zapis do souboru
@@ -31,15 +42,8 @@ public class Zip {
                 }
 
                 File outFile = new File(destFolder, filename);
-                System.out.println("out = " + outFile);
-                FileOutputStream fout = new FileOutputStream(outFile);
-
-                // cteni zipu a zapis
-                while ((count = zipInputStream.read(buffer)) != -1) {
-                    fout.write(buffer, 0, count);
-                }
-
-                fout.close();
+                outFile.getParentFile().mkdirs();
+                copy(zipInputStream, outFile, buffer);
                 zipInputStream.closeEntry();
             }
 
@@ -51,4 +55,59 @@ public class Zip {
 
         return true;
     }
+
+    /**
+     * Extracts some entries of a zip file, in parallel. Entries are read from the central
+     * directory of the zip, so each worker inflates its own entries.
+     *
+     * @param entries the entries to extract, mapped to their output file
+     * @param threads number of workers
+     */
+    public static void extract(final ZipFile zipFile, Map<ZipEntry, File> entries, int threads)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (final Map.Entry<ZipEntry, File> entry : entries.entrySet()) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        File outFile = entry.getValue();
+                        outFile.getParentFile().mkdirs();
+                        InputStream input = zipFile.getInputStream(entry.getKey());
+                        try {
+                            copy(input, outFile, new byte[BUFFER_SIZE]);
+                        } finally {
+                            input.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void copy(InputStream input, File outFile, byte[] buffer) throws IOException {
+        OutputStream output = new FileOutputStream(outFile);
+        try {
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+        } finally {
+            output.close();
+        }
+    }
 }
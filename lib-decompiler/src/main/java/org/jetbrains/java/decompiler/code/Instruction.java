@@ -1,7 +1,11 @@
 // Copyright 2000-2017 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.jetbrains.java.decompiler.code;
 
+import java.lang.reflect.Field;
+
 public class Instruction implements CodeConstants {
+    private static String[] opcodeNames;
+
     public final int opcode;
     public final int group;
     public final boolean wide;
@@ -55,6 +59,43 @@ public class Instruction implements CodeConstants {
                 opcode != opc_jsr && opcode != opc_tableswitch && opcode != opc_lookupswitch;
     }
 
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        if (wide) {
+            buffer.append("wide ");
+        }
+        buffer.append(getOpcodeName(opcode));
+        for (int i = 0; i < operandsCount(); i++) {
+            buffer.append(i == 0 ? " " : ", ").append(operands[i]);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * The names are only needed to list the code of the methods which couldn't be decompiled, they are read from the
+     * constants the first time.
+     */
+    private static synchronized String getOpcodeName(int opcode) {
+        if (opcodeNames == null) {
+            String[] names = new String[256];
+            for (Field field : CodeConstants.class.getFields()) {
+                if (field.getName().startsWith("opc_")) {
+                    try {
+                        int value = field.getInt(null);
+                        if (value >= 0 && value < names.length) {
+                            names[value] = field.getName().substring(4);
+                        }
+                    } catch (IllegalAccessException ignore) {
+                    }
+                }
+            }
+            opcodeNames = names;
+        }
+        String name = opcode >= 0 && opcode < opcodeNames.length ? opcodeNames[opcode] : null;
+        return name != null ? name : "opcode_" + opcode;
+    }
+
     @Override
     @SuppressWarnings("MethodDoesntCallSuperMethod")
     public Instruction clone() {
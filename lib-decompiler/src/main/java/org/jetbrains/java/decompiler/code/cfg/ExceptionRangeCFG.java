@@ -2,8 +2,8 @@
 package org.jetbrains.java.decompiler.code.cfg;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ExceptionRangeCFG {
     private final List<BasicBlock> protectedRange; // FIXME: replace with set
@@ -52,6 +52,16 @@ public class ExceptionRangeCFG {
     }
 
     public String getUniqueExceptionsString() {
-        return exceptionTypes != null ? exceptionTypes.stream().distinct().collect(Collectors.joining(":")) : null;
+        if (exceptionTypes == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String type : new LinkedHashSet<>(exceptionTypes)) {
+            if (sb.length() > 0) {
+                sb.append(':');
+            }
+            sb.append(type);
+        }
+        return sb.toString();
     }
 }
\ No newline at end of file
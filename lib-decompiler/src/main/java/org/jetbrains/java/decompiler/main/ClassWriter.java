@@ -5,6 +5,9 @@ import com.duy.java8.util.DList;
 import com.duy.java8.util.function.Predicate;
 
 import org.jetbrains.java.decompiler.code.CodeConstants;
+import org.jetbrains.java.decompiler.code.Instruction;
+import org.jetbrains.java.decompiler.code.InstructionSequence;
+import org.jetbrains.java.decompiler.code.JumpInstruction;
 import org.jetbrains.java.decompiler.main.ClassesProcessor.ClassNode;
 import org.jetbrains.java.decompiler.main.collectors.BytecodeMappingTracer;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
@@ -194,9 +197,7 @@ public class ClassWriter {
             }
 
             if (methodWrapper.decompiledWithErrors) {
-                buffer.appendIndent(indent);
-                buffer.append("// $FF: Couldn't be decompiled");
-                buffer.appendLineSeparator();
+                appendDecompilationError(buffer, methodWrapper, indent);
             }
 
             if (root != null) {
@@ -306,6 +307,32 @@ public class ClassWriter {
         buffer.appendIndent(indent).append("// $FF: ").append(comment).appendLineSeparator();
     }
 
+    /**
+     * Writes the bytecode of a method stopped by the processing time limit, or an error comment for the other failures.
+     *
+     * @return the number of written lines
+     */
+    private static int appendDecompilationError(TextBuffer buffer, MethodWrapper methodWrapper, int indent) {
+        InstructionSequence seq = methodWrapper.undecompiledCode;
+        if (seq == null) {
+            appendComment(buffer, "Couldn't be decompiled", indent);
+            return 1;
+        }
+
+        appendComment(buffer, "Processing time limit exceeded, bytecode:", indent);
+        for (int i = 0; i < seq.length(); i++) {
+            int offset = seq.getOffset(i);
+            Instruction instr = seq.getInstr(i);
+            buffer.appendIndent(indent).append("//   " + offset + ": " + instr);
+            if (instr instanceof JumpInstruction) {
+                // the operand is relative to the jump
+                buffer.append(" -> " + (offset + instr.operand(0)));
+            }
+            buffer.appendLineSeparator();
+        }
+        return seq.length() + 1;
+    }
+
     private static void appendAnnotations(TextBuffer buffer, int indent, StructMember mb, int targetType) {
         Set<String> filter = new HashSet<>();
 
@@ -1048,10 +1075,10 @@ public class ClassWriter {
                 }
 
                 if (methodWrapper.decompiledWithErrors) {
-                    buffer.appendIndent(indent + 1);
-                    buffer.append("// $FF: Couldn't be decompiled");
-                    buffer.appendLineSeparator();
-                    tracer.incrementCurrentSourceLine();
+                    int lines = appendDecompilationError(buffer, methodWrapper, indent + 1);
+                    for (int i = 0; i < lines; i++) {
+                        tracer.incrementCurrentSourceLine();
+                    }
                 } else if (root != null) {
                     tracer.addMapping(root.getDummyExit().bytecode);
                 }
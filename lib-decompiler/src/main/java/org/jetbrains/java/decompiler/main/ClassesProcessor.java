@@ -35,12 +35,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ClassesProcessor {
     public static final int AVERAGE_CLASS_SIZE = 16 * 1024;
 
     private final StructContext context;
-    private final Map<String, ClassNode> mapRootClasses = new HashMap<>();
+    // lambda nodes are added while root classes are decompiled, possibly in parallel
+    private final Map<String, ClassNode> mapRootClasses = new ConcurrentHashMap<>();
 
     public ClassesProcessor(StructContext context) {
         this.context = context;
@@ -253,6 +255,7 @@ public class ClassesProcessor {
         }
 
         DecompilerContext.getLogger().startReadingClass(cl.qualifiedName);
+        DecompilerContext.setProperty(DecompilerContext.CURRENT_ROOT_NODE, root);
         try {
             ImportCollector importCollector = new ImportCollector(root);
             DecompilerContext.startClass(importCollector);
@@ -305,6 +308,7 @@ public class ClassesProcessor {
             }
         } finally {
             destroyWrappers(root);
+            DecompilerContext.setProperty(DecompilerContext.CURRENT_ROOT_NODE, null);
             DecompilerContext.getLogger().endReadingClass();
         }
     }
@@ -396,7 +400,15 @@ public class ClassesProcessor {
             return null;
         }
 
+        /**
+         * @return the wrapper of the class, null unless its root class is being written by the
+         * current thread. With parallel decompilation, the other root classes are written by
+         * other threads.
+         */
         public ClassWrapper getWrapper() {
+            if (getRoot() != DecompilerContext.getProperty(DecompilerContext.CURRENT_ROOT_NODE)) {
+                return null;
+            }
             ClassNode node = this;
             while (node.type == CLASS_LAMBDA) {
                 node = node.parent;
@@ -404,6 +416,14 @@ public class ClassesProcessor {
             return node.wrapper;
         }
 
+        private ClassNode getRoot() {
+            ClassNode node = this;
+            while (node.parent != null) {
+                node = node.parent;
+            }
+            return node;
+        }
+
         public static class LambdaInformation {
             public String method_name;
             public String method_descriptor;
@@ -6,16 +6,19 @@ import org.jetbrains.java.decompiler.main.collectors.CounterContainer;
 import org.jetbrains.java.decompiler.main.collectors.ImportCollector;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
+import org.jetbrains.java.decompiler.main.rels.MethodTimeoutException;
 import org.jetbrains.java.decompiler.modules.decompiler.vars.VarProcessor;
 import org.jetbrains.java.decompiler.modules.renamer.PoolInterceptor;
 import org.jetbrains.java.decompiler.struct.StructContext;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public class DecompilerContext {
     public static final String CURRENT_CLASS = "CURRENT_CLASS";
     public static final String CURRENT_CLASS_WRAPPER = "CURRENT_CLASS_WRAPPER";
     public static final String CURRENT_CLASS_NODE = "CURRENT_CLASS_NODE";
+    public static final String CURRENT_ROOT_NODE = "CURRENT_ROOT_NODE";
     public static final String CURRENT_METHOD_WRAPPER = "CURRENT_METHOD_WRAPPER";
     private static final ThreadLocal<DecompilerContext> currentContext = new ThreadLocal<>();
     private final Map<String, Object> properties;
@@ -27,6 +30,8 @@ public class DecompilerContext {
     private VarProcessor varProcessor;
     private CounterContainer counterContainer;
     private BytecodeSourceMapper bytecodeSourceMapper;
+    private boolean methodTimeLimited;
+    private long methodDeadline;
 
     // *****************************************************************************
     // context setup and update
@@ -46,6 +51,15 @@ public class DecompilerContext {
         this.counterContainer = new CounterContainer();
     }
 
+    /**
+     * @return a context for another thread decompiling other root classes. It shares the
+     * structures and the logger of this context, and has its own copy of the properties. The
+     * logger is called from all the threads, it must be thread-safe.
+     */
+    public DecompilerContext newWorkerContext() {
+        return new DecompilerContext(new HashMap<>(properties), logger, structContext, classProcessor, poolInterceptor);
+    }
+
     public static DecompilerContext getCurrentContext() {
         return currentContext.get();
     }
@@ -65,12 +79,44 @@ public class DecompilerContext {
         context.bytecodeSourceMapper = new BytecodeSourceMapper();
     }
 
+    /**
+     * Sets the mapper of a class decompiled by a worker context, before saving the class.
+     */
+    static void setBytecodeSourceMapper(BytecodeSourceMapper bytecodeSourceMapper) {
+        getCurrentContext().bytecodeSourceMapper = bytecodeSourceMapper;
+    }
+
     public static void startMethod(VarProcessor varProcessor) {
         DecompilerContext context = getCurrentContext();
         context.varProcessor = varProcessor;
         context.counterContainer = new CounterContainer();
     }
 
+    /**
+     * Starts the time limit of the decompilation of the current method, checked by {@link #checkMethodTimeLimit()}.
+     */
+    public static void startMethodTimeLimit(long millis) {
+        DecompilerContext context = getCurrentContext();
+        context.methodTimeLimited = true;
+        context.methodDeadline = System.nanoTime() + millis * 1000000L;
+    }
+
+    public static void endMethodTimeLimit() {
+        getCurrentContext().methodTimeLimited = false;
+    }
+
+    /**
+     * Called by the loops of the method processing, the processing stops at the first call past the time limit.
+     *
+     * @throws MethodTimeoutException if the time limit of the current method is exceeded
+     */
+    public static void checkMethodTimeLimit() {
+        DecompilerContext context = getCurrentContext();
+        if (context.methodTimeLimited && System.nanoTime() - context.methodDeadline > 0) {
+            throw new MethodTimeoutException("Processing time limit exceeded");
+        }
+    }
+
     // *****************************************************************************
     // context access
     // *****************************************************************************
@@ -31,7 +31,7 @@ public class EnumProcessor {
                 if (descriptor.equals("(Ljava/lang/String;)L" + cl.qualifiedName + ";")) {
                     wrapper.getHiddenMembers().add(InterpreterUtil.makeUniqueKey(name, descriptor));
                 }
-            } else if (CodeConstants.INIT_NAME.equals(name)) {
+            } else if (CodeConstants.INIT_NAME.equals(name) && method.root != null) { // successfully decompiled constructor
                 Statement firstData = Statements.findFirstData(method.root);
                 if (firstData != null && !firstData.getExprents().isEmpty()) {
                     Exprent exprent = firstData.getExprents().get(0);
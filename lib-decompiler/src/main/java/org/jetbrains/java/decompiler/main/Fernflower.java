@@ -2,6 +2,7 @@
 package org.jetbrains.java.decompiler.main;
 
 import org.jetbrains.java.decompiler.main.ClassesProcessor.ClassNode;
+import org.jetbrains.java.decompiler.main.collectors.BytecodeSourceMapper;
 import org.jetbrains.java.decompiler.main.extern.IBytecodeProvider;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
@@ -17,15 +18,30 @@ import org.jetbrains.java.decompiler.struct.lazy.LazyLoader;
 import org.jetbrains.java.decompiler.util.TextBuffer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Fernflower implements IDecompiledData {
     private final StructContext structContext;
     private final ClassesProcessor classProcessor;
     private final IIdentifierRenamer helper;
     private final IdentifierConverter converter;
+    /**
+     * Root classes decompiled by the worker threads, taken by {@link #getClassContent(StructClass)}
+     */
+    private Map<String, Future<DecompiledClass>> decompiledClasses;
 
     public Fernflower(IBytecodeProvider provider, IResultSaver saver, Map<String, Object> customProperties, IFernflowerLogger logger) {
         Map<String, Object> properties = new HashMap<>(IFernflowerPreferences.DEFAULTS);
@@ -86,7 +102,65 @@ public class Fernflower implements IDecompiledData {
 
         classProcessor.loadClasses(helper);
 
-        structContext.saveContext();
+        int threads = getThreadCount();
+        if (threads <= 1) {
+            structContext.saveContext();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory(DecompilerContext.getCurrentContext()));
+        try {
+            decompiledClasses = submitRootClasses(executor);
+            structContext.saveContext();
+        } finally {
+            executor.shutdownNow();
+            awaitWorkers(executor);
+            decompiledClasses = null;
+        }
+    }
+
+    /**
+     * Waits for the classes the workers are still decompiling. They read the structures and the archives the caller
+     * releases once {@link #decompileContext()} returns.
+     */
+    private static void awaitWorkers(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int getThreadCount() {
+        int threads = Integer.parseInt(DecompilerContext.getProperty(IFernflowerPreferences.THREADS).toString());
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Decompiles the root classes on the worker threads, in the order of their names. The classes are still saved
+     * one after another by {@link StructContext#saveContext()}, in the same order as without worker threads.
+     */
+    private Map<String, Future<DecompiledClass>> submitRootClasses(ExecutorService executor) {
+        List<String> names = new ArrayList<>();
+        for (ClassNode node : classProcessor.getMapRootClasses().values()) {
+            if (node.type == ClassNode.CLASS_ROOT) {
+                names.add(node.classStruct.qualifiedName);
+            }
+        }
+        Collections.sort(names);
+
+        Map<String, Future<DecompiledClass>> futures = new HashMap<>();
+        for (String name : names) {
+            final StructClass cl = classProcessor.getMapRootClasses().get(name).classStruct;
+            futures.put(name, executor.submit(new Callable<DecompiledClass>() {
+                @Override
+                public DecompiledClass call() {
+                    String content = decompileClass(cl);
+                    return new DecompiledClass(content, DecompilerContext.getBytecodeSourceMapper());
+                }
+            }));
+        }
+        return futures;
     }
 
     public void clearContext() {
@@ -108,6 +182,25 @@ public class Fernflower implements IDecompiledData {
 
     @Override
     public String getClassContent(StructClass cl) {
+        Future<DecompiledClass> future = decompiledClasses != null ? decompiledClasses.remove(cl.qualifiedName) : null;
+        if (future == null) {
+            return decompileClass(cl);
+        }
+
+        try {
+            DecompiledClass decompiled = future.get();
+            DecompilerContext.setBytecodeSourceMapper(decompiled.bytecodeSourceMapper);
+            return decompiled.content;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            DecompilerContext.getLogger().writeMessage("Class " + cl.qualifiedName + " couldn't be fully decompiled.", e.getCause());
+            return null;
+        }
+    }
+
+    private String decompileClass(StructClass cl) {
         try {
             TextBuffer buffer = new TextBuffer(ClassesProcessor.AVERAGE_CLASS_SIZE);
             buffer.append(DecompilerContext.getProperty(IFernflowerPreferences.BANNER).toString());
@@ -118,4 +211,44 @@ public class Fernflower implements IDecompiledData {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private static class DecompiledClass {
+        private final String content;
+        private final BytecodeSourceMapper bytecodeSourceMapper;
+
+        private DecompiledClass(String content, BytecodeSourceMapper bytecodeSourceMapper) {
+            this.content = content;
+            this.bytecodeSourceMapper = bytecodeSourceMapper;
+        }
+    }
+
+    /**
+     * Gives each worker thread its own context, the root classes it decompiles share the structures of the main one.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final DecompilerContext parentContext;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private WorkerThreadFactory(DecompilerContext parentContext) {
+            this.parentContext = parentContext;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final DecompilerContext context = parentContext.newWorkerContext();
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    DecompilerContext.setCurrentContext(context);
+                    try {
+                        runnable.run();
+                    } finally {
+                        DecompilerContext.setCurrentContext(null);
+                    }
+                }
+            }, "Java decompiler " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.jetbrains.java.decompiler.main.decompiler;
+
+import org.jetbrains.java.decompiler.util.InterpreterUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Keeps the archives read by a decompilation open until its end, instead of opening them for every entry.
+ * <p>
+ * A session is started by {@link #retain()} and ended by {@link #release()}, sessions can be nested: the archives are
+ * closed when the last one ends. Outside of a session, each read opens and closes the archive. The reads can be done
+ * from several threads.
+ */
+public class ArchiveCache {
+    private final Map<String, ZipFile> archives = new HashMap<>();
+    private int references;
+
+    public interface EntryReader<T> {
+        T read(ZipFile archive, ZipEntry entry) throws IOException;
+    }
+
+    public synchronized void retain() {
+        references++;
+    }
+
+    public synchronized void release() {
+        if (references == 0) {
+            throw new IllegalStateException("Not retained");
+        }
+        if (--references == 0) {
+            for (ZipFile archive : archives.values()) {
+                try {
+                    archive.close();
+                } catch (IOException ignore) {
+                }
+            }
+            archives.clear();
+        }
+    }
+
+    public byte[] getBytes(File file, String entryName) throws IOException {
+        byte[] bytes = readEntry(file, entryName, new EntryReader<byte[]>() {
+            @Override
+            public byte[] read(ZipFile archive, ZipEntry entry) throws IOException {
+                return InterpreterUtil.getBytes(archive, entry);
+            }
+        });
+        if (bytes == null) throw new IOException("Entry not found: " + entryName);
+        return bytes;
+    }
+
+    /**
+     * @return the result of the reader, null if the archive has no such entry
+     */
+    public <T> T readEntry(File file, String entryName, EntryReader<T> reader) throws IOException {
+        ZipFile archive = getArchive(file);
+        if (archive != null) {
+            // ZipFile is thread safe, the entry is read without holding the lock
+            return readEntry(archive, entryName, reader);
+        }
+
+        archive = new ZipFile(file);
+        try {
+            return readEntry(archive, entryName, reader);
+        } finally {
+            archive.close();
+        }
+    }
+
+    private static <T> T readEntry(ZipFile archive, String entryName, EntryReader<T> reader) throws IOException {
+        ZipEntry entry = archive.getEntry(entryName);
+        return entry != null ? reader.read(archive, entry) : null;
+    }
+
+    /**
+     * @return the open archive, null outside of a session
+     */
+    private synchronized ZipFile getArchive(File file) throws IOException {
+        if (references == 0) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        ZipFile archive = archives.get(path);
+        if (archive == null) {
+            archive = new ZipFile(file);
+            archives.put(path, archive);
+        }
+        return archive;
+    }
+}
@@ -39,6 +39,7 @@ public class ConsoleDecompiler implements IBytecodeProvider, IResultSaver {
     // *******************************************************************
     private final Map<String, ZipOutputStream> mapArchiveStreams = new HashMap<>();
     private final Map<String, Set<String>> mapArchiveEntries = new HashMap<>();
+    private final ArchiveCache archiveCache = new ArchiveCache();
 
     protected ConsoleDecompiler(File destination, Map<String, Object> options, IFernflowerLogger logger) {
         root = destination;
@@ -125,10 +126,12 @@ public class ConsoleDecompiler implements IBytecodeProvider, IResultSaver {
     }
 
     public void decompileContext() {
+        archiveCache.retain();
         try {
             engine.decompileContext();
         } finally {
             engine.clearContext();
+            archiveCache.release();
         }
     }
 
@@ -142,14 +145,7 @@ public class ConsoleDecompiler implements IBytecodeProvider, IResultSaver {
         if (internalPath == null) {
             return InterpreterUtil.getBytes(file);
         } else {
-            ZipFile archive = new ZipFile(file);
-            try {
-                ZipEntry entry = archive.getEntry(internalPath);
-                if (entry == null) throw new IOException("Entry not found: " + internalPath);
-                return InterpreterUtil.getBytes(archive, entry);
-            } finally {
-                archive.close();
-            }
+            return archiveCache.getBytes(file, internalPath);
         }
     }
 
@@ -216,7 +212,7 @@ public class ConsoleDecompiler implements IBytecodeProvider, IResultSaver {
     }
 
     @Override
-    public void copyEntry(String source, String path, String archiveName, String entryName) {
+    public void copyEntry(String source, String path, String archiveName, final String entryName) {
         String file = new File(getAbsolutePath(path), archiveName).getPath();
 
         if (!checkEntry(entryName, file)) {
@@ -224,22 +220,20 @@ public class ConsoleDecompiler implements IBytecodeProvider, IResultSaver {
         }
 
         try {
-            ZipFile srcArchive = new ZipFile(new File(source));
-            try {
-                ZipEntry entry = srcArchive.getEntry(entryName);
-                if (entry != null) {
-                    InputStream in = srcArchive.getInputStream(entry);
+            final ZipOutputStream out = mapArchiveStreams.get(file);
+            archiveCache.readEntry(new File(source), entryName, new ArchiveCache.EntryReader<Void>() {
+                @Override
+                public Void read(ZipFile archive, ZipEntry entry) throws IOException {
+                    InputStream in = archive.getInputStream(entry);
                     try {
-                        ZipOutputStream out = mapArchiveStreams.get(file);
                         out.putNextEntry(new ZipEntry(entryName));
                         InterpreterUtil.copyStream(in, out);
                     } finally {
                         in.close();
                     }
+                    return null;
                 }
-            } finally {
-                srcArchive.close();
-            }
+            });
         } catch (IOException ex) {
             String message = "Cannot copy entry " + entryName + " from " + source + " to " + file;
             DecompilerContext.getLogger().writeMessage(message, ex);
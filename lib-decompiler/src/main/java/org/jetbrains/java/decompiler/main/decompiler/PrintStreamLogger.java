@@ -6,28 +6,38 @@ import org.jetbrains.java.decompiler.util.TextUtil;
 
 import java.io.PrintStream;
 
+/**
+ * The logger is shared by the worker threads of a parallel decompilation, each thread has its own
+ * indentation and a message is written with its stack trace in one piece.
+ */
 public class PrintStreamLogger extends IFernflowerLogger {
 
     private final PrintStream stream;
-    private int indent;
+    private final ThreadLocal<Integer> indent = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
 
     public PrintStreamLogger(PrintStream printStream) {
         stream = printStream;
-        indent = 0;
     }
 
     @Override
     public void writeMessage(String message, Severity severity) {
         if (accepts(severity)) {
-            stream.println(severity.prefix + TextUtil.getIndentString(indent) + message);
+            stream.println(severity.prefix + TextUtil.getIndentString(indent.get()) + message);
         }
     }
 
     @Override
     public void writeMessage(String message, Severity severity, Throwable t) {
         if (accepts(severity)) {
-            writeMessage(message, severity);
-            t.printStackTrace(stream);
+            synchronized (stream) {
+                writeMessage(message, severity);
+                t.printStackTrace(stream);
+            }
         }
     }
 
@@ -35,14 +45,14 @@ public class PrintStreamLogger extends IFernflowerLogger {
     public void startReadingClass(String className) {
         if (accepts(Severity.INFO)) {
             writeMessage("Decompiling class " + className, Severity.INFO);
-            ++indent;
+            indent.set(indent.get() + 1);
         }
     }
 
     @Override
     public void endReadingClass() {
         if (accepts(Severity.INFO)) {
-            --indent;
+            indent.set(indent.get() - 1);
             writeMessage("... done", Severity.INFO);
         }
     }
@@ -51,14 +61,14 @@ public class PrintStreamLogger extends IFernflowerLogger {
     public void startClass(String className) {
         if (accepts(Severity.INFO)) {
             writeMessage("Processing class " + className, Severity.TRACE);
-            ++indent;
+            indent.set(indent.get() + 1);
         }
     }
 
     @Override
     public void endClass() {
         if (accepts(Severity.INFO)) {
-            --indent;
+            indent.set(indent.get() - 1);
             writeMessage("... proceeded", Severity.TRACE);
         }
     }
@@ -67,29 +77,36 @@ public class PrintStreamLogger extends IFernflowerLogger {
     public void startMethod(String methodName) {
         if (accepts(Severity.INFO)) {
             writeMessage("Processing method " + methodName, Severity.TRACE);
-            ++indent;
+            indent.set(indent.get() + 1);
         }
     }
 
     public void endMethod() {
         if (accepts(Severity.INFO)) {
-            --indent;
+            indent.set(indent.get() - 1);
             writeMessage("... proceeded", Severity.TRACE);
         }
     }
 
+    @Override
+    public void methodProcessed(String methodName, long millis) {
+        if (accepts(Severity.INFO)) {
+            writeMessage(methodName + " processed in " + millis + " ms", Severity.TRACE);
+        }
+    }
+
     @Override
     public void startWriteClass(String className) {
         if (accepts(Severity.INFO)) {
             writeMessage("Writing class " + className, Severity.TRACE);
-            ++indent;
+            indent.set(indent.get() + 1);
         }
     }
 
     @Override
     public void endWriteClass() {
         if (accepts(Severity.INFO)) {
-            --indent;
+            indent.set(indent.get() - 1);
             writeMessage("... written", Severity.TRACE);
         }
     }
@@ -39,6 +39,14 @@ public abstract class IFernflowerLogger {
     public void endMethod() {
     }
 
+    /**
+     * Called once the code of a method is processed, before {@link #endMethod()}.
+     *
+     * @param millis processing time of the method, including the time spent before a failure or a timeout
+     */
+    public void methodProcessed(String methodName, long millis) {
+    }
+
     public void startWriteClass(String className) {
     }
 
@@ -31,6 +31,7 @@ public interface IFernflowerPreferences {
 
     String LOG_LEVEL = "log";
     String MAX_PROCESSING_METHOD = "mpm";
+    String THREADS = "thr";
     String RENAME_ENTITIES = "ren";
     String USER_RENAMER_CLASS = "urc";
     String NEW_LINE_SEPARATOR = "nls";
@@ -34,6 +34,7 @@ import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.R
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.REMOVE_SYNTHETIC;
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.RENAME_ENTITIES;
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.SYNTHETIC_NOT_SET;
+import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.THREADS;
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.UNDEFINED_PARAM_TYPE_OBJECT;
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.UNIT_TEST_MODE;
 import static org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences.USE_DEBUG_VAR_NAMES;
@@ -70,6 +71,7 @@ public class IFernflowerPreferencesStatic {
 
         defaults.put(LOG_LEVEL, IFernflowerLogger.Severity.INFO.name());
         defaults.put(MAX_PROCESSING_METHOD, "0");
+        defaults.put(THREADS, "1");
         defaults.put(RENAME_ENTITIES, "0");
         defaults.put(NEW_LINE_SEPARATOR, (InterpreterUtil.IS_WINDOWS ? "0" : "1"));
         defaults.put(INDENT_STRING, "   ");
@@ -6,6 +6,7 @@ import com.duy.java8.util.function.Consumer;
 import com.duy.java8.util.function.Predicate;
 
 import org.jetbrains.java.decompiler.code.CodeConstants;
+import org.jetbrains.java.decompiler.code.InstructionSequence;
 import org.jetbrains.java.decompiler.main.DecompilerContext;
 import org.jetbrains.java.decompiler.main.collectors.CounterContainer;
 import org.jetbrains.java.decompiler.main.collectors.VarNamesCollector;
@@ -40,11 +41,6 @@ public class ClassWrapper {
         this.classStruct = classStruct;
     }
 
-    @SuppressWarnings("deprecation")
-    private static void killThread(Thread thread) {
-        thread.stop();
-    }
-
     public void init() {
         DecompilerContext.setProperty(DecompilerContext.CURRENT_CLASS, classStruct);
         DecompilerContext.setProperty(DecompilerContext.CURRENT_CLASS_WRAPPER, this);
@@ -66,40 +62,30 @@ public class ClassWrapper {
             RootStatement root = null;
 
             boolean isError = false;
+            InstructionSequence undecompiledCode = null;
+            long startTime = System.nanoTime();
 
             try {
                 if (mt.containsCode()) {
                     if (maxSec == 0 || testMode) {
                         root = MethodProcessorRunnable.codeToJava(mt, md, varProc);
                     } else {
-                        MethodProcessorRunnable mtProc = new MethodProcessorRunnable(mt, md, varProc, DecompilerContext.getCurrentContext());
-
-                        Thread mtThread = new Thread(mtProc, "Java decompiler");
-                        long stopAt = System.currentTimeMillis() + maxSec * 1000;
-
-                        mtThread.start();
-
-                        while (!mtProc.isFinished()) {
-                            try {
-                                synchronized (mtProc.lock) {
-                                    mtProc.lock.wait(200);
-                                }
-                            } catch (InterruptedException e) {
-                                killThread(mtThread);
-                                throw e;
-                            }
-
-                            if (System.currentTimeMillis() >= stopAt) {
-                                String message = "Processing time limit exceeded for method " + mt.getName() + ", execution interrupted.";
-                                DecompilerContext.getLogger().writeMessage(message, IFernflowerLogger.Severity.ERROR);
-                                killThread(mtThread);
-                                isError = true;
-                                break;
-                            }
-                        }
-
-                        if (!isError) {
-                            root = mtProc.getResult();
+                        // the processing checks the limit in its loops and stops by itself, the method is then
+                        // written as its bytecode
+                        DecompilerContext.startMethodTimeLimit(maxSec * 1000L);
+                        try {
+                            root = MethodProcessorRunnable.codeToJava(mt, md, varProc);
+                        } catch (MethodTimeoutException e) {
+                            String message = "Processing time limit exceeded for method " + mt.getName() + ", execution interrupted.";
+                            DecompilerContext.getLogger().writeMessage(message, IFernflowerLogger.Severity.ERROR);
+                            isError = true;
+                            // the code is read again, the processing may have changed it
+                            mt.releaseResources();
+                            mt.expandData();
+                            undecompiledCode = mt.getInstructionSequence();
+                            mt.releaseResources();
+                        } finally {
+                            DecompilerContext.endMethodTimeLimit();
                         }
                     }
                 } else {
@@ -133,8 +119,12 @@ public class ClassWrapper {
                 isError = true;
             }
 
+            DecompilerContext.getLogger().methodProcessed(mt.getName() + " " + mt.getDescriptor(),
+                    (System.nanoTime() - startTime) / 1000000L);
+
             MethodWrapper methodWrapper = new MethodWrapper(root, varProc, mt, counter);
             methodWrapper.decompiledWithErrors = isError;
+            methodWrapper.undecompiledCode = undecompiledCode;
 
             methods.addWithKey(methodWrapper, InterpreterUtil.makeUniqueKey(mt.getName(), mt.getDescriptor()));
 
@@ -100,6 +100,7 @@ public class MethodProcessorRunnable implements Runnable {
 
         FinallyProcessor fProc = new FinallyProcessor(md, varProc);
         while (fProc.iterateGraph(mt, root, graph)) {
+            DecompilerContext.checkMethodTimeLimit();
             root = DomHelper.parseGraph(graph);
         }
 
@@ -121,15 +122,18 @@ public class MethodProcessorRunnable implements Runnable {
         StackVarsProcessor stackProc = new StackVarsProcessor();
 
         do {
+            DecompilerContext.checkMethodTimeLimit();
             stackProc.simplifyStackVars(root, mt, cl);
             varProc.setVarVersions(root);
         }
         while (new PPandMMHelper().findPPandMM(root));
 
         while (true) {
+            DecompilerContext.checkMethodTimeLimit();
             LabelHelper.cleanUpEdges(root);
 
             do {
+                DecompilerContext.checkMethodTimeLimit();
                 MergeHelper.enhanceLoops(root);
             }
             while (LoopExtractHelper.extractLoops(root) || IfHelper.mergeAllIfs(root));
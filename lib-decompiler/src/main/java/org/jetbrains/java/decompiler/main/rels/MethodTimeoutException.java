@@ -0,0 +1,12 @@
+// Copyright 2000-2018 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.jetbrains.java.decompiler.main.rels;
+
+/**
+ * Thrown by {@link org.jetbrains.java.decompiler.main.DecompilerContext#checkMethodTimeLimit()} when the decompilation
+ * of a method exceeded its time limit.
+ */
+public class MethodTimeoutException extends RuntimeException {
+    public MethodTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 // Copyright 2000-2017 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package org.jetbrains.java.decompiler.main.rels;
 
+import org.jetbrains.java.decompiler.code.InstructionSequence;
 import org.jetbrains.java.decompiler.main.collectors.CounterContainer;
 import org.jetbrains.java.decompiler.modules.decompiler.sforms.DirectGraph;
 import org.jetbrains.java.decompiler.modules.decompiler.sforms.FlattenStatementsHelper;
@@ -23,6 +24,10 @@ public class MethodWrapper {
     public DirectGraph graph;
     public List<VarVersionPair> synthParameters;
     public boolean decompiledWithErrors;
+    /**
+     * Code of a method whose processing exceeded the time limit, written instead of its source
+     */
+    public InstructionSequence undecompiledCode;
 
     public MethodWrapper(RootStatement root, VarProcessor varproc, StructMethod methodStruct, CounterContainer counter) {
         this.root = root;
@@ -47,6 +47,9 @@ public class NestedClassProcessor {
 
         final MethodWrapper method = parent.getWrapper().getMethods().getWithKey(child.lambdaInformation.content_method_key);
         final MethodWrapper enclosingMethod = parent.getWrapper().getMethods().getWithKey(child.enclosingMethod);
+        if (method.root == null || enclosingMethod.root == null) { // lambda body or enclosing method not decompiled
+            return;
+        }
 
         MethodDescriptor md_lambda = MethodDescriptor.parseDescriptor(child.lambdaInformation.method_descriptor);
         final MethodDescriptor md_content = MethodDescriptor.parseDescriptor(child.lambdaInformation.content_method_descriptor);
@@ -882,7 +885,10 @@ public class NestedClassProcessor {
                 insertLocalVars(node, child);
 
                 if (child.type == ClassNode.CLASS_LOCAL) {
-                    setLocalClassDefinition(node.getWrapper().getMethods().getWithKey(child.enclosingMethod), child);
+                    MethodWrapper enclosingMethod = node.getWrapper().getMethods().getWithKey(child.enclosingMethod);
+                    if (enclosingMethod.root != null) { // successfully decompiled enclosing method
+                        setLocalClassDefinition(enclosingMethod, child);
+                    }
                 }
             }
         }
@@ -137,6 +137,7 @@ public class DomHelper {
         }
 
         do {
+            DecompilerContext.checkMethodTimeLimit();
 
             for (Statement stat : lstStats) {
 
@@ -378,6 +379,7 @@ public class DomHelper {
                     boolean forceall = i != 0;
 
                     while (true) {
+                        DecompilerContext.checkMethodTimeLimit();
 
                         if (findSimpleStatements(general, mapExtPost)) {
                             reducibility = 0;
@@ -604,6 +606,7 @@ public class DomHelper {
         boolean found, success = false;
 
         do {
+            DecompilerContext.checkMethodTimeLimit();
             found = false;
 
             List<Statement> lstStats = stat.getPostReversePostOrderList();
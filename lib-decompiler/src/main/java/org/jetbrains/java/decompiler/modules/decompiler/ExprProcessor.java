@@ -474,6 +474,7 @@ public class ExprProcessor implements CodeConstants {
         mapData.put(dgraph.first, map);
 
         while (!stack.isEmpty()) {
+            DecompilerContext.checkMethodTimeLimit();
 
             DirectNode node = stack.removeFirst();
             LinkedList<String> entrypoints = stackEntryPoint.removeFirst();
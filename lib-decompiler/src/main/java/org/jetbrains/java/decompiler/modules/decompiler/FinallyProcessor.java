@@ -409,6 +409,7 @@ public class FinallyProcessor {
         stack.add(root);
 
         while (!stack.isEmpty()) {
+            DecompilerContext.checkMethodTimeLimit();
             Statement stat = stack.removeLast();
 
             Statement parent = stat.getParent();
@@ -494,6 +495,7 @@ public class FinallyProcessor {
         Set<DirectNode> setVisited = new HashSet<>();
 
         while (!stack.isEmpty()) {
+            DecompilerContext.checkMethodTimeLimit();
             DirectNode node = stack.removeFirst();
 
             if (setVisited.contains(node)) {
@@ -737,6 +739,7 @@ public class FinallyProcessor {
         stack.add(new BlockStackEntry(startCatch, startSample, new ArrayList<int[]>()));
 
         while (!stack.isEmpty()) {
+            DecompilerContext.checkMethodTimeLimit();
 
             BlockStackEntry entry = stack.remove(0);
             BasicBlock blockCatch = entry.blockCatch;
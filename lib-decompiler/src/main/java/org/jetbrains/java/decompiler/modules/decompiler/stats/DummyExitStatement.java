@@ -0,0 +1,41 @@
+/*
+ * Copyright 2000-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.java.decompiler.modules.decompiler.stats;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * @author egor
+ */
+public class DummyExitStatement extends Statement {
+    public Set<Integer> bytecode = null;  // offsets of bytecode instructions mapped to dummy exit
+
+    public DummyExitStatement() {
+        type = Statement.TYPE_DUMMYEXIT;
+    }
+
+    public void addBytecodeOffsets(Collection<Integer> bytecodeOffsets) {
+        if (bytecodeOffsets != null && !bytecodeOffsets.isEmpty()) {
+            if (bytecode == null) {
+                bytecode = new HashSet<>(bytecodeOffsets);
+            } else {
+                bytecode.addAll(bytecodeOffsets);
+            }
+        }
+    }
+}
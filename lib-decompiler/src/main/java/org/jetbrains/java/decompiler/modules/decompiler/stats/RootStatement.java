@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.java.decompiler.modules.decompiler.stats;
+
+import org.jetbrains.java.decompiler.util.TextBuffer;
+import org.jetbrains.java.decompiler.main.collectors.BytecodeMappingTracer;
+import org.jetbrains.java.decompiler.modules.decompiler.ExprProcessor;
+
+
+public class RootStatement extends Statement {
+
+    private DummyExitStatement dummyExit;
+
+    public RootStatement(Statement head, DummyExitStatement dummyExit) {
+
+        type = Statement.TYPE_ROOT;
+
+        first = head;
+        this.dummyExit = dummyExit;
+
+        stats.addWithKey(first, first.id);
+        first.setParent(this);
+    }
+
+    public TextBuffer toJava(int indent, BytecodeMappingTracer tracer) {
+        return ExprProcessor.listToJava(varDefinitions, indent, tracer).append(first.toJava(indent, tracer));
+    }
+
+    public DummyExitStatement getDummyExit() {
+        return dummyExit;
+    }
+
+    public void setDummyExit(DummyExitStatement dummyExit) {
+        this.dummyExit = dummyExit;
+    }
+}
@@ -14,13 +14,9 @@
 
 package com.google.googlejavaformat;
 
-import static com.google.common.collect.Iterables.getLast;
-
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
-import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Range;
 import com.google.googlejavaformat.Output.BreakTag;
 import java.util.ArrayList;
 import java.util.List;
@@ -59,12 +55,18 @@ public abstract class Doc {
     FORCED
   }
 
-  /** State for writing. */
+  /**
+   * State for writing. The state is updated in place while the breaks are computed; the broken
+   * {@link Level}s nested in a level share one state, allocated once per depth.
+   */
   public static final class State {
-    final int lastIndent;
-    final int indent;
-    final int column;
-    final boolean mustBreak;
+    int lastIndent;
+    int indent;
+    int column;
+    boolean mustBreak;
+
+    // The state of the levels nested in the level of this state.
+    private State nested;
 
     State(int lastIndent, int indent, int column, boolean mustBreak) {
       this.lastIndent = lastIndent;
@@ -77,12 +79,30 @@ public abstract class Doc {
       this(indent0, indent0, column0, false);
     }
 
-    State withColumn(int column) {
-      return new State(lastIndent, indent, column, mustBreak);
+    State setColumn(int column) {
+      this.column = column;
+      return this;
+    }
+
+    State setMustBreak(boolean mustBreak) {
+      this.mustBreak = mustBreak;
+      return this;
     }
 
-    State withMustBreak(boolean mustBreak) {
-      return new State(lastIndent, indent, column, mustBreak);
+    /**
+     * Return the state of a nested {@link Level}, reset to the given indent and column. It is
+     * valid until the next call.
+     */
+    State nested(int indent0, int column0) {
+      if (nested == null) {
+        nested = new State(indent0, column0);
+      } else {
+        nested.lastIndent = indent0;
+        nested.indent = indent0;
+        nested.column = column0;
+        nested.mustBreak = false;
+      }
+      return nested;
     }
 
     @Override
@@ -96,9 +116,6 @@ public abstract class Doc {
     }
   }
 
-  private static final Range<Integer> EMPTY_RANGE = Range.closedOpen(-1, -1);
-  private static final DiscreteDomain<Integer> INTEGERS = DiscreteDomain.integers();
-
   // Memoized width; Float.POSITIVE_INFINITY if contains forced breaks.
   private boolean widthComputed = false;
   private float width = 0.0F;
@@ -107,9 +124,10 @@ public abstract class Doc {
   private boolean flatComputed = false;
   private String flat = "";
 
-  // Memoized Range.
+  // Memoized range of Input.Tok indices, [rangeStart, rangeEnd); empty if rangeStart == rangeEnd.
   private boolean rangeComputed = false;
-  private Range<Integer> range = EMPTY_RANGE;
+  private int rangeStart = -1;
+  private int rangeEnd = -1;
 
   /**
    * Return the width of a {@code Doc}, or {@code Float.POSITIVE_INFINITY} if it must be broken.
@@ -139,16 +157,49 @@ public abstract class Doc {
   }
 
   /**
-   * Return the {@link Range} of a {@code Doc}.
+   * Append the flat-string value of a {@code Doc} to a builder, see {@link #getFlat()}.
+   *
+   * @param builder the builder
+   */
+  void appendFlat(StringBuilder builder) {
+    builder.append(getFlat());
+  }
+
+  /**
+   * Return the first {@link Input.Tok} index of the range of a {@code Doc}.
+   *
+   * @return the start of the range, inclusive
+   */
+  final int rangeStart() {
+    if (!rangeComputed) {
+      computeRange();
+      rangeComputed = true;
+    }
+    return rangeStart;
+  }
+
+  /**
+   * Return the end of the range of a {@code Doc}.
    *
-   * @return the {@code Doc}'s {@link Range}
+   * @return the end of the range, exclusive
    */
-  final Range<Integer> range() {
+  final int rangeEnd() {
     if (!rangeComputed) {
-      range = computeRange();
+      computeRange();
       rangeComputed = true;
     }
-    return range;
+    return rangeEnd;
+  }
+
+  /**
+   * Set the range of {@link Input.Tok} indices of a {@code Doc}.
+   *
+   * @param start the first index
+   * @param end the last index, exclusive
+   */
+  final void setRange(int start, int end) {
+    rangeStart = start;
+    rangeEnd = end;
   }
 
   /**
@@ -166,11 +217,10 @@ public abstract class Doc {
   abstract String computeFlat();
 
   /**
-   * Compute the {@code Doc}'s {@link Range} of {@link Input.Token}s.
-   *
-   * @return the {@link Range}
+   * Compute the {@code Doc}'s range of {@link Input.Token}s, with {@link #setRange}. The range is
+   * empty by default.
    */
-  abstract Range<Integer> computeRange();
+  void computeRange() {}
 
   /**
    * Make breaking decisions for a {@code Doc}.
@@ -224,19 +274,37 @@ public abstract class Doc {
     @Override
     String computeFlat() {
       StringBuilder builder = new StringBuilder();
+      appendFlat(builder);
+      return builder.toString();
+    }
+
+    @Override
+    void appendFlat(StringBuilder builder) {
+      // The nested levels are not memoized, only the outermost one-line level is written flat.
       for (Doc doc : docs) {
-        builder.append(doc.getFlat());
+        doc.appendFlat(builder);
       }
-      return builder.toString();
     }
 
     @Override
-    Range<Integer> computeRange() {
-      Range<Integer> docRange = EMPTY_RANGE;
+    void computeRange() {
+      int start = -1;
+      int end = -1;
       for (Doc doc : docs) {
-        docRange = union(docRange, doc.range());
+        int docStart = doc.rangeStart();
+        int docEnd = doc.rangeEnd();
+        if (docStart == docEnd) {
+          continue;
+        }
+        if (start == end) {
+          start = docStart;
+          end = docEnd;
+        } else {
+          start = Math.min(start, docStart);
+          end = Math.max(end, docEnd);
+        }
       }
-      return docRange;
+      setRange(start, end);
     }
 
     // State that needs to be preserved between calculating breaks and
@@ -246,88 +314,69 @@ public abstract class Doc {
     /** True if the entire {@link Level} fits on one line. */
     boolean oneLine = false;
 
-    /**
-     * Groups of {@link Doc}s that are children of the current {@link Level}, separated by {@link
-     * Break}s.
-     */
-    List<List<Doc>> splits = new ArrayList<>();
-
-    /** {@link Break}s between {@link Doc}s in the current {@link Level}. */
-    List<Break> breaks = new ArrayList<>();
-
     @Override
     public State computeBreaks(CommentsHelper commentsHelper, int maxWidth, State state) {
       float thisWidth = getWidth();
       if (state.column + thisWidth <= maxWidth) {
         oneLine = true;
-        return state.withColumn(state.column + (int) thisWidth);
-      }
-      State broken =
-          computeBroken(
-              commentsHelper, maxWidth, new State(state.indent + plusIndent.eval(), state.column));
-      return state.withColumn(broken.column);
-    }
-
-    private static void splitByBreaks(List<Doc> docs, List<List<Doc>> splits, List<Break> breaks) {
-      splits.clear();
-      breaks.clear();
-      splits.add(new ArrayList<Doc>());
-      for (Doc doc : docs) {
-        if (doc instanceof Break) {
-          breaks.add((Break) doc);
-          splits.add(new ArrayList<Doc>());
-        } else {
-          getLast(splits).add(doc);
-        }
+        return state.setColumn(state.column + (int) thisWidth);
       }
+      State nested = state.nested(state.indent + plusIndent.eval(), state.column);
+      State broken = computeBroken(commentsHelper, maxWidth, nested);
+      return state.setColumn(broken.column);
     }
 
-    /** Compute breaks for a {@link Level} that spans multiple lines. */
+    /**
+     * Compute breaks for a {@link Level} that spans multiple lines. The {@link Doc}s are laid out
+     * in groups separated by {@link Break}s.
+     */
     private State computeBroken(CommentsHelper commentsHelper, int maxWidth, State state) {
-      splitByBreaks(docs, splits, breaks);
-
-      state =
-          computeBreakAndSplit(
-              commentsHelper, maxWidth, state, Optional.<Break>absent(), splits.get(0));
-
-      // Handle following breaks and split.
-      for (int i = 0; i < breaks.size(); i++) {
-        state =
-            computeBreakAndSplit(
-                commentsHelper, maxWidth, state, Optional.of(breaks.get(i)), splits.get(i + 1));
+      Break breakDoc = null;
+      int splitStart = 0;
+      int n = docs.size();
+      for (int i = 0; i <= n; i++) {
+        if (i == n || docs.get(i) instanceof Break) {
+          state =
+              computeBreakAndSplit(commentsHelper, maxWidth, state, breakDoc, docs, splitStart, i);
+          if (i < n) {
+            breakDoc = (Break) docs.get(i);
+            splitStart = i + 1;
+          }
+        }
       }
       return state;
     }
 
-    /** Lay out a Break-separated group of Docs in the current Level. */
+    /**
+     * Lay out a Break-separated group of Docs in the current Level.
+     *
+     * @param breakDoc the {@link Break} before the group, or {@code null} for the first group
+     */
     private static State computeBreakAndSplit(
         CommentsHelper commentsHelper,
         int maxWidth,
         State state,
-        Optional<Break> optBreakDoc,
-        List<Doc> split) {
-      float breakWidth = optBreakDoc.isPresent() ? optBreakDoc.get().getWidth() : 0.0F;
-      float splitWidth = getWidth(split);
+        Break breakDoc,
+        List<Doc> docs,
+        int splitStart,
+        int splitEnd) {
+      float breakWidth = breakDoc != null ? breakDoc.getWidth() : 0.0F;
+      float splitWidth = getWidth(docs, splitStart, splitEnd);
       boolean shouldBreak =
-          (optBreakDoc.isPresent() && optBreakDoc.get().fillMode == FillMode.UNIFIED)
+          (breakDoc != null && breakDoc.fillMode == FillMode.UNIFIED)
               || state.mustBreak
               || state.column + breakWidth + splitWidth > maxWidth;
 
-      if (optBreakDoc.isPresent()) {
-        state = optBreakDoc.get().computeBreaks(state, state.lastIndent, shouldBreak);
+      if (breakDoc != null) {
+        state = breakDoc.computeBreaks(state, state.lastIndent, shouldBreak);
       }
       boolean enoughRoom = state.column + splitWidth <= maxWidth;
-      state = computeSplit(commentsHelper, maxWidth, split, state.withMustBreak(false));
-      if (!enoughRoom) {
-        state = state.withMustBreak(true); // Break after, too.
+      state.setMustBreak(false);
+      for (int i = splitStart; i < splitEnd; i++) {
+        state = docs.get(i).computeBreaks(commentsHelper, maxWidth, state);
       }
-      return state;
-    }
-
-    private static State computeSplit(
-        CommentsHelper commentsHelper, int maxWidth, List<Doc> docs, State state) {
-      for (Doc doc : docs) {
-        state = doc.computeBreaks(commentsHelper, maxWidth, state);
+      if (!enoughRoom) {
+        state = state.setMustBreak(true); // Break after, too.
       }
       return state;
     }
@@ -335,21 +384,11 @@ public abstract class Doc {
     @Override
     public void write(Output output) {
       if (oneLine) {
-        output.append(getFlat(), range()); // This is defined because width is finite.
+        // This is defined because width is finite.
+        output.append(getFlat(), rangeStart(), rangeEnd());
       } else {
-        writeFilled(output);
-      }
-    }
-
-    private void writeFilled(Output output) {
-      // Handle first split.
-      for (Doc doc : splits.get(0)) {
-        doc.write(output);
-      }
-      // Handle following breaks and split.
-      for (int i = 0; i < breaks.size(); i++) {
-        breaks.get(i).write(output);
-        for (Doc doc : splits.get(i + 1)) {
+        // The breaks and the groups between them, in order.
+        for (Doc doc : docs) {
           doc.write(output);
         }
       }
@@ -362,17 +401,17 @@ public abstract class Doc {
      * @return the width, or {@code Float.POSITIVE_INFINITY} if any {@link Doc} must be broken
      */
     static float getWidth(List<Doc> docs) {
+      return getWidth(docs, 0, docs.size());
+    }
+
+    private static float getWidth(List<Doc> docs, int start, int end) {
       float width = 0.0F;
-      for (Doc doc : docs) {
-        width += doc.getWidth();
+      for (int i = start; i < end; i++) {
+        width += docs.get(i).getWidth();
       }
       return width;
     }
 
-    private static Range<Integer> union(Range<Integer> x, Range<Integer> y) {
-      return x.isEmpty() ? y : y.isEmpty() ? x : x.span(y).canonical(INTEGERS);
-    }
-
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
@@ -476,20 +515,21 @@ public abstract class Doc {
     }
 
     @Override
-    Range<Integer> computeRange() {
-      return Range.singleton(token.getTok().getIndex()).canonical(INTEGERS);
+    void computeRange() {
+      int index = token.getTok().getIndex();
+      setRange(index, index + 1);
     }
 
     @Override
     public State computeBreaks(CommentsHelper commentsHelper, int maxWidth, State state) {
       String text = token.getTok().getOriginalText();
-      return state.withColumn(state.column + text.length());
+      return state.setColumn(state.column + text.length());
     }
 
     @Override
     public void write(Output output) {
       String text = token.getTok().getOriginalText();
-      output.append(text, range());
+      output.append(text, rangeStart(), rangeEnd());
     }
 
     @Override
@@ -532,19 +572,14 @@ public abstract class Doc {
       return " ";
     }
 
-    @Override
-    Range<Integer> computeRange() {
-      return EMPTY_RANGE;
-    }
-
     @Override
     public State computeBreaks(CommentsHelper commentsHelper, int maxWidth, State state) {
-      return state.withColumn(state.column + 1);
+      return state.setColumn(state.column + 1);
     }
 
     @Override
     public void write(Output output) {
-      output.append(" ", range());
+      output.append(" ", rangeStart(), rangeEnd());
     }
 
     @Override
@@ -635,11 +670,6 @@ public abstract class Doc {
       return flat;
     }
 
-    @Override
-    Range<Integer> computeRange() {
-      return EMPTY_RANGE;
-    }
-
     /** Was this break taken? */
     boolean broken;
 
@@ -654,11 +684,11 @@ public abstract class Doc {
       if (broken) {
         this.broken = true;
         this.newIndent = Math.max(lastIndent + plusIndent.eval(), 0);
-        return state.withColumn(newIndent);
+        return state.setColumn(newIndent);
       } else {
         this.broken = false;
         this.newIndent = -1;
-        return state.withColumn(state.column + flat.length());
+        return state.setColumn(state.column + flat.length());
       }
     }
 
@@ -674,10 +704,10 @@ public abstract class Doc {
     @Override
     public void write(Output output) {
       if (broken) {
-        output.append("\n", EMPTY_RANGE);
+        output.append("\n", -1, -1);
         output.indent(newIndent);
       } else {
-        output.append(flat, range());
+        output.append(flat, rangeStart(), rangeEnd());
       }
     }
 
@@ -744,8 +774,8 @@ public abstract class Doc {
     }
 
     @Override
-    Range<Integer> computeRange() {
-      return Range.singleton(tok.getIndex()).canonical(INTEGERS);
+    void computeRange() {
+      setRange(tok.getIndex(), tok.getIndex() + 1);
     }
 
     String text;
@@ -754,12 +784,12 @@ public abstract class Doc {
     public State computeBreaks(CommentsHelper commentsHelper, int maxWidth, State state) {
       text = commentsHelper.rewrite(tok, maxWidth, state.column);
       int firstLineLength = text.length() - Iterators.getLast(Newlines.lineOffsetIterator(text));
-      return state.withColumn(state.column + firstLineLength);
+      return state.setColumn(state.column + firstLineLength);
     }
 
     @Override
     public void write(Output output) {
-      output.append(text, range());
+      output.append(text, rangeStart(), rangeEnd());
     }
 
     @Override
@@ -16,7 +16,6 @@ package com.google.googlejavaformat;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
-import com.google.common.collect.Range;
 import com.google.googlejavaformat.OpsBuilder.BlankLineWanted;
 
 /**
@@ -33,10 +32,12 @@ public abstract class Output extends InputOutput {
     /**
      * Output a string.
      *
-     * @param text  the string
-     * @param range the {@link Range} corresponding to the string
+     * @param text       the string
+     * @param rangeStart the first {@link Input.Tok} index corresponding to the string
+     * @param rangeEnd   the end of the {@link Input.Tok} indices, exclusive; the range is empty if
+     *                   it is equal to {@code rangeStart}
      */
-    public abstract void append(String text, Range<Integer> range);
+    public abstract void append(String text, int rangeStart, int rangeEnd);
 
     /**
      * A blank line is or is not wanted here.
@@ -136,6 +136,19 @@ public final class Formatter {
      */
     static void format(
             final JavaInput javaInput, JavaOutput javaOutput, JavaFormatterOptions options) {
+        layout(buildOps(javaInput, javaOutput, options), javaOutput, options);
+    }
+
+    /**
+     * Parse a Java compilation unit and convert it to the {@link Op}s of the formatter.
+     *
+     * @param javaInput  the input, a Java compilation unit
+     * @param javaOutput the {@link JavaOutput}, which records the blank lines of the input
+     * @param options    the {@link JavaFormatterOptions}
+     * @return the {@link Op}s, with the comments of the input
+     */
+    static ImmutableList<Op> buildOps(
+            final JavaInput javaInput, JavaOutput javaOutput, JavaFormatterOptions options) {
         Context context = new Context();
         DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
         context.put(DiagnosticListener.class, diagnostics);
@@ -177,7 +190,19 @@ public final class Formatter {
         new JavaInputAstVisitor(builder, options.indentationMultiplier()).scan(unit, null);
         builder.sync(javaInput.getText().length());
         builder.drain();
-        Doc doc = new DocBuilder().withOps(builder.build()).build();
+        return builder.build();
+    }
+
+    /**
+     * Lay out the {@link Op}s of a compilation unit: build the {@link Doc}, compute its breaks and
+     * write it to the output.
+     *
+     * @param ops        the {@link Op}s, see {@link #buildOps}
+     * @param javaOutput the {@link JavaOutput}
+     * @param options    the {@link JavaFormatterOptions}
+     */
+    static void layout(List<Op> ops, JavaOutput javaOutput, JavaFormatterOptions options) {
+        Doc doc = new DocBuilder().withOps(ops).build();
         doc.computeBreaks(
                 javaOutput.getCommentsHelper(), options.maxLineLength(), new Doc.State(+0, 0));
         doc.write(javaOutput);
@@ -132,8 +132,20 @@ public final class JavaOutput extends Output {
         return token.getTok();
     }
 
-    private static Range<Integer> union(Range<Integer> x, Range<Integer> y) {
-        return x.isEmpty() ? y : y.isEmpty() ? x : x.span(y).canonical(DiscreteDomain.integers());
+    /**
+     * Span of a range and the non-empty range [start, end). The range is not copied if it already
+     * covers [start, end), the common case of the many pieces of text appended to a line.
+     */
+    private static Range<Integer> union(Range<Integer> x, int start, int end) {
+        if (x.isEmpty()) {
+            return Range.closedOpen(start, end);
+        }
+        int lower = x.lowerEndpoint();
+        int upper = x.upperEndpoint();
+        if (lower <= start && end <= upper) {
+            return x;
+        }
+        return Range.closedOpen(Math.min(lower, start), Math.max(upper, end));
     }
 
     // The following methods can be used after the Output has been built.
@@ -156,14 +168,15 @@ public final class JavaOutput extends Output {
 
     // TODO(jdd): Add invariant.
     @Override
-    public void append(String text, Range<Integer> range) {
-        if (!range.isEmpty()) {
+    public void append(String text, int rangeStart, int rangeEnd) {
+        boolean emptyRange = rangeStart == rangeEnd;
+        if (!emptyRange) {
             boolean sawNewlines = false;
             // Skip over input line we've passed.
             int iN = javaInput.getLineCount();
             while (iLine < iN
                     && (javaInput.getRange1s(iLine).isEmpty()
-                    || javaInput.getRange1s(iLine).upperEndpoint() <= range.lowerEndpoint())) {
+                    || javaInput.getRange1s(iLine).upperEndpoint() <= rangeStart)) {
                 if (javaInput.getRanges(iLine).isEmpty()) {
                     // Skipped over a blank line.
                     sawNewlines = true;
@@ -222,13 +235,13 @@ public final class JavaOutput extends Output {
                             --spacesPending;
                         }
                         lineBuilder.append(c);
-                        if (!range.isEmpty()) {
+                        if (!emptyRange) {
                             if (!range0sSet) {
-                                if (!range.isEmpty()) {
+                                if (!emptyRange) {
                                     while (range0s.size() <= mutableLines.size()) {
                                         range0s.add(Formatter.EMPTY_RANGE);
                                     }
-                                    range0s.set(mutableLines.size(), union(range0s.get(mutableLines.size()), range));
+                                    range0s.set(mutableLines.size(), union(range0s.get(mutableLines.size()), rangeStart, rangeEnd));
                                     range0sSet = true;
                                 }
                             }
@@ -236,22 +249,22 @@ public final class JavaOutput extends Output {
                                 while (ranges.size() <= mutableLines.size()) {
                                     ranges.add(Formatter.EMPTY_RANGE);
                                 }
-                                ranges.set(mutableLines.size(), union(ranges.get(mutableLines.size()), range));
+                                ranges.set(mutableLines.size(), union(ranges.get(mutableLines.size()), rangeStart, rangeEnd));
                                 rangesSet = true;
                             }
                         }
                 }
             }
             // TODO(jdd): Move others down here. Use common method for these.
-            if (!range.isEmpty()) {
+            if (!emptyRange) {
                 while (range1s.size() <= mutableLines.size()) {
                     range1s.add(Formatter.EMPTY_RANGE);
                 }
-                range1s.set(mutableLines.size(), union(range1s.get(mutableLines.size()), range));
+                range1s.set(mutableLines.size(), union(range1s.get(mutableLines.size()), rangeStart, rangeEnd));
             }
         }
-        if (!range.isEmpty()) {
-            lastK = range.upperEndpoint();
+        if (!emptyRange) {
+            lastK = rangeEnd;
         }
     }
 
@@ -25,6 +25,7 @@ import com.google.googlejavaformat.java.javac.parser.Tokens.Token;
 import com.google.googlejavaformat.java.javac.parser.Tokens.TokenKind;
 import com.google.googlejavaformat.java.javac.parser.UnicodeReader;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
 
 import java.util.Set;
 
@@ -41,6 +42,12 @@ public class JavacTokens {
     // TODO(b/33103797): fix javac and remove the work-around
     private static final CharSequence EOF_COMMENT = "\n//EOF";
 
+    /**
+     * The tokens of the last lexed source. The lexing of a source starting with the same text
+     * resumes after the tokens of the common part.
+     */
+    private static LexedSource lastLexed;
+
     /**
      * Lex the input and return a list of {@link RawTok}s.
      */
@@ -49,12 +56,20 @@ public class JavacTokens {
         if (source == null) {
             return ImmutableList.of();
         }
-        ScannerFactory fac = ScannerFactory.instance(context);
-        char[] buffer = (source + EOF_COMMENT).toCharArray();
-        Scanner scanner =
-                new AccessibleScanner(fac, new CommentSavingTokenizer(fac, buffer, buffer.length));
         ImmutableList.Builder<RawTok> tokens = ImmutableList.builder();
         int last = 0;
+        LexedSource previous = getLastLexed();
+        if (previous != null) {
+            last = previous.addReusableTokens(source, stopTokens, tokens);
+        }
+
+        ScannerFactory fac = ScannerFactory.instance(context);
+        Log log = Log.instance(context);
+        int errors = log.nerrors;
+        // the source is read in place, it is not copied with the comment appended
+        Scanner scanner = new AccessibleScanner(
+                fac, new CommentSavingTokenizer(fac, new EofCommentSequence(source), last));
+        boolean stopped = false;
         do {
             scanner.nextToken();
             Token t = scanner.token();
@@ -69,6 +84,7 @@ public class JavacTokens {
                 }
             }
             if (stopTokens.contains(t.kind)) {
+                stopped = t.kind != TokenKind.EOF;
                 break;
             }
             if (last < t.pos) {
@@ -85,7 +101,121 @@ public class JavacTokens {
         if (last < source.length()) {
             tokens.add(new RawTok(null, null, last, source.length()));
         }
-        return tokens.build();
+        ImmutableList<RawTok> result = tokens.build();
+        // the tokens of an input with errors, or of a partial lexing, are not reused
+        if (log.nerrors == errors && !stopped) {
+            setLastLexed(new LexedSource(source, result));
+        }
+        return result;
+    }
+
+    private static synchronized LexedSource getLastLexed() {
+        return lastLexed;
+    }
+
+    private static synchronized void setLastLexed(LexedSource lexed) {
+        lastLexed = lexed;
+    }
+
+    /**
+     * A source and its tokens.
+     */
+    private static class LexedSource {
+        private final String source;
+        private final ImmutableList<RawTok> tokens;
+
+        LexedSource(String source, ImmutableList<RawTok> tokens) {
+            this.source = source;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Adds the tokens of this source which are also the tokens of the new source: the tokens
+         * followed by a token ending before the first changed character. The lexer reads past the
+         * end of a token, a line comment does not include its trailing white space for example,
+         * so the next token must be unchanged too. The lexing does not resume inside a unicode
+         * escape, or before one.
+         *
+         * @return the position the lexing of the new source resumes from
+         */
+        int addReusableTokens(
+                String newSource, Set<TokenKind> stopTokens, ImmutableList.Builder<RawTok> builder) {
+            int commonLength = 0;
+            int maxLength = Math.min(source.length(), newSource.length());
+            while (commonLength < maxLength
+                    && source.charAt(commonLength) == newSource.charAt(commonLength)) {
+                commonLength++;
+            }
+            int count = 0;
+            int resumePos = 0;
+            for (int i = 0; i + 1 < tokens.size(); i++) {
+                RawTok tok = tokens.get(i);
+                if (tokens.get(i + 1).endPos() >= commonLength) {
+                    break;
+                }
+                if (stopTokens.contains(tok.kind())) {
+                    // the new lexing stops before this token, lex it all again
+                    return 0;
+                }
+                if (source.charAt(tok.endPos()) != '\\'
+                        && !isInUnicodeEscape(source, tok.endPos())) {
+                    count = i + 1;
+                    resumePos = tok.endPos();
+                }
+            }
+            builder.addAll(tokens.subList(0, count));
+            return resumePos;
+        }
+
+        /**
+         * Returns whether the position is after the backslash of a unicode escape, and before
+         * its end. The position of a token starting with a unicode escape is its last digit.
+         */
+        private static boolean isInUnicodeEscape(String source, int pos) {
+            int i = pos - 1;
+            // the position is before the last digit
+            for (int digits = 0; digits < 3 && i >= 0
+                    && Character.digit(source.charAt(i), 16) >= 0; digits++) {
+                i--;
+            }
+            int start = i;
+            while (i >= 0 && source.charAt(i) == 'u') {
+                i--;
+            }
+            return i >= 0 && source.charAt(i) == '\\' && (i < start || i == pos - 1);
+        }
+    }
+
+    /**
+     * The source followed by {@link #EOF_COMMENT}, the source is not copied.
+     */
+    private static class EofCommentSequence implements CharSequence {
+        private final String source;
+
+        EofCommentSequence(String source) {
+            this.source = source;
+        }
+
+        @Override
+        public int length() {
+            return source.length() + EOF_COMMENT.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < source.length()
+                    ? source.charAt(index) : EOF_COMMENT.charAt(index - source.length());
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return source + EOF_COMMENT;
+        }
     }
 
     /**
@@ -137,8 +267,8 @@ public class JavacTokens {
      * A {@link JavaTokenizer} that saves comments.
      */
     static class CommentSavingTokenizer extends JavaTokenizer {
-        CommentSavingTokenizer(ScannerFactory fac, char[] buffer, int length) {
-            super(fac, buffer, length);
+        CommentSavingTokenizer(ScannerFactory fac, CharSequence input, int start) {
+            super(fac, input, start);
         }
 
         @Override
@@ -122,6 +122,15 @@ public class JavaTokenizer {
         this(fac, new UnicodeReader(fac, buf, inputLength));
     }
 
+    /**
+     * Create a tokenizer reading the input without a copy, from the given
+     * index. The index must be the start of a token, a comment or a white
+     * space.
+     */
+    protected JavaTokenizer(ScannerFactory fac, CharSequence input, int start) {
+        this(fac, new UnicodeReader(fac, input, start));
+    }
+
     protected JavaTokenizer(ScannerFactory fac, UnicodeReader reader) {
         this.fac = fac;
         this.log = fac.log;
@@ -55,6 +55,10 @@ public class UnicodeReader {
     protected int bp;
     protected final int buflen;
 
+    /** The input, when it is read without a copy into buf.
+     */
+    protected CharSequence input;
+
     /** The current character.
      */
     protected char ch;
@@ -102,11 +106,43 @@ public class UnicodeReader {
         scanChar();
     }
 
+    /**
+     * Create a reader of the characters of the input, the input is not
+     * copied. It must not change while the reader is used.
+     *
+     * @param sf the factory which created this Scanner
+     * @param input the input
+     * @param start index of the first character to read, the reader can
+     * resume the reading of an input at the start of a token
+     */
+    protected UnicodeReader(ScannerFactory sf, CharSequence input, int start) {
+        log = sf.log;
+        names = sf.names;
+        int inputLength = input.length();
+        // as with an array, a trailing white space is read as the end of input
+        if (inputLength > 0 && Character.isWhitespace(input.charAt(inputLength - 1))) {
+            inputLength--;
+        }
+        this.input = input;
+        buflen = inputLength;
+        bp = start - 1;
+        scanChar();
+    }
+
+    /** The character at the given index of the input, EOI past its end.
+     */
+    protected char charAt(int index) {
+        if (buf != null) {
+            return buf[index];
+        }
+        return index < buflen ? input.charAt(index) : (char) EOI;
+    }
+
     /** Read next character.
      */
     protected void scanChar() {
         if (bp < buflen) {
-            ch = buf[++bp];
+            ch = charAt(++bp);
             if (ch == '\\') {
                 convertUnicode();
             }
@@ -156,17 +192,17 @@ public class UnicodeReader {
      */
     protected void convertUnicode() {
         if (ch == '\\' && unicodeConversionBp != bp) {
-            bp++; ch = buf[bp];
+            bp++; ch = charAt(bp);
             if (ch == 'u') {
                 do {
-                    bp++; ch = buf[bp];
+                    bp++; ch = charAt(bp);
                 } while (ch == 'u');
                 int limit = bp + 3;
                 if (limit < buflen) {
                     int d = digit(bp, 16);
                     int code = d;
                     while (bp < limit && d >= 0) {
-                        bp++; ch = buf[bp];
+                        bp++; ch = charAt(bp);
                         d = digit(bp, 16);
                         code = (code << 4) + d;
                     }
@@ -239,7 +275,7 @@ public class UnicodeReader {
     }
 
     protected char peekChar() {
-        return buf[bp + 1];
+        return charAt(bp + 1);
     }
 
     /**
@@ -247,9 +283,7 @@ public class UnicodeReader {
      * Unicode escape sequences are not translated.
      */
     public char[] getRawCharacters() {
-        char[] chars = new char[buflen];
-        System.arraycopy(buf, 0, chars, 0, buflen);
-        return chars;
+        return getRawCharacters(0, buflen);
     }
 
     /**
@@ -269,7 +303,15 @@ public class UnicodeReader {
     public char[] getRawCharacters(int beginIndex, int endIndex) {
         int length = endIndex - beginIndex;
         char[] chars = new char[length];
-        System.arraycopy(buf, beginIndex, chars, 0, length);
+        if (buf != null) {
+            System.arraycopy(buf, beginIndex, chars, 0, length);
+        } else if (input instanceof String) {
+            ((String) input).getChars(beginIndex, endIndex, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = input.charAt(beginIndex + i);
+            }
+        }
         return chars;
     }
 }